@@ -0,0 +1,209 @@
+package com.test.gmendes.stream.study.virtual;
+
+import com.test.gmendes.stream.study.java8.v2.ProcessJava8V2;
+import com.test.gmendes.stream.study.layout.LayoutValidationCache;
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import com.test.gmendes.stream.study.sink.InsertSink;
+import com.test.gmendes.stream.study.sink.ListInsertSink;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
+import static com.test.gmendes.stream.study.Constants.SEPARATOR;
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+
+/**
+ * This class contains the Java 21 based implementation of the project, generating the same SQL inserts as
+ * {@link ProcessJava8V2}.
+ * <p>
+ * Instead of parallel streams over the common ForkJoinPool, each table is processed by its own virtual thread, which
+ * reads the table's file and writes its inserts by plain blocking calls. Blocking a virtual thread is cheap, so a
+ * release directory with many tables waiting on I/O doesn't need a thread pool sized for it.
+ * <p>
+ * Encoding the rows is CPU bound, so it's not done by the virtual threads: each table's rows are split into tasks,
+ * run by a bounded pool of platform threads, one for each core by default. The table's virtual thread just waits for
+ * its tasks, in order, and writes their inserts, so each table's inserts are written in the rows' order.
+ * <p>
+ * All virtual threads are scoped to the executor's try-with-resources block, so none outlives the execution, and the
+ * first failing table cancels the others, whichever order the tables were submitted in. That's the shape of a
+ * StructuredTaskScope, which is still a preview API on Java 21, so it's not used to avoid requiring --enable-preview.
+ * <p>
+ * Layouts are validated by {@link ProcessJava8V2#validate(String, LayoutValidationCache, Map.Entry)}, with the same
+ * validation cache, so both implementations skip the validation of unchanged layouts alike.
+ *
+ * @author grmendes
+ */
+public class ProcessJava21 {
+
+    /**
+     * Default amount of rows encoded by each task of the encoder pool.
+     */
+    public static final int DEFAULT_ROWS_PER_TASK = 4_096;
+
+    private final String path;
+    private final int encoders;
+    private final int rowsPerTask;
+    private final LayoutValidationCache validationCache;
+
+    public ProcessJava21(String path) {
+        this(path, Runtime.getRuntime().availableProcessors(), DEFAULT_ROWS_PER_TASK);
+    }
+
+    /**
+     * @param path        Path to the data directory.
+     * @param encoders    Amount of platform threads encoding rows.
+     * @param rowsPerTask Amount of rows encoded by each task.
+     * @throws IllegalArgumentException if any value is not positive.
+     */
+    public ProcessJava21(String path, int encoders, int rowsPerTask) {
+        if (encoders < 1 || rowsPerTask < 1) {
+            throw new IllegalArgumentException(String.format("Invalid execution: %d encoders, %d rows per task",
+                    encoders, rowsPerTask));
+        }
+        this.path = path;
+        this.encoders = encoders;
+        this.rowsPerTask = rowsPerTask;
+        this.validationCache = new LayoutValidationCache(path);
+    }
+
+    /**
+     * Entry point to start processing for testing. Generates a list of SQL inserts, based on the files processed.
+     * Each table's inserts are kept apart while the tables run, so the list has the same order as
+     * {@link ProcessJava8V2#execute()}.
+     *
+     * @return List of String with all SQL inserts generated.
+     */
+    public List<String> execute() {
+        final Map<String, List<String>> mapLinesPerTable = readLayouts();
+        final Map<String, ListInsertSink> sinks = new LinkedHashMap<>();
+        mapLinesPerTable.keySet().forEach(table -> sinks.put(table, new ListInsertSink()));
+        run(mapLinesPerTable, sinks::get);
+
+        final List<String> inserts = new ArrayList<>();
+        sinks.values().forEach(sink -> inserts.addAll(sink.inserts()));
+        return inserts;
+    }
+
+    /**
+     * Entry point to start processing. Generates SQL inserts, based on the files processed, handing them to the sink
+     * table by table. The sink is not closed by this method.
+     *
+     * @param sink Destination of the generated inserts.
+     * @throws RuntimeException if any table can't be processed. The other tables are cancelled.
+     */
+    public void execute(InsertSink sink) {
+        run(readLayouts(), table -> sink);
+    }
+
+    private Map<String, List<String>> readLayouts() {
+        return ProcessJava8V2.listToMap(ProcessJava8V2.readFile(path, LAYOUT_FILE_BASE_NAME), String::isEmpty);
+    }
+
+    /**
+     * Processes all tables, each by its own virtual thread. Tables are awaited as they finish, not as they were
+     * submitted, so the first failure cancels the other tables right away.
+     *
+     * @param mapLinesPerTable Map with the table's name as key and List of table's layout information as value.
+     * @param sinks            Destination of the inserts of each table, by its name.
+     * @throws RuntimeException if any table can't be processed. The other tables are cancelled.
+     */
+    private void run(Map<String, List<String>> mapLinesPerTable, Function<String, InsertSink> sinks) {
+        final ExecutorService encoderPool = Executors.newFixedThreadPool(encoders);
+        try (ExecutorService tables = Executors.newVirtualThreadPerTaskExecutor()) {
+            final CompletionService<Void> completion = new ExecutorCompletionService<>(tables);
+            for (Map.Entry<String, List<String>> entry : mapLinesPerTable.entrySet()) {
+                completion.submit(() -> process(entry, encoderPool, sinks.apply(entry.getKey())), null);
+            }
+            for (int i = 0; i < mapLinesPerTable.size(); i++) {
+                try {
+                    await(completion.take());
+                } catch (InterruptedException e) {
+                    tables.shutdownNow();
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                } catch (RuntimeException e) {
+                    tables.shutdownNow();
+                    throw e;
+                }
+            }
+            validationCache.save();
+        } finally {
+            encoderPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Processes a table, on its own virtual thread. Reading the file and writing the inserts block this thread only.
+     *
+     * @param entry       Map.Entry with the table's name as key and List of table's layout information as value.
+     * @param encoderPool Pool encoding the table's rows.
+     * @param sink        Destination of the generated inserts.
+     */
+    private void process(Map.Entry<String, List<String>> entry, ExecutorService encoderPool, InsertSink sink) {
+        ProcessJava8V2.validate(path, validationCache, entry);
+        final TableLayout layout = TableLayout.compile(entry.getKey(), entry.getValue());
+        final List<String> lines = ProcessJava8V2.readFile(path, entry.getKey() + TXT_EXTENSION);
+
+        final List<Future<List<String>>> tasks = new ArrayList<>(lines.size() / rowsPerTask + 1);
+        for (int from = 0; from < lines.size(); from += rowsPerTask) {
+            final int start = from;
+            final int end = Math.min(lines.size(), from + rowsPerTask);
+            tasks.add(encoderPool.submit(() -> encode(layout, lines, start, end)));
+        }
+        for (Future<List<String>> task : tasks) {
+            await(task).forEach(sink::accept);
+        }
+    }
+
+    /**
+     * Generates the SQL inserts of a range of lines, on a thread of the encoder pool.
+     *
+     * @return List of String with the SQL inserts generated, in the lines' order.
+     */
+    private static List<String> encode(TableLayout layout, List<String> lines, int from, int to) {
+        final RowCursor row = new RowCursor(layout);
+        final List<String> inserts = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            row.wrap(lines.get(i));
+            final StringBuilder insert = new StringBuilder(layout.insertPrefix());
+            for (int column = 0; column < layout.columnCount(); column++) {
+                if (column > 0) {
+                    insert.append(SEPARATOR);
+                }
+                row.appendLiteral(column, insert);
+            }
+            inserts.add(insert.append(");").toString());
+        }
+        return inserts;
+    }
+
+    /**
+     * Waits for a task, unwrapping its failure.
+     *
+     * @throws RuntimeException if the task failed or the waiting thread was interrupted.
+     */
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
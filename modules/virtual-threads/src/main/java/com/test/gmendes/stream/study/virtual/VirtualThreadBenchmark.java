@@ -0,0 +1,88 @@
+package com.test.gmendes.stream.study.virtual;
+
+import com.test.gmendes.stream.study.benchmark.BenchmarkPath;
+import com.test.gmendes.stream.study.io.ReadMode;
+import com.test.gmendes.stream.study.java8.v2.ProcessJava8V2;
+import com.test.gmendes.stream.study.java8.v3.ProcessJava8V3;
+import com.test.gmendes.stream.study.sink.ChannelInsertSink;
+import com.test.gmendes.stream.study.sink.InsertSink;
+import com.test.gmendes.stream.study.sink.ListInsertSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ProcessJava21}, one virtual thread per table, with the stream based parallelism of
+ * {@link ProcessJava8V2} and {@link ProcessJava8V3}, on the Sigtap directory received by the -Dpath argument.
+ * <p>
+ * The memory output collects the inserts into a list, so the run is CPU bound. The file output writes them into a
+ * file, with blocking writes, as a real release would. Note the file sink is synchronized, so a virtual thread writing
+ * into it pins its carrier thread on Java 21.
+ *
+ * @author grmendes
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class VirtualThreadBenchmark {
+
+    @Param({"memory", "file"})
+    public String output;
+
+    private String path;
+    private Path outputFile;
+
+    @Setup
+    public void setup() throws IOException {
+        path = BenchmarkPath.get();
+        outputFile = Files.createTempFile("inserts", ".sql");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(outputFile);
+    }
+
+    private InsertSink sink() {
+        return "file".equals(output) ? ChannelInsertSink.toFile(outputFile) : new ListInsertSink();
+    }
+
+    @Benchmark
+    public void processJava8V2() {
+        try (InsertSink sink = sink()) {
+            new ProcessJava8V2(path).execute(sink, ReadMode.LINES);
+        }
+    }
+
+    @Benchmark
+    public void processJava8V2Mapped() {
+        try (InsertSink sink = sink()) {
+            new ProcessJava8V2(path).execute(sink, ReadMode.MAPPED);
+        }
+    }
+
+    @Benchmark
+    public void processJava8V3() {
+        try (InsertSink sink = sink()) {
+            new ProcessJava8V3(path).execute(sink);
+        }
+    }
+
+    @Benchmark
+    public void processJava21() {
+        try (InsertSink sink = sink()) {
+            new ProcessJava21(path).execute(sink);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.test.gmendes.stream.study.benchmark;
+
+import java.io.File;
+import java.security.InvalidParameterException;
+
+/**
+ * Holds the path to the Sigtap directory used by the benchmarks, received by the -Dpath argument.
+ *
+ * @author grmendes
+ */
+public final class BenchmarkPath {
+
+    private BenchmarkPath() {
+        // Private default constructor.
+    }
+
+    /**
+     * @return Path to the Sigtap directory, always ending with the file separator.
+     * @throws InvalidParameterException if the path was not informed.
+     */
+    public static String get() {
+        String path = System.getProperty("path");
+        if (path == null || path.isEmpty()) {
+            throw new InvalidParameterException("This program should receive a path to a directory as argument. Please use -Dpath='/path/to/Stream_Study/src/main/resources/Sigtap/' argument to java command.");
+        }
+        if (!path.endsWith(File.separator)) {
+            path = path + File.separator;
+        }
+        return path;
+    }
+}
@@ -0,0 +1,116 @@
+package com.test.gmendes.stream.study.benchmark;
+
+import com.test.gmendes.stream.study.bulk.BulkFormat;
+import com.test.gmendes.stream.study.bulk.BulkWriter;
+import com.test.gmendes.stream.study.io.MappedFile;
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import com.test.gmendes.stream.study.sink.ChannelInsertSink;
+import com.test.gmendes.stream.study.store.TableStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import static com.test.gmendes.stream.study.Constants.SEPARATOR;
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+
+/**
+ * Measures the writing of a whole table as SQL inserts, by a {@link ChannelInsertSink}, against its writing in the
+ * bulk loader formats, by a {@link BulkWriter}. Output is discarded, so only the encoding is measured.
+ *
+ * @author grmendes
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BulkBenchmark {
+
+    @Param({"rl_procedimento_cid", "tb_procedimento"})
+    public String table;
+
+    private TableLayout layout;
+    private MappedFile file;
+
+    @Setup
+    public void setup() {
+        final String path = BenchmarkPath.get();
+        layout = new TableStore(path).layout(table);
+        file = MappedFile.readFile(path, table + TXT_EXTENSION);
+    }
+
+    @Benchmark
+    public long inserts() {
+        final DiscardChannel channel = new DiscardChannel();
+        final RowCursor cursor = new RowCursor(layout);
+        final StringBuilder insert = new StringBuilder();
+        try (ChannelInsertSink sink = new ChannelInsertSink(channel)) {
+            for (int row = 0; row < file.rowCount(); row++) {
+                file.row(row, cursor);
+                insert.setLength(0);
+                insert.append(layout.insertPrefix());
+                for (int column = 0; column < layout.columnCount(); column++) {
+                    if (column > 0) {
+                        insert.append(SEPARATOR);
+                    }
+                    cursor.appendLiteral(column, insert);
+                }
+                sink.accept(insert.append(");"));
+            }
+        }
+        return channel.written;
+    }
+
+    @Benchmark
+    public long copyText() {
+        return write(BulkFormat.COPY_TEXT);
+    }
+
+    @Benchmark
+    public long csv() {
+        return write(BulkFormat.CSV);
+    }
+
+    private long write(BulkFormat format) {
+        final DiscardChannel channel = new DiscardChannel();
+        final RowCursor cursor = new RowCursor(layout);
+        try (BulkWriter writer = new BulkWriter(channel, format)) {
+            writer.write(layout, file.rowCount(), row -> file.row(row, cursor));
+        }
+        return channel.written;
+    }
+
+    /**
+     * Channel counting the bytes written, which are then discarded.
+     */
+    private static final class DiscardChannel implements WritableByteChannel {
+
+        private long written;
+
+        @Override
+        public int write(ByteBuffer source) {
+            final int length = source.remaining();
+            source.position(source.limit());
+            written += length;
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release.
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.test.gmendes.stream.study.benchmark;
+
+import com.test.gmendes.stream.study.io.MappedFile;
+import com.test.gmendes.stream.study.java8.v2.ProcessJava8V2;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import com.test.gmendes.stream.study.resident.ResidentTable;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+
+/**
+ * Measures the heap retained by a whole table kept into memory.
+ * <p>
+ * The lines benchmark keeps the data file's lines, as read by ProcessJava8V2. The resident benchmark keeps a
+ * {@link ResidentTable}, with one String per value when the cardinality is 0, or with the low cardinality columns
+ * dictionary encoded otherwise.
+ * <p>
+ * The retained bytes are reported as the <code>retainedBytes</code> secondary result, computed from the used heap
+ * before and after loading, each one read after a full GC. Heap is sampled by the iteration's setup and tear down, out
+ * of the measured time, while only the table loaded by the iteration's last invocation is still reachable. Loading
+ * times are reported too, but they're not the point.
+ *
+ * @author grmendes
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class FootprintBenchmark {
+
+    @Param({"rl_procedimento_cid"})
+    public String table;
+
+    private String path;
+    private TableLayout layout;
+
+    @Setup
+    public void setup() {
+        path = BenchmarkPath.get();
+        layout = TableLayout.compile(table, ProcessJava8V2.listToMap(
+                ProcessJava8V2.readFile(path, LAYOUT_FILE_BASE_NAME), String::isEmpty).get(table));
+    }
+
+    /**
+     * Dictionary cardinalities, used only by the resident benchmark.
+     */
+    @State(Scope.Benchmark)
+    public static class Cardinality {
+
+        @Param({"0", "256", "65536"})
+        public int maxCardinality;
+    }
+
+    /**
+     * Heap retained by the table loaded by the iteration's last invocation, which is kept reachable until the
+     * iteration's tear down samples the heap. Counters are reset by JMH at the start of each iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long retainedBytes;
+        private long before;
+        private Object retained;
+
+        @Setup(Level.Iteration)
+        public void before() {
+            retained = null;
+            before = usedHeap();
+        }
+
+        @TearDown(Level.Iteration)
+        public void after() {
+            retainedBytes += usedHeap() - before;
+            retained = null;
+        }
+
+        <T> T retain(T table) {
+            retained = table;
+            return table;
+        }
+    }
+
+    @Benchmark
+    public List<String> lines(Footprint footprint) {
+        return footprint.retain(ProcessJava8V2.readFile(path, table + TXT_EXTENSION));
+    }
+
+    @Benchmark
+    public ResidentTable resident(Cardinality cardinality, Footprint footprint) {
+        return footprint.retain(ResidentTable.load(MappedFile.readFile(path, table + TXT_EXTENSION), layout,
+                cardinality.maxCardinality));
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        // A single call may not collect everything, depending on the collector.
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
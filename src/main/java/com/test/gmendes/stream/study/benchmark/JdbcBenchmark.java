@@ -0,0 +1,114 @@
+package com.test.gmendes.stream.study.benchmark;
+
+import com.test.gmendes.stream.study.io.MappedFile;
+import com.test.gmendes.stream.study.jdbc.ConnectionFactory;
+import com.test.gmendes.stream.study.jdbc.JdbcLoader;
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import com.test.gmendes.stream.study.store.TableStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import static com.test.gmendes.stream.study.Constants.SEPARATOR;
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+
+/**
+ * Measures the loading of a table into an embedded H2 database, in Oracle mode so the layout's types are accepted.
+ * <p>
+ * The text benchmark generates the SQL inserts, as process() does, and replays them through a Statement batch. The
+ * JDBC benchmark binds the values straight from the mapped rows into a {@link JdbcLoader}'s prepared insert. Both send
+ * batches of the same size, and the table is emptied before each invocation.
+ *
+ * @author grmendes
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class JdbcBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:sigtap;MODE=Oracle;DB_CLOSE_DELAY=-1";
+
+    @Param({"rl_procedimento_cid", "tb_procedimento"})
+    public String table;
+
+    @Param({"1000"})
+    public int batchSize;
+
+    private final ConnectionFactory connections = () -> DriverManager.getConnection(URL);
+    private TableLayout layout;
+    private MappedFile file;
+    private JdbcLoader loader;
+
+    @Setup
+    public void setup() {
+        final String path = BenchmarkPath.get();
+        layout = new TableStore(path).layout(table);
+        file = MappedFile.readFile(path, table + TXT_EXTENSION);
+        loader = new JdbcLoader(connections, batchSize, JdbcLoader.DEFAULT_COMMIT_INTERVAL);
+        loader.createTable(layout);
+    }
+
+    @Setup(Level.Invocation)
+    public void truncate() throws SQLException {
+        execute("TRUNCATE TABLE " + table);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        execute("DROP TABLE " + table);
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = connections.open(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    @Benchmark
+    public int textInserts() throws SQLException {
+        final RowCursor cursor = new RowCursor(layout);
+        try (Connection connection = connections.open(); Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            for (int row = 0; row < file.rowCount(); row++) {
+                statement.addBatch(generateInsert(file.row(row, cursor)));
+                if ((row + 1) % batchSize == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+            connection.commit();
+        }
+        return file.rowCount();
+    }
+
+    @Benchmark
+    public int jdbcBatch() {
+        final RowCursor cursor = new RowCursor(layout);
+        return loader.load(layout, file.rowCount(), row -> file.row(row, cursor));
+    }
+
+    private String generateInsert(RowCursor row) {
+        final StringBuilder insert = new StringBuilder(layout.insertPrefix());
+        for (int column = 0; column < layout.columnCount(); column++) {
+            if (column > 0) {
+                insert.append(SEPARATOR);
+            }
+            row.appendLiteral(column, insert);
+        }
+        return insert.append(')').toString();
+    }
+}
@@ -0,0 +1,73 @@
+package com.test.gmendes.stream.study.benchmark;
+
+import com.test.gmendes.stream.study.java8.v2.ProcessJava8V2;
+import com.test.gmendes.stream.study.join.BuildSide;
+import com.test.gmendes.stream.study.join.HashJoin;
+import com.test.gmendes.stream.study.store.TableStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Measures the join of rl_procedimento_cid with tb_procedimento and tb_cid, writing each procedure's name with the
+ * description of each of its CIDs.
+ * <p>
+ * The lines benchmark joins the text lines, with the tb_ tables kept into HashMaps by their codes. The hash join
+ * benchmark uses a {@link HashJoin}, whose tb_ tables are already loaded into the store, as for a resident release.
+ *
+ * @author grmendes
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class JoinBenchmark {
+
+    private String path;
+    private TableStore store;
+    private Map<String, String> procedures;
+    private Map<String, String> cids;
+
+    @Setup
+    public void setup() {
+        path = BenchmarkPath.get();
+        store = new TableStore(path);
+        store.table("tb_procedimento");
+        store.table("tb_cid");
+        procedures = ProcessJava8V2.readFile(path, "tb_procedimento" + TXT_EXTENSION).stream()
+                .collect(toMap(line -> line.substring(0, 10).trim(), line -> line.substring(10, 260).trim()));
+        cids = ProcessJava8V2.readFile(path, "tb_cid" + TXT_EXTENSION).stream()
+                .collect(toMap(line -> line.substring(0, 4).trim(), line -> line.substring(4, 104).trim()));
+    }
+
+    @Benchmark
+    public void joinLines(Blackhole blackhole) {
+        ProcessJava8V2.readFile(path, "rl_procedimento_cid" + TXT_EXTENSION).parallelStream()
+                .map(line -> {
+                    final String procedure = procedures.get(line.substring(0, 10).trim());
+                    final String cid = cids.get(line.substring(10, 14).trim());
+                    return procedure == null || cid == null ? null : line.substring(0, 10).trim() + HashJoin.DELIMITER
+                            + line.substring(10, 14).trim() + HashJoin.DELIMITER + procedure + HashJoin.DELIMITER + cid;
+                })
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void hashJoin(Blackhole blackhole) {
+        new HashJoin(path, store, "rl_procedimento_cid", Arrays.asList("CO_PROCEDIMENTO", "CO_CID"), Arrays.asList(
+                new BuildSide("tb_procedimento", "CO_PROCEDIMENTO", "NO_PROCEDIMENTO"),
+                new BuildSide("tb_cid", "CO_CID", "NO_CID")))
+                .stream().forEach(blackhole::consume);
+    }
+}
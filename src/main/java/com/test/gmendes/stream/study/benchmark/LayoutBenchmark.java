@@ -0,0 +1,78 @@
+package com.test.gmendes.stream.study.benchmark;
+
+import com.test.gmendes.stream.study.java8.v2.ProcessJava8V2;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
+import static com.test.gmendes.stream.study.Constants.LAYOUT_HEADER;
+import static com.test.gmendes.stream.study.Constants.SEPARATOR;
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+
+/**
+ * Measures the per row cost of extracting all columns of a table, parsing the layout lines on every row (as done
+ * before) against using a compiled {@link TableLayout}.
+ * <p>
+ * Files are read during setup, so only the extraction is measured.
+ *
+ * @author grmendes
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class LayoutBenchmark {
+
+    @Param({"tb_procedimento", "rl_procedimento_ocupacao"})
+    public String table;
+
+    private List<String> layoutLines;
+    private TableLayout layout;
+    private List<String> fileData;
+
+    @Setup
+    public void setup() {
+        final String path = BenchmarkPath.get();
+        layoutLines = new ArrayList<>(ProcessJava8V2.listToMap(ProcessJava8V2.readFile(path, LAYOUT_FILE_BASE_NAME),
+                String::isEmpty).get(table));
+        layoutLines.remove(LAYOUT_HEADER);
+        layout = TableLayout.compile(table, layoutLines);
+        fileData = ProcessJava8V2.readFile(path, table + TXT_EXTENSION);
+    }
+
+    @Benchmark
+    public void extractParsingLayoutLines(Blackhole blackhole) {
+        for (String fileLine : fileData) {
+            for (String layoutLine : layoutLines) {
+                final String[] layoutInfo = layoutLine.split(SEPARATOR);
+                blackhole.consume(fileLine.substring(Integer.parseInt(layoutInfo[2]) - 1,
+                        Integer.parseInt(layoutInfo[3])));
+            }
+        }
+    }
+
+    @Benchmark
+    public void extractCompiledLayout(Blackhole blackhole) {
+        for (String fileLine : fileData) {
+            for (int i = 0; i < layout.columnCount(); i++) {
+                blackhole.consume(fileLine.substring(layout.start(i), layout.end(i)));
+            }
+        }
+    }
+
+    @Benchmark
+    public TableLayout compileLayout() {
+        return TableLayout.compile(table, layoutLines);
+    }
+}
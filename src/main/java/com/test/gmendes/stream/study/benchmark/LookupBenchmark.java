@@ -0,0 +1,76 @@
+package com.test.gmendes.stream.study.benchmark;
+
+import com.test.gmendes.stream.study.java8.v2.ProcessJava8V2;
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import com.test.gmendes.stream.study.store.OffHeapTable;
+import com.test.gmendes.stream.study.store.TableStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+
+/**
+ * Measures primary key lookups of every key of a table.
+ * <p>
+ * The heap benchmark looks up the lines kept into a HashMap, keyed by a String per row. The off heap benchmark looks
+ * up an {@link OffHeapTable}, whose rows and index are in direct memory, filling the same cursor for every key.
+ *
+ * @author grmendes
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+
+    @Param({"tb_procedimento", "tb_cid"})
+    public String table;
+
+    private OffHeapTable offHeap;
+    private Map<String, String> heap;
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        final String path = BenchmarkPath.get();
+        offHeap = new TableStore(path).table(table);
+        final TableLayout layout = offHeap.layout();
+        final int keyColumn = layout.indexOf(TableStore.primaryKey(table));
+
+        final List<String> lines = ProcessJava8V2.readFile(path, table + TXT_EXTENSION);
+        heap = new HashMap<>();
+        keys = new String[lines.size()];
+        for (int row = 0; row < lines.size(); row++) {
+            final String line = lines.get(row);
+            keys[row] = line.substring(layout.start(keyColumn), layout.end(keyColumn)).trim();
+            heap.put(keys[row], line);
+        }
+    }
+
+    @Benchmark
+    public void lookupHeap(Blackhole blackhole) {
+        for (String key : keys) {
+            blackhole.consume(heap.get(key));
+        }
+    }
+
+    @Benchmark
+    public void lookupOffHeap(Blackhole blackhole) {
+        final RowCursor cursor = new RowCursor(offHeap.layout());
+        for (String key : keys) {
+            blackhole.consume(offHeap.lookup(key, cursor));
+        }
+    }
+}
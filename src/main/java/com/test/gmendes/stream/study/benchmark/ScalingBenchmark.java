@@ -0,0 +1,71 @@
+package com.test.gmendes.stream.study.benchmark;
+
+import com.test.gmendes.stream.study.io.ReadMode;
+import com.test.gmendes.stream.study.java8.v1.ProcessJava8V1;
+import com.test.gmendes.stream.study.java8.v2.ProcessJava8V2;
+import com.test.gmendes.stream.study.sink.CallbackInsertSink;
+import com.test.gmendes.stream.study.synthetic.SyntheticRelease;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures how the parallel versions scale with the size of the release, over a {@link SyntheticRelease} generated from
+ * the real one into a temporary directory, <code>scale</code> times larger.
+ * <p>
+ * ProcessJava8V1 nests a parallel stream of rows into a parallel stream of tables, and keeps all inserts into a list.
+ * ProcessJava8V2 splits the work by table only, and hands the inserts to a sink as they're generated. Larger scales,
+ * e.g. <code>-p scale=100</code>, need about 1 GB of disk for each 100 and, for ProcessJava8V1, a heap to match.
+ *
+ * @author grmendes
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ScalingBenchmark {
+
+    @Param({"1", "10"})
+    public int scale;
+
+    private Path release;
+    private String path;
+
+    @Setup
+    public void setup() throws IOException {
+        release = Files.createTempDirectory("sigtap-x" + scale);
+        new SyntheticRelease(BenchmarkPath.get()).write(release, scale);
+        path = release.toString() + File.separator;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(release)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void processJava8V1(Blackhole blackhole) {
+        blackhole.consume(new ProcessJava8V1(path).execute());
+    }
+
+    @Benchmark
+    public void processJava8V2(Blackhole blackhole) {
+        new ProcessJava8V2(path).execute(new CallbackInsertSink(blackhole::consume), ReadMode.MAPPED);
+    }
+}
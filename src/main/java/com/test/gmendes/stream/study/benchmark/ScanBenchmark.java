@@ -0,0 +1,75 @@
+package com.test.gmendes.stream.study.benchmark;
+
+import com.test.gmendes.stream.study.io.LineSpliterator;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import com.test.gmendes.stream.study.scan.ColumnPredicate;
+import com.test.gmendes.stream.study.scan.Scan;
+import com.test.gmendes.stream.study.store.TableStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+
+/**
+ * Measures an ad hoc extract of rl_procedimento_ocupacao: the occupations of the clinical procedures (group 03,
+ * sub group 01), about 5% of the rows.
+ * <p>
+ * The full parse benchmark extracts every column of every row, as process() does, and only then filters and projects
+ * them. The scan benchmark tests the prefix straight from each row's bytes and slices only the projected columns of the
+ * accepted rows.
+ *
+ * @author grmendes
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ScanBenchmark {
+
+    private static final String TABLE = "rl_procedimento_ocupacao";
+    private static final String PROCEDURE_PREFIX = "0301";
+
+    private String path;
+    private TableLayout layout;
+    private int procedure;
+    private int occupation;
+
+    @Setup
+    public void setup() {
+        path = BenchmarkPath.get();
+        layout = new TableStore(path).layout(TABLE);
+        procedure = layout.indexOf("CO_PROCEDIMENTO");
+        occupation = layout.indexOf("CO_OCUPACAO");
+    }
+
+    @Benchmark
+    public void fullParse(Blackhole blackhole) {
+        LineSpliterator.stream(path, TABLE + TXT_EXTENSION, layout, true)
+                .map(row -> {
+                    final String[] values = new String[layout.columnCount()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = row.value(i);
+                    }
+                    return values;
+                })
+                .filter(values -> values[procedure].startsWith(PROCEDURE_PREFIX))
+                .map(values -> new String[]{values[procedure], values[occupation]})
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        new Scan(path, layout, Arrays.asList("CO_PROCEDIMENTO", "CO_OCUPACAO"),
+                Collections.singletonList(ColumnPredicate.prefix("CO_PROCEDIMENTO", PROCEDURE_PREFIX)))
+                .stream().forEach(blackhole::consume);
+    }
+}
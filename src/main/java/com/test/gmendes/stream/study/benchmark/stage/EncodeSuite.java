@@ -0,0 +1,134 @@
+package com.test.gmendes.stream.study.benchmark.stage;
+
+import com.test.gmendes.stream.study.io.MappedFile;
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import com.test.gmendes.stream.study.resident.ResidentTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static com.test.gmendes.stream.study.Constants.NULL;
+import static com.test.gmendes.stream.study.Constants.SEPARATOR;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Measures the insert encoding stage alone: generating the inserts of a table whose rows are already in memory, by
+ * each encoding used along the versions.
+ *
+ * @author grmendes
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class EncodeSuite {
+
+    /**
+     * Encodings of a table's inserts.
+     */
+    public enum Encoder {
+        /**
+         * Joins a String of every value, as ProcessJava8V1 does.
+         */
+        JOINING {
+            @Override
+            void encode(TableFixture fixture, Blackhole blackhole) {
+                final TableLayout layout = fixture.layout();
+                final MappedFile mapped = fixture.mapped();
+                final RowCursor cursor = new RowCursor(layout);
+                final List<String> columns = layout.columns();
+                for (int row = 0; row < mapped.rowCount(); row++) {
+                    final RowCursor line = mapped.row(row, cursor);
+                    blackhole.consume("INSERT INTO " + layout.name() + " (" + String.join(SEPARATOR, columns)
+                            + ") VALUES (" + IntStream.range(0, columns.size())
+                            .mapToObj(i -> line.isNull(i) ? NULL : line.value(i)).collect(joining(SEPARATOR)) + ");");
+                }
+            }
+        },
+        /**
+         * Appends the raw values, unquoted, as done before the literals were typed.
+         */
+        RAW {
+            @Override
+            void encode(TableFixture fixture, Blackhole blackhole) {
+                final TableLayout layout = fixture.layout();
+                final MappedFile mapped = fixture.mapped();
+                final RowCursor cursor = new RowCursor(layout);
+                final StringBuilder insert = new StringBuilder();
+                for (int row = 0; row < mapped.rowCount(); row++) {
+                    mapped.row(row, cursor);
+                    insert.setLength(0);
+                    insert.append(layout.insertPrefix());
+                    for (int i = 0; i < layout.columnCount(); i++) {
+                        if (i > 0) {
+                            insert.append(SEPARATOR);
+                        }
+                        if (cursor.isNull(i)) {
+                            insert.append(NULL);
+                        } else {
+                            cursor.appendValue(i, insert);
+                        }
+                    }
+                    blackhole.consume(insert.append(");"));
+                }
+            }
+        },
+        /**
+         * Appends every value as a SQL literal of its column's type, as ProcessJava8V2 does.
+         */
+        LITERAL {
+            @Override
+            void encode(TableFixture fixture, Blackhole blackhole) {
+                final TableLayout layout = fixture.layout();
+                final MappedFile mapped = fixture.mapped();
+                final RowCursor cursor = new RowCursor(layout);
+                final StringBuilder insert = new StringBuilder();
+                for (int row = 0; row < mapped.rowCount(); row++) {
+                    mapped.row(row, cursor);
+                    insert.setLength(0);
+                    insert.append(layout.insertPrefix());
+                    for (int i = 0; i < layout.columnCount(); i++) {
+                        if (i > 0) {
+                            insert.append(SEPARATOR);
+                        }
+                        cursor.appendLiteral(i, insert);
+                    }
+                    blackhole.consume(insert.append(");"));
+                }
+            }
+        },
+        /**
+         * Appends the inserts of the resident table, with the dictionary literals precomputed.
+         */
+        RESIDENT {
+            @Override
+            void encode(TableFixture fixture, Blackhole blackhole) {
+                final ResidentTable resident = fixture.resident();
+                final StringBuilder insert = new StringBuilder();
+                for (int row = 0; row < resident.rowCount(); row++) {
+                    insert.setLength(0);
+                    blackhole.consume(resident.appendInsert(row, insert));
+                }
+            }
+        };
+
+        abstract void encode(TableFixture fixture, Blackhole blackhole);
+    }
+
+    @Param
+    public Encoder encoder;
+
+    @Benchmark
+    public void encode(TableFixture fixture, Blackhole blackhole) {
+        encoder.encode(fixture, blackhole);
+    }
+}
@@ -0,0 +1,131 @@
+package com.test.gmendes.stream.study.benchmark.stage;
+
+import com.test.gmendes.stream.study.io.MappedFile;
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.test.gmendes.stream.study.Constants.LAYOUT_HEADER;
+import static com.test.gmendes.stream.study.Constants.SEPARATOR;
+
+/**
+ * Measures the row extraction stage alone: finding every column of every row of a table already in memory, and
+ * whether it's NULL, by each extraction used along the versions.
+ *
+ * @author grmendes
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ExtractSuite {
+
+    /**
+     * Extractions of a row's columns.
+     */
+    public enum Extractor {
+        /**
+         * Parses the layout lines for every row, as the first versions did.
+         */
+        PARSED_LAYOUT {
+            @Override
+            void extract(TableFixture fixture, Blackhole blackhole) {
+                for (String line : fixture.lines()) {
+                    for (String layoutLine : fixture.layoutLines()) {
+                        if (LAYOUT_HEADER.equals(layoutLine)) {
+                            continue;
+                        }
+                        final String[] layoutInfo = layoutLine.split(SEPARATOR);
+                        blackhole.consume(line.substring(Integer.parseInt(layoutInfo[2]) - 1,
+                                Integer.parseInt(layoutInfo[3])).trim().isEmpty());
+                    }
+                }
+            }
+        },
+        /**
+         * Builds a HashMap of the values of every row.
+         */
+        HASH_MAP {
+            @Override
+            void extract(TableFixture fixture, Blackhole blackhole) {
+                final TableLayout layout = fixture.layout();
+                for (String line : fixture.lines()) {
+                    final Map<String, String> data = new HashMap<>();
+                    for (int i = 0; i < layout.columnCount(); i++) {
+                        data.put(layout.column(i), line.substring(layout.start(i), layout.end(i)));
+                    }
+                    for (int i = 0; i < layout.columnCount(); i++) {
+                        blackhole.consume(data.get(layout.column(i)).trim().isEmpty());
+                    }
+                }
+            }
+        },
+        /**
+         * Slices every value by the compiled layout.
+         */
+        COMPILED_LAYOUT {
+            @Override
+            void extract(TableFixture fixture, Blackhole blackhole) {
+                final TableLayout layout = fixture.layout();
+                for (String line : fixture.lines()) {
+                    for (int i = 0; i < layout.columnCount(); i++) {
+                        blackhole.consume(line.substring(layout.start(i), layout.end(i)).trim().isEmpty());
+                    }
+                }
+            }
+        },
+        /**
+         * Moves a cursor over the lines, with no String per value.
+         */
+        ROW_CURSOR {
+            @Override
+            void extract(TableFixture fixture, Blackhole blackhole) {
+                final TableLayout layout = fixture.layout();
+                final RowCursor cursor = new RowCursor(layout);
+                for (String line : fixture.lines()) {
+                    cursor.wrap(line);
+                    for (int i = 0; i < layout.columnCount(); i++) {
+                        blackhole.consume(cursor.isNull(i));
+                    }
+                }
+            }
+        },
+        /**
+         * Moves a cursor over the rows of the mapped file, with no line decoded.
+         */
+        MAPPED_CURSOR {
+            @Override
+            void extract(TableFixture fixture, Blackhole blackhole) {
+                final TableLayout layout = fixture.layout();
+                final MappedFile mapped = fixture.mapped();
+                final RowCursor cursor = new RowCursor(layout);
+                for (int row = 0; row < mapped.rowCount(); row++) {
+                    mapped.row(row, cursor);
+                    for (int i = 0; i < layout.columnCount(); i++) {
+                        blackhole.consume(cursor.isNull(i));
+                    }
+                }
+            }
+        };
+
+        abstract void extract(TableFixture fixture, Blackhole blackhole);
+    }
+
+    @Param
+    public Extractor extractor;
+
+    @Benchmark
+    public void extract(TableFixture fixture, Blackhole blackhole) {
+        extractor.extract(fixture, blackhole);
+    }
+}
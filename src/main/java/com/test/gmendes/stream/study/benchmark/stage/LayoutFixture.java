@@ -0,0 +1,35 @@
+package com.test.gmendes.stream.study.benchmark.stage;
+
+import com.test.gmendes.stream.study.benchmark.BenchmarkPath;
+import com.test.gmendes.stream.study.java8.v2.ProcessJava8V2;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
+
+/**
+ * Shared fixture holding the lines of layout.txt, read once per trial, so suites splitting them measure no I/O.
+ *
+ * @author grmendes
+ */
+@State(Scope.Benchmark)
+public class LayoutFixture {
+
+    private List<String> lines;
+
+    @Setup
+    public void setup() {
+        lines = Collections.unmodifiableList(ProcessJava8V2.readFile(BenchmarkPath.get(), LAYOUT_FILE_BASE_NAME));
+    }
+
+    /**
+     * @return Lines of layout.txt. Read only, since the same list is handed to every invocation.
+     */
+    public List<String> lines() {
+        return lines;
+    }
+}
@@ -0,0 +1,94 @@
+package com.test.gmendes.stream.study.benchmark.stage;
+
+import com.test.gmendes.stream.study.io.Latin1LineReader;
+import com.test.gmendes.stream.study.io.MappedFile;
+import com.test.gmendes.stream.study.java7.v1.ProcessJava7V1;
+import com.test.gmendes.stream.study.java7.v2.ProcessJava7V2;
+import com.test.gmendes.stream.study.java8.v1.ProcessJava8V1;
+import com.test.gmendes.stream.study.java8.v2.ProcessJava8V2;
+import com.test.gmendes.stream.study.java8.v3.ProcessJava8V3;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures the reading stage alone: getting a table's data file into memory, by each readFile implementation.
+ * <p>
+ * Every implementation must hand over the whole content. The Java 8 V3 stream is lazy, so its lines are consumed by
+ * the Blackhole before the stream is closed, and the mapped file indexes all its rows when it's created.
+ *
+ * @author grmendes
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ReadSuite {
+
+    /**
+     * Implementations of readFile.
+     */
+    public enum Reader {
+        JAVA7_V1 {
+            @Override
+            void read(String path, String filename, Blackhole blackhole) {
+                blackhole.consume(ProcessJava7V1.readFile(path, filename));
+            }
+        },
+        JAVA7_V2 {
+            @Override
+            void read(String path, String filename, Blackhole blackhole) {
+                blackhole.consume(ProcessJava7V2.readFile(path, filename));
+            }
+        },
+        JAVA8_V1 {
+            @Override
+            void read(String path, String filename, Blackhole blackhole) {
+                blackhole.consume(ProcessJava8V1.readFile(path, filename));
+            }
+        },
+        JAVA8_V2 {
+            @Override
+            void read(String path, String filename, Blackhole blackhole) {
+                blackhole.consume(ProcessJava8V2.readFile(path, filename));
+            }
+        },
+        JAVA8_V3 {
+            @Override
+            void read(String path, String filename, Blackhole blackhole) {
+                try (Stream<String> lines = ProcessJava8V3.readFile(path, filename)) {
+                    lines.forEach(blackhole::consume);
+                }
+            }
+        },
+        LATIN1 {
+            @Override
+            void read(String path, String filename, Blackhole blackhole) {
+                blackhole.consume(Latin1LineReader.readFile(path, filename));
+            }
+        },
+        MAPPED {
+            @Override
+            void read(String path, String filename, Blackhole blackhole) {
+                blackhole.consume(MappedFile.readFile(path, filename));
+            }
+        };
+
+        abstract void read(String path, String filename, Blackhole blackhole);
+    }
+
+    @Param
+    public Reader reader;
+
+    @Benchmark
+    public void read(TableFixture fixture, Blackhole blackhole) {
+        reader.read(fixture.path(), fixture.dataFile(), blackhole);
+    }
+}
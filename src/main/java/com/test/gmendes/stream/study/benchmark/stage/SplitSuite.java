@@ -0,0 +1,116 @@
+package com.test.gmendes.stream.study.benchmark.stage;
+
+import com.test.gmendes.stream.study.collect.SectionCollector;
+import com.test.gmendes.stream.study.java7.v1.ProcessJava7V1;
+import com.test.gmendes.stream.study.java7.v2.ListToMapJava7Tests;
+import com.test.gmendes.stream.study.java7.v2.ProcessJava7V2;
+import com.test.gmendes.stream.study.java8.v1.ProcessJava8V1;
+import com.test.gmendes.stream.study.java8.v2.ListToMapJava8Tests;
+import com.test.gmendes.stream.study.java8.v2.ProcessJava8V2;
+import com.test.gmendes.stream.study.java8.v3.ProcessJava8V3;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the section splitting stage alone: turning the lines of layout.txt, already in memory, into one section per
+ * table, by each listToMap implementation. No file is read while measuring.
+ *
+ * @author grmendes
+ */
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SplitSuite {
+
+    /**
+     * Implementations of listToMap, and of the Java 8 V3 splitList.
+     */
+    public enum Splitter {
+        JAVA7_V1 {
+            @Override
+            Object split(List<String> lines) {
+                return ProcessJava7V1.listToMap(lines);
+            }
+        },
+        JAVA7_V2 {
+            @Override
+            Object split(List<String> lines) {
+                return ProcessJava7V2.listToMap(lines);
+            }
+        },
+        JAVA7_EDGES {
+            @Override
+            Object split(List<String> lines) {
+                return ListToMapJava7Tests.listToMap7Edges(lines);
+            }
+        },
+        JAVA8_V1 {
+            @Override
+            Object split(List<String> lines) {
+                return ProcessJava8V1.listToMap(lines, String::isEmpty);
+            }
+        },
+        JAVA8_V2 {
+            @Override
+            Object split(List<String> lines) {
+                return ProcessJava8V2.listToMap(lines, String::isEmpty);
+            }
+        },
+        JAVA8_V3 {
+            @Override
+            Object split(List<String> lines) {
+                // Sections are collected, so the whole stream is split.
+                return ProcessJava8V3.splitList(lines.stream(), String::isEmpty).toArray();
+            }
+        },
+        JAVA8_FOR_EACH {
+            @Override
+            Object split(List<String> lines) {
+                return ListToMapJava8Tests.listToMap8ForEach(lines, String::isEmpty);
+            }
+        },
+        JAVA8_COLLECTOR_OPTIMIZED {
+            @Override
+            Object split(List<String> lines) {
+                return ListToMapJava8Tests.listToMap8CollectorOptimized(lines, String::isEmpty);
+            }
+        },
+        JAVA8_EDGES {
+            @Override
+            Object split(List<String> lines) {
+                return ListToMapJava8Tests.listToMap8Edges(lines, String::isEmpty);
+            }
+        },
+        SECTIONS {
+            @Override
+            Object split(List<String> lines) {
+                return lines.stream().collect(SectionCollector.toSectionMap(String::isEmpty));
+            }
+        },
+        SECTIONS_PARALLEL {
+            @Override
+            Object split(List<String> lines) {
+                return lines.parallelStream().collect(SectionCollector.toSectionMap(String::isEmpty));
+            }
+        };
+
+        abstract Object split(List<String> lines);
+    }
+
+    @Param
+    public Splitter splitter;
+
+    @Benchmark
+    public void split(LayoutFixture fixture, Blackhole blackhole) {
+        blackhole.consume(splitter.split(fixture.lines()));
+    }
+}
@@ -0,0 +1,86 @@
+package com.test.gmendes.stream.study.benchmark.stage;
+
+import com.test.gmendes.stream.study.benchmark.BenchmarkPath;
+import com.test.gmendes.stream.study.io.MappedFile;
+import com.test.gmendes.stream.study.java8.v2.ProcessJava8V2;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import com.test.gmendes.stream.study.resident.ResidentTable;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+
+/**
+ * Shared fixture holding one table preloaded in every form the stage suites start from: its compiled layout, its
+ * lines, its memory mapped file and its resident form. Everything is loaded once per trial, so each suite measures
+ * only its own stage.
+ *
+ * @author grmendes
+ */
+@State(Scope.Benchmark)
+public class TableFixture {
+
+    @Param({"tb_procedimento", "tb_cid", "rl_procedimento_ocupacao"})
+    public String table;
+
+    private String path;
+    private List<String> layoutLines;
+    private TableLayout layout;
+    private List<String> lines;
+    private MappedFile mapped;
+    private ResidentTable resident;
+
+    @Setup
+    public void setup() {
+        path = BenchmarkPath.get();
+        layoutLines = Collections.unmodifiableList(ProcessJava8V2.listToMap(
+                ProcessJava8V2.readFile(path, LAYOUT_FILE_BASE_NAME), String::isEmpty).get(table));
+        layout = TableLayout.compile(table, layoutLines);
+        lines = Collections.unmodifiableList(ProcessJava8V2.readFile(path, dataFile()));
+        mapped = MappedFile.readFile(path, dataFile());
+        resident = ResidentTable.load(mapped, layout, ResidentTable.DEFAULT_MAX_CARDINALITY);
+    }
+
+    /**
+     * @return Path to the Sigtap directory, always ending with the file separator.
+     */
+    public String path() {
+        return path;
+    }
+
+    /**
+     * @return Name of the table's data file.
+     */
+    public String dataFile() {
+        return table + TXT_EXTENSION;
+    }
+
+    /**
+     * @return Table's lines of layout.txt, including the header line.
+     */
+    public List<String> layoutLines() {
+        return layoutLines;
+    }
+
+    public TableLayout layout() {
+        return layout;
+    }
+
+    public List<String> lines() {
+        return lines;
+    }
+
+    public MappedFile mapped() {
+        return mapped;
+    }
+
+    public ResidentTable resident() {
+        return resident;
+    }
+}
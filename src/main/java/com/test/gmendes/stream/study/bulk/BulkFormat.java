@@ -0,0 +1,173 @@
+package com.test.gmendes.stream.study.bulk;
+
+import com.test.gmendes.stream.study.layout.TableLayout;
+
+import static com.test.gmendes.stream.study.Constants.NULL;
+import static com.test.gmendes.stream.study.Constants.SEPARATOR;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * Text formats read by bulk loaders, which are much cheaper to load than one SQL insert per row.
+ * <p>
+ * Both formats write blank values as the unquoted {@link com.test.gmendes.stream.study.Constants#NULL} marker, the
+ * same convention as the SQL inserts, so the loader must be told about it, e.g. <code>NULL 'NULL'</code>. A value which
+ * is the marker itself is escaped, so it's still loaded as text.
+ *
+ * @author grmendes
+ */
+public enum BulkFormat {
+
+    /**
+     * PostgreSQL COPY text format: one <code>COPY ... FROM STDIN</code> command, followed by the rows, with values
+     * separated by tabs, and the <code>\.</code> end marker. Rows are written as ISO-8859-1 bytes, which the command
+     * declares as <code>ENCODING 'LATIN1'</code>, so the output can be run as is by psql whatever its client encoding.
+     */
+    COPY_TEXT(".copy", '\t', "\n") {
+        @Override
+        String header(TableLayout layout) {
+            return "COPY " + layout.name() + " (" + columns(layout) + ") FROM STDIN WITH (FORMAT text, NULL '" + NULL
+                    + "', ENCODING 'LATIN1');";
+        }
+
+        @Override
+        String footer() {
+            return "\\.";
+        }
+
+        @Override
+        void writeValue(byte[] value, int start, int end, BulkWriter out) {
+            if (isNullMarker(value, start, end)) {
+                // The NULL marker is matched before backslashes are removed, so \NULL is loaded as the text NULL.
+                out.put((byte) '\\');
+            }
+            for (int i = start; i < end; i++) {
+                final byte b = value[i];
+                switch (b) {
+                    case '\\':
+                        out.put((byte) '\\').put((byte) '\\');
+                        break;
+                    case '\t':
+                        out.put((byte) '\\').put((byte) 't');
+                        break;
+                    case '\n':
+                        out.put((byte) '\\').put((byte) 'n');
+                        break;
+                    case '\r':
+                        out.put((byte) '\\').put((byte) 'r');
+                        break;
+                    default:
+                        out.put(b);
+                }
+            }
+        }
+    },
+
+    /**
+     * RFC 4180 CSV: a header record with the column names, followed by the rows, with CRLF line breaks. Values are
+     * quoted only when needed. Values are ISO-8859-1 bytes, so the file is loaded by e.g.
+     * <code>COPY t FROM 'file' WITH (FORMAT csv, HEADER, NULL 'NULL', ENCODING 'LATIN1')</code>.
+     */
+    CSV(".csv", ',', "\r\n") {
+        @Override
+        String header(TableLayout layout) {
+            return columns(layout);
+        }
+
+        @Override
+        String footer() {
+            return null;
+        }
+
+        @Override
+        void writeValue(byte[] value, int start, int end, BulkWriter out) {
+            boolean quoted = isNullMarker(value, start, end);
+            for (int i = start; i < end && !quoted; i++) {
+                final byte b = value[i];
+                quoted = b == ',' || b == '"' || b == '\n' || b == '\r';
+            }
+            if (!quoted) {
+                out.put(value, start, end);
+                return;
+            }
+            out.put((byte) '"');
+            for (int i = start; i < end; i++) {
+                if (value[i] == '"') {
+                    out.put((byte) '"');
+                }
+                out.put(value[i]);
+            }
+            out.put((byte) '"');
+        }
+    };
+
+    static final byte[] NULL_MARKER = NULL.getBytes(ISO_8859_1);
+
+    private final String extension;
+    private final char delimiter;
+    private final String lineSeparator;
+
+    BulkFormat(String extension, char delimiter, String lineSeparator) {
+        this.extension = extension;
+        this.delimiter = delimiter;
+        this.lineSeparator = lineSeparator;
+    }
+
+    /**
+     * @return Extension of the output files, e.g. <code>.csv</code>.
+     */
+    public String extension() {
+        return extension;
+    }
+
+    char delimiter() {
+        return delimiter;
+    }
+
+    String lineSeparator() {
+        return lineSeparator;
+    }
+
+    /**
+     * @param layout Layout of the table.
+     * @return Line written before the table's rows.
+     */
+    abstract String header(TableLayout layout);
+
+    /**
+     * @return Line written after the table's rows, or null if there's none.
+     */
+    abstract String footer();
+
+    /**
+     * Writes a value, which is not NULL, escaped as the format requires.
+     *
+     * @param value Array holding the value's ISO-8859-1 bytes.
+     * @param start Position of the value's first byte.
+     * @param end   Position after the value's last byte.
+     * @param out   Writer of the output.
+     */
+    abstract void writeValue(byte[] value, int start, int end, BulkWriter out);
+
+    private static String columns(TableLayout layout) {
+        final StringBuilder columns = new StringBuilder();
+        for (int i = 0; i < layout.columnCount(); i++) {
+            if (i > 0) {
+                columns.append(SEPARATOR);
+            }
+            columns.append(layout.column(i));
+        }
+        return columns.toString();
+    }
+
+    private static boolean isNullMarker(byte[] value, int start, int end) {
+        if (end - start != NULL_MARKER.length) {
+            return false;
+        }
+        for (int i = 0; i < NULL_MARKER.length; i++) {
+            if (value[start + i] != NULL_MARKER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,191 @@
+package com.test.gmendes.stream.study.bulk;
+
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.function.IntFunction;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Writes tables into a channel in a {@link BulkFormat}, instead of SQL inserts.
+ * <p>
+ * Values go straight from the rows' bytes into a fixed size output array, which is written to the channel every time
+ * it gets full: no char is decoded and no String is created per value. Values are cut by the same rules as the SQL
+ * literals of their {@link com.test.gmendes.stream.study.layout.ColumnType}: VARCHAR2 with no trailing whitespaces,
+ * NUMBER with no padding nor leading zeros, CHAR as is, and blank values as NULL.
+ * <p>
+ * Writers are not thread safe. Tables are written in parallel by using one writer, and one file, for each table.
+ *
+ * @author grmendes
+ */
+public final class BulkWriter implements AutoCloseable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final BulkFormat format;
+    private final byte[] buffer;
+    private final byte[] lineSeparator;
+    private int position;
+
+    public BulkWriter(WritableByteChannel channel, BulkFormat format) {
+        this(channel, format, DEFAULT_BUFFER_SIZE);
+    }
+
+    public BulkWriter(WritableByteChannel channel, BulkFormat format, int bufferSize) {
+        this.channel = channel;
+        this.format = format;
+        this.buffer = new byte[bufferSize];
+        this.lineSeparator = format.lineSeparator().getBytes(ISO_8859_1);
+    }
+
+    /**
+     * Creates a writer to a file. The file is created if needed, or truncated if it already exists.
+     *
+     * @param file   Path to the output file.
+     * @param format Format of the output.
+     * @return BulkWriter writing to the file.
+     * @throws UncheckedIOException if the file can't be opened.
+     */
+    public static BulkWriter toFile(Path file, BulkFormat format) {
+        try {
+            return new BulkWriter(FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE), format);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes all rows of a table, in order, between the format's header and footer.
+     *
+     * @param layout   Layout of the table.
+     * @param rowCount Amount of rows of the table.
+     * @param rows     Function pointing a cursor to the row with the given index.
+     * @return Amount of rows written.
+     * @throws UncheckedIOException if the output can't be written.
+     */
+    public int write(TableLayout layout, int rowCount, IntFunction<RowCursor> rows) {
+        writeLine(format.header(layout));
+        for (int row = 0; row < rowCount; row++) {
+            writeRow(rows.apply(row));
+        }
+        final String footer = format.footer();
+        if (footer != null) {
+            writeLine(footer);
+        }
+        return rowCount;
+    }
+
+    private void writeRow(RowCursor row) {
+        final TableLayout layout = row.layout();
+        for (int column = 0; column < layout.columnCount(); column++) {
+            if (column > 0) {
+                put((byte) format.delimiter());
+            }
+            final byte[] value = row.bytes(column);
+            int start = 0;
+            int end = layout.end(column) - layout.start(column);
+            while (end > 0 && (value[end - 1] & 0xFF) <= ' ') {
+                end--;
+            }
+            if (end == 0) {
+                put(BulkFormat.NULL_MARKER, 0, BulkFormat.NULL_MARKER.length);
+                continue;
+            }
+            switch (layout.type(column)) {
+                case NUMBER:
+                    while (value[start] == ' ') {
+                        start++;
+                    }
+                    if (isDigits(value, start, end)) {
+                        // The last digit is always kept, so zero is written as 0.
+                        while (start < end - 1 && value[start] == '0') {
+                            start++;
+                        }
+                    }
+                    break;
+                case CHAR:
+                    end = layout.end(column) - layout.start(column);
+                    break;
+                default:
+                    break;
+            }
+            format.writeValue(value, start, end, this);
+        }
+        put(lineSeparator, 0, lineSeparator.length);
+    }
+
+    private static boolean isDigits(byte[] value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (value[i] < '0' || value[i] > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeLine(String line) {
+        final byte[] bytes = line.getBytes(ISO_8859_1);
+        put(bytes, 0, bytes.length);
+        put(lineSeparator, 0, lineSeparator.length);
+    }
+
+    BulkWriter put(byte b) {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = b;
+        return this;
+    }
+
+    BulkWriter put(byte[] bytes, int start, int end) {
+        while (start < end) {
+            if (position == buffer.length) {
+                drain();
+            }
+            final int length = Math.min(end - start, buffer.length - position);
+            System.arraycopy(bytes, start, buffer, position, length);
+            position += length;
+            start += length;
+        }
+        return this;
+    }
+
+    /**
+     * Writes all buffered bytes into the channel.
+     */
+    private void drain() {
+        final ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, position);
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        position = 0;
+    }
+
+    @Override
+    public void close() {
+        try {
+            drain();
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.test.gmendes.stream.study.collect;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+
+/**
+ * Collectors splitting a stream into sections delimited by separator elements, like the tables of layout.txt, which
+ * are separated by empty lines.
+ * <p>
+ * Unlike a <code>reduce</code> with a mutable identity, these collectors are associative, so they are correct on
+ * parallel streams too. Each chunk of the stream is accumulated into three parts:
+ * <li>head: elements before the chunk's first separator, which may continue a section from the previous chunk.</li>
+ * <li>complete sections: sections with a separator on both sides, inside the chunk.</li>
+ * <li>tail: elements after the chunk's last separator, which may continue on the next chunk.</li>
+ * <p>
+ * Combining two chunks joins the left tail with the right head, so a section crossing a chunk boundary is rebuilt
+ * exactly as a sequential pass would build it.
+ * <p>
+ * Example:
+ * <li>input stream = ["Header", "1", "2", "", "Header2", "3"]</li>
+ * <li>separator = String::isEmpty</li>
+ * <li>sections = [["Header", "1", "2"], ["Header2", "3"]]</li>
+ * <li>section map = [{"Header", ["1", "2"]}, {"Header2", ["3"]}]</li>
+ *
+ * @author grmendes
+ */
+public final class SectionCollector {
+
+    private SectionCollector() {
+        // Private Default Constructor.
+    }
+
+    /**
+     * Collector splitting the elements into sections. Separators are not part of any section and empty sections are
+     * dropped.
+     *
+     * @param separator Predicate indicating the separator elements.
+     * @param <T>       Type of the stream's elements.
+     * @return Collector to a list of sections, in encounter order.
+     */
+    public static <T> Collector<T, ?, List<List<T>>> toSections(Predicate<? super T> separator) {
+        return Collector.of(() -> new Sections<T>(separator), Sections::accumulate, Sections::combine,
+                Sections::toList);
+    }
+
+    /**
+     * Collector splitting the elements into sections, using the first element of each section as its key.
+     *
+     * @param separator Predicate indicating the separator elements.
+     * @param <T>       Type of the stream's elements.
+     * @return Collector to a map with the first element of each section as key, and the others as value.
+     * @throws IllegalStateException if two sections have the same first element.
+     */
+    public static <T> Collector<T, ?, Map<T, List<T>>> toSectionMap(Predicate<? super T> separator) {
+        return Collector.of(() -> new Sections<T>(separator), Sections::accumulate, Sections::combine,
+                Sections::toMap);
+    }
+
+    /**
+     * Mutable accumulation of a chunk of the stream.
+     */
+    private static final class Sections<T> {
+
+        private final Predicate<? super T> separator;
+        private List<T> head = new ArrayList<>();
+        private List<List<T>> complete = new ArrayList<>();
+        private List<T> tail;
+
+        private Sections(Predicate<? super T> separator) {
+            this.separator = separator;
+        }
+
+        /**
+         * @return true if the chunk had at least one separator, in which case the tail is not null.
+         */
+        private boolean separated() {
+            return tail != null;
+        }
+
+        private void accumulate(T element) {
+            if (separator.test(element)) {
+                if (separated()) {
+                    complete.add(tail);
+                }
+                tail = new ArrayList<>();
+            } else if (separated()) {
+                tail.add(element);
+            } else {
+                head.add(element);
+            }
+        }
+
+        private Sections<T> combine(Sections<T> right) {
+            if (!right.separated()) {
+                (separated() ? tail : head).addAll(right.head);
+            } else if (!separated()) {
+                head.addAll(right.head);
+                complete = right.complete;
+                tail = right.tail;
+            } else {
+                tail.addAll(right.head);
+                complete.add(tail);
+                complete.addAll(right.complete);
+                tail = right.tail;
+            }
+            return this;
+        }
+
+        private List<List<T>> toList() {
+            final List<List<T>> sections = new ArrayList<>(complete.size() + 2);
+            addIfNotEmpty(sections, head);
+            for (List<T> section : complete) {
+                addIfNotEmpty(sections, section);
+            }
+            if (separated()) {
+                addIfNotEmpty(sections, tail);
+            }
+            return sections;
+        }
+
+        private Map<T, List<T>> toMap() {
+            final List<List<T>> sections = toList();
+            final Map<T, List<T>> map = new HashMap<>(sections.size() * 2);
+            for (List<T> section : sections) {
+                final T key = section.get(0);
+                if (map.put(key, section.subList(1, section.size())) != null) {
+                    throw new IllegalStateException(String.format("Duplicate key %s", key));
+                }
+            }
+            return map;
+        }
+
+        private static <T> void addIfNotEmpty(List<List<T>> sections, List<T> section) {
+            if (!section.isEmpty()) {
+                sections.add(section);
+            }
+        }
+    }
+}
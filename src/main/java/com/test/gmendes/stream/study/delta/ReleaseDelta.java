@@ -0,0 +1,176 @@
+package com.test.gmendes.stream.study.delta;
+
+import com.test.gmendes.stream.study.collect.SectionCollector;
+import com.test.gmendes.stream.study.io.MappedFile;
+import com.test.gmendes.stream.study.java8.v2.ProcessJava8V2;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import com.test.gmendes.stream.study.sink.InsertSink;
+import com.test.gmendes.stream.study.store.TableStore;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Generates only the statements needed to move a database from one Sigtap release (competência) to another, instead
+ * of inserting every row again: INSERT for new rows, UPDATE for changed rows and DELETE for removed rows.
+ * <p>
+ * Rows are matched by their primary key, made of code columns (CO_ prefix), see {@link TableDiff}. Each monthly release
+ * rewrites DT_COMPETENCIA into all rows, so this column is ignored by default: a row is only updated if anything else
+ * changed. Rows of tables whose columns changed between releases are all updated.
+ * <p>
+ * The memory used is bounded by the maximum amount of rows per pass. Bigger tables are compared in many passes, each
+ * one over a hash partition of the keys, see {@link TableDiff}. Tables of the same dependency level are compared in
+ * parallel, so up to one table per thread is held into memory.
+ *
+ * @author grmendes
+ */
+public class ReleaseDelta {
+
+    public static final String KEY_COLUMN_PREFIX = "CO_";
+    public static final Set<String> DEFAULT_IGNORED_COLUMNS = Collections.singleton("DT_COMPETENCIA");
+    public static final int DEFAULT_MAX_ROWS_PER_PASS = 50_000;
+
+    private final String oldPath;
+    private final String newPath;
+    private final Set<String> ignoredColumns;
+    private final int maxRowsPerPass;
+
+    /**
+     * @param oldPath Path to the data directory of the release currently loaded.
+     * @param newPath Path to the data directory of the release to be loaded.
+     */
+    public ReleaseDelta(String oldPath, String newPath) {
+        this(oldPath, newPath, DEFAULT_IGNORED_COLUMNS, DEFAULT_MAX_ROWS_PER_PASS);
+    }
+
+    /**
+     * @param oldPath        Path to the data directory of the release currently loaded.
+     * @param newPath        Path to the data directory of the release to be loaded.
+     * @param ignoredColumns Columns whose changes alone don't make a row to be updated.
+     * @param maxRowsPerPass Maximum amount of rows of each release kept into memory at the same time, for each table.
+     */
+    public ReleaseDelta(String oldPath, String newPath, Set<String> ignoredColumns, int maxRowsPerPass) {
+        this.oldPath = oldPath;
+        this.newPath = newPath;
+        this.ignoredColumns = ignoredColumns;
+        this.maxRowsPerPass = Math.max(maxRowsPerPass, 1);
+    }
+
+    /**
+     * Compares both releases, handing the statements to the sink. The sink is not closed by this method.
+     * <p>
+     * Statements are generated in the order foreign keys need: the DELETEs of all tables come first, from the tables
+     * referencing others to the ones they reference, and then the INSERTs and UPDATEs, from the referenced tables, like
+     * tb_procedimento, to the ones referencing them, like rl_procedimento_cid. See {@link #levels(Collection)}.
+     * Statements of tables of the same level may be interleaved.
+     *
+     * @param sink Destination of the statements.
+     * @return Summary of each table, sorted by name.
+     */
+    public List<TableDelta> execute(InsertSink sink) {
+        final Map<String, List<String>> oldTables = readLayout(oldPath);
+        final Map<String, List<String>> newTables = readLayout(newPath);
+        final Set<String> tableNames = new TreeSet<>(oldTables.keySet());
+        tableNames.addAll(newTables.keySet());
+
+        final List<TableDiff> diffs = tableNames.stream().map(tableName -> {
+            final List<String> oldLines = oldTables.get(tableName);
+            final List<String> newLines = newTables.get(tableName);
+            return new TableDiff(tableName,
+                    oldLines != null ? TableLayout.compile(tableName, oldLines) : null,
+                    newLines != null ? TableLayout.compile(tableName, newLines) : null,
+                    oldLines != null ? map(oldPath, tableName) : null,
+                    newLines != null ? map(newPath, tableName) : null,
+                    ignoredColumns, sink, maxRowsPerPass);
+        }).collect(toList());
+
+        final List<List<TableDiff>> levels = levels(diffs);
+        for (int level = levels.size() - 1; level >= 0; level--) {
+            levels.get(level).parallelStream().forEach(TableDiff::deletes);
+        }
+        for (List<TableDiff> level : levels) {
+            level.parallelStream().forEach(TableDiff::upserts);
+        }
+        return diffs.stream().map(TableDiff::delta).collect(toList());
+    }
+
+    /**
+     * Groups the tables by dependency level. A table depends on each tb_ table whose code, see
+     * {@link TableStore#primaryKey(String)}, it has as a column, or as the prefix of a column, like
+     * CO_PROCEDIMENTO_PRINCIPAL. Tables depending on no other one are at level 0, and any other table is one level
+     * above the highest table it depends on. Tables into a dependency cycle are put above all other ones.
+     *
+     * @param diffs Tables to be grouped.
+     * @return Tables of each level, from level 0 on.
+     */
+    private static List<List<TableDiff>> levels(Collection<TableDiff> diffs) {
+        final Map<String, String> primaryKeys = new HashMap<>();
+        for (TableDiff diff : diffs) {
+            if (diff.name().startsWith(TableStore.TABLE_PREFIX)) {
+                primaryKeys.put(TableStore.primaryKey(diff.name()), diff.name());
+            }
+        }
+        final Map<String, Set<String>> dependencies = new HashMap<>();
+        for (TableDiff diff : diffs) {
+            final Set<String> tables = new TreeSet<>();
+            for (String column : diff.layout().columns()) {
+                primaryKeys.forEach((primaryKey, table) -> {
+                    if (column.equals(primaryKey) || column.startsWith(primaryKey + "_")) {
+                        tables.add(table);
+                    }
+                });
+            }
+            tables.remove(diff.name());
+            dependencies.put(diff.name(), tables);
+        }
+
+        final Map<String, Integer> levelOf = new HashMap<>();
+        List<TableDiff> pending = new ArrayList<>(diffs);
+        final List<List<TableDiff>> levels = new ArrayList<>();
+        while (!pending.isEmpty()) {
+            final List<TableDiff> level = new ArrayList<>();
+            final List<TableDiff> next = new ArrayList<>();
+            for (TableDiff diff : pending) {
+                final boolean ready = dependencies.get(diff.name()).stream()
+                        .allMatch(table -> levelOf.getOrDefault(table, levels.size()) < levels.size());
+                (ready ? level : next).add(diff);
+            }
+            if (level.isEmpty()) { // Cycle: no table left is ready.
+                level.addAll(next);
+                next.clear();
+            }
+            level.forEach(diff -> levelOf.put(diff.name(), levels.size()));
+            levels.add(level);
+            pending = next;
+        }
+        return levels;
+    }
+
+    private static Map<String, List<String>> readLayout(String path) {
+        return ProcessJava8V2.readFile(path, LAYOUT_FILE_BASE_NAME).stream()
+                .collect(SectionCollector.toSectionMap(String::isEmpty));
+    }
+
+    /**
+     * Maps a table's data file. A table with no data file is taken as empty.
+     */
+    private static ByteBuffer map(String path, String tableName) {
+        if (!Files.exists(Paths.get(path, tableName + TXT_EXTENSION))) {
+            return null;
+        }
+        return MappedFile.map(path, tableName + TXT_EXTENSION);
+    }
+}
@@ -0,0 +1,83 @@
+package com.test.gmendes.stream.study.delta;
+
+/**
+ * Summary of the statements generated for one table by a {@link ReleaseDelta}.
+ *
+ * @author grmendes
+ */
+public final class TableDelta {
+
+    private final String name;
+    private final int oldRows;
+    private final int newRows;
+    private final int inserts;
+    private final int updates;
+    private final int deletes;
+    private final int passes;
+    private final boolean reloaded;
+
+    TableDelta(String name, int oldRows, int newRows, int inserts, int updates, int deletes, int passes,
+               boolean reloaded) {
+        this.name = name;
+        this.oldRows = oldRows;
+        this.newRows = newRows;
+        this.inserts = inserts;
+        this.updates = updates;
+        this.deletes = deletes;
+        this.passes = passes;
+        this.reloaded = reloaded;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int oldRows() {
+        return oldRows;
+    }
+
+    public int newRows() {
+        return newRows;
+    }
+
+    public int inserts() {
+        return inserts;
+    }
+
+    public int updates() {
+        return updates;
+    }
+
+    public int deletes() {
+        return deletes;
+    }
+
+    /**
+     * @return Amount of partitions of the keys. Both data files are read twice for each one, once for the DELETEs and
+     * once for the INSERTs and UPDATEs.
+     */
+    public int passes() {
+        return passes;
+    }
+
+    /**
+     * @return true if the table's columns changed between releases, so all its rows were written again: updated by key,
+     * or deleted as a whole and inserted again if its key columns changed too.
+     */
+    public boolean reloaded() {
+        return reloaded;
+    }
+
+    /**
+     * @return true if no statement was generated for the table.
+     */
+    public boolean unchanged() {
+        return !reloaded && inserts == 0 && updates == 0 && deletes == 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-30s old=%-7d new=%-7d insert=%-7d update=%-7d delete=%-7d passes=%d%s", name, oldRows,
+                newRows, inserts, updates, deletes, passes, reloaded ? " reloaded" : "");
+    }
+}
@@ -0,0 +1,494 @@
+package com.test.gmendes.stream.study.delta;
+
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import com.test.gmendes.stream.study.sink.InsertSink;
+import com.test.gmendes.stream.study.store.TableStore;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.test.gmendes.stream.study.Constants.SEPARATOR;
+
+/**
+ * Row level comparison of one table between two releases.
+ * <p>
+ * Rows are matched by their primary key. To keep the memory bounded, keys are hash partitioned and both data files are
+ * read once for each partition: only the rows of the current partition are kept into memory, as offsets into the
+ * memory mapped files. Values are compared straight from the files' bytes.
+ * <p>
+ * A tb_ table is keyed by its own code, see {@link TableStore#primaryKey(String)}, together with the codes stored
+ * before it into the row, which are the parents of hierarchical codes, e.g. CO_GRUPO and CO_SUB_GRUPO of tb_sub_grupo.
+ * Its other codes, like CO_FINANCIAMENTO of tb_procedimento, are foreign codes compared as any other value, so a row
+ * whose foreign code changed is updated, and the rows referencing it are never left without their master row. Other
+ * tables are keyed by all their codes. DELETEs and the INSERTs and UPDATEs are generated by separate calls,
+ * {@link #deletes()} then {@link #upserts()}, so {@link ReleaseDelta} can run the deletes of all tables before any
+ * insert. This costs a second read of each partition: a delete pass, then an insert and update pass.
+ * <p>
+ * A table whose columns changed is still compared by key, as long as its key columns exist into both releases: rows
+ * kept are updated with all their new values. Only a table whose key changed too is deleted as a whole and inserted
+ * again.
+ * <p>
+ * Values are compared with their trailing whitespaces removed, so a column which only got wider is not a change.
+ *
+ * @author grmendes
+ */
+final class TableDiff {
+
+    /**
+     * Separates the key columns' values into a row's key.
+     */
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final String name;
+    private final TableLayout oldLayout;
+    private final TableLayout newLayout;
+    private final ByteBuffer oldData;
+    private final ByteBuffer newData;
+    /**
+     * Key columns into the new layout, or into the old one for a removed table.
+     */
+    private final int[] keyColumns;
+    /**
+     * The same key columns into the old layout, or null if any of them is missing from it.
+     */
+    private final int[] oldKeyColumns;
+    private final boolean[] compared;
+    private final InsertSink sink;
+    private final TableLayout layout;
+    /**
+     * true if the table's columns changed, or if the table was removed.
+     */
+    private final boolean reloaded;
+    /**
+     * true if the table is deleted as a whole instead of row by row: removed, or reloaded with a different key.
+     */
+    private final boolean wholeTable;
+    private final int passes;
+
+    private int inserts;
+    private int updates;
+    private int deletes;
+
+    /**
+     * @param name           The table name.
+     * @param oldLayout      Layout of the table into the old release, or null if the table didn't exist.
+     * @param newLayout      Layout of the table into the new release, or null if the table doesn't exist anymore.
+     * @param oldData        Data of the old release, or null if there's none.
+     * @param newData        Data of the new release, or null if there's none.
+     * @param ignoredColumns Columns whose changes alone don't make a row to be updated.
+     * @param sink           Destination of the statements.
+     * @param maxRowsPerPass Maximum amount of rows of each release kept into memory at the same time.
+     */
+    TableDiff(String name, TableLayout oldLayout, TableLayout newLayout, ByteBuffer oldData, ByteBuffer newData,
+              Set<String> ignoredColumns, InsertSink sink, int maxRowsPerPass) {
+        this.name = name;
+        this.oldLayout = oldLayout;
+        this.newLayout = newLayout;
+        this.oldData = oldData != null ? oldData : ByteBuffer.allocate(0);
+        this.newData = newData != null ? newData : ByteBuffer.allocate(0);
+        this.sink = sink;
+
+        final TableLayout keyLayout = newLayout != null ? newLayout : oldLayout;
+        this.keyColumns = keyColumns(name, keyLayout, ignoredColumns);
+        this.compared = new boolean[keyLayout.columnCount()];
+        for (int i = 0; i < compared.length; i++) {
+            compared[i] = !ignoredColumns.contains(keyLayout.column(i));
+        }
+        for (int keyColumn : keyColumns) {
+            compared[keyColumn] = false;
+        }
+
+        this.layout = oldLayout != null ? oldLayout : newLayout;
+        this.oldKeyColumns = columnsOf(keyLayout, keyColumns, layout);
+        this.reloaded = newLayout == null || (oldLayout != null && !oldLayout.columns().equals(newLayout.columns()));
+        this.wholeTable = newLayout == null || oldKeyColumns == null;
+        if (wholeTable) {
+            this.passes = 1;
+        } else {
+            final long maxRows = Math.max(this.oldData.limit() / (layout.width() + 1L),
+                    this.newData.limit() / (newLayout.width() + 1L));
+            this.passes = (int) Math.max(1, (maxRows + maxRowsPerPass - 1) / Math.max(maxRowsPerPass, 1));
+        }
+    }
+
+    /**
+     * Finds the primary key of a table. Sigtap layouts don't declare keys, but the codes (CO_ columns) of each table
+     * identify its rows: the tb_ table's own code and its parents, see the class comment, or all codes of any other
+     * table. A table with no codes is keyed by all its columns, so its rows are only inserted or deleted.
+     */
+    private static int[] keyColumns(String name, TableLayout layout, Set<String> ignoredColumns) {
+        final int primaryKey = name.startsWith(TableStore.TABLE_PREFIX)
+                ? layout.indexOf(TableStore.primaryKey(name)) : -1;
+        int[] keyColumns = new int[layout.columnCount()];
+        int count = 0;
+        for (int i = 0; i < layout.columnCount(); i++) {
+            if (layout.column(i).startsWith(ReleaseDelta.KEY_COLUMN_PREFIX)
+                    && (primaryKey < 0 || layout.start(i) <= layout.start(primaryKey))) {
+                keyColumns[count++] = i;
+            }
+        }
+        if (count == 0) {
+            for (int i = 0; i < layout.columnCount(); i++) {
+                if (!ignoredColumns.contains(layout.column(i))) {
+                    keyColumns[count++] = i;
+                }
+            }
+        }
+        return Arrays.copyOf(keyColumns, count);
+    }
+
+    /**
+     * @return Indexes of the same columns into another layout, or null if any of them is missing from it.
+     */
+    private static int[] columnsOf(TableLayout layout, int[] columns, TableLayout other) {
+        final int[] otherColumns = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            otherColumns[i] = other.indexOf(layout.column(columns[i]));
+            if (otherColumns[i] < 0) {
+                return null;
+            }
+        }
+        return otherColumns;
+    }
+
+    /**
+     * @return Name of the table.
+     */
+    String name() {
+        return name;
+    }
+
+    /**
+     * @return Layout of the table into the new release, or into the old one if the table doesn't exist anymore.
+     */
+    TableLayout layout() {
+        return newLayout != null ? newLayout : oldLayout;
+    }
+
+    /**
+     * Writes the DELETEs of the table into the sink. A table removed, or whose key columns changed, is deleted as a
+     * whole.
+     */
+    void deletes() {
+        if (wholeTable) {
+            sink.accept("DELETE FROM " + name + ";");
+            if (newLayout == null) {
+                deletes = countRows(oldData);
+            }
+            return;
+        }
+        for (int pass = 0; pass < passes; pass++) {
+            compare(pass, true, false);
+        }
+    }
+
+    /**
+     * Writes the INSERTs and UPDATEs of the table into the sink. Must be called after {@link #deletes()}.
+     */
+    void upserts() {
+        if (newLayout == null) {
+            return;
+        }
+        if (wholeTable) {
+            final RowCursor cursor = new RowCursor(newLayout);
+            forEachRow(newData, (offset, length) -> insert(cursor.wrap(newData, offset, length)));
+            return;
+        }
+        for (int pass = 0; pass < passes; pass++) {
+            compare(pass, false, true);
+        }
+    }
+
+    /**
+     * @return Summary of the statements generated.
+     */
+    TableDelta delta() {
+        return new TableDelta(name, countRows(oldData), countRows(newData), inserts, updates, deletes, passes,
+                reloaded);
+    }
+
+    /**
+     * Compares one partition of the keys.
+     *
+     * @param deletes true to generate the partition's DELETEs.
+     * @param upserts true to generate the partition's INSERTs and UPDATEs, after its DELETEs.
+     */
+    private void compare(int pass, boolean deletes, boolean upserts) {
+        final Map<String, int[]> oldPartition = new HashMap<>();
+        load(oldData, layout, oldKeyColumns, pass, oldPartition);
+        final Map<String, int[]> newPartition = new HashMap<>();
+        load(newData, newLayout, keyColumns, pass, newPartition);
+        final RowCursor oldCursor = new RowCursor(layout);
+        final RowCursor newCursor = new RowCursor(newLayout);
+        if (deletes) {
+            deletes(oldPartition, oldCursor, newPartition, newCursor);
+        }
+        if (upserts) {
+            upserts(oldPartition, oldCursor, newPartition, newCursor);
+        }
+    }
+
+    /**
+     * Keeps the rows of one partition into a map, by key. Each value holds the offset and length of all rows with the
+     * key, which is more than one row only for tables with duplicated keys.
+     */
+    private void load(ByteBuffer data, TableLayout layout, int[] keyColumns, int pass, Map<String, int[]> partition) {
+        final RowCursor cursor = new RowCursor(layout);
+        final StringBuilder key = new StringBuilder();
+        forEachRow(data, (offset, length) -> {
+            cursor.wrap(data, offset, length);
+            if (passes > 1 && Math.floorMod(keyHash(cursor, keyColumns), passes) != pass) {
+                return;
+            }
+            key.setLength(0);
+            for (int keyColumn : keyColumns) {
+                appendTrimmed(cursor, keyColumn, key).append(KEY_SEPARATOR);
+            }
+            final int[] rows = partition.get(key.toString());
+            if (rows == null) {
+                partition.put(key.toString(), new int[]{offset, length});
+            } else {
+                final int[] moreRows = Arrays.copyOf(rows, rows.length + 2);
+                moreRows[rows.length] = offset;
+                moreRows[rows.length + 1] = length;
+                partition.put(key.toString(), moreRows);
+            }
+        });
+    }
+
+    /**
+     * Deletes the keys removed from the partition, and the duplicated keys whose rows are replaced.
+     */
+    private void deletes(Map<String, int[]> oldPartition, RowCursor oldCursor, Map<String, int[]> newPartition,
+                         RowCursor newCursor) {
+        for (Map.Entry<String, int[]> entry : oldPartition.entrySet()) {
+            final int[] oldRows = entry.getValue();
+            final int[] newRows = newPartition.get(entry.getKey());
+            if (newRows == null || (isDuplicated(oldRows, newRows)
+                    && !sameRows(oldRows, oldCursor, newRows, newCursor))) {
+                delete(oldCursor.wrap(oldData, oldRows[0], oldRows[1]));
+            }
+        }
+    }
+
+    /**
+     * Inserts the keys added to the partition and the rows of the replaced duplicated keys, and updates the changed
+     * rows.
+     */
+    private void upserts(Map<String, int[]> oldPartition, RowCursor oldCursor, Map<String, int[]> newPartition,
+                         RowCursor newCursor) {
+        for (Map.Entry<String, int[]> entry : newPartition.entrySet()) {
+            final int[] newRows = entry.getValue();
+            final int[] oldRows = oldPartition.get(entry.getKey());
+            if (oldRows == null) {
+                for (int i = 0; i < newRows.length; i += 2) {
+                    insert(newCursor.wrap(newData, newRows[i], newRows[i + 1]));
+                }
+            } else if (!isDuplicated(oldRows, newRows)) {
+                oldCursor.wrap(oldData, oldRows[0], oldRows[1]);
+                newCursor.wrap(newData, newRows[0], newRows[1]);
+                if (!sameValues(oldCursor, newCursor)) {
+                    update(newCursor);
+                }
+            } else if (!sameRows(oldRows, oldCursor, newRows, newCursor)) {
+                // Duplicated keys can't be told apart by an update, so all rows of the key were deleted.
+                for (int i = 0; i < newRows.length; i += 2) {
+                    insert(newCursor.wrap(newData, newRows[i], newRows[i + 1]));
+                }
+            }
+        }
+    }
+
+    private static boolean isDuplicated(int[] oldRows, int[] newRows) {
+        return oldRows.length != 2 || newRows.length != 2;
+    }
+
+    /**
+     * @return true if no compared value changed. Rows of a table whose columns changed are always updated.
+     */
+    private boolean sameValues(RowCursor oldCursor, RowCursor newCursor) {
+        if (reloaded) {
+            return false;
+        }
+        for (int i = 0; i < compared.length; i++) {
+            if (compared[i] && !sameValue(oldCursor, newCursor, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares all rows with the same key as multisets, since their order into the files is meaningless.
+     */
+    private boolean sameRows(int[] oldRows, RowCursor oldCursor, int[] newRows, RowCursor newCursor) {
+        if (reloaded || oldRows.length != newRows.length) {
+            return false;
+        }
+        final List<String> oldValues = comparedValues(oldRows, oldData, oldCursor);
+        final List<String> newValues = comparedValues(newRows, newData, newCursor);
+        return oldValues.equals(newValues);
+    }
+
+    private List<String> comparedValues(int[] rows, ByteBuffer data, RowCursor cursor) {
+        final List<String> values = new ArrayList<>(rows.length / 2);
+        final StringBuilder value = new StringBuilder();
+        for (int i = 0; i < rows.length; i += 2) {
+            cursor.wrap(data, rows[i], rows[i + 1]);
+            value.setLength(0);
+            for (int column = 0; column < compared.length; column++) {
+                if (compared[column]) {
+                    appendTrimmed(cursor, column, value).append(KEY_SEPARATOR);
+                }
+            }
+            values.add(value.toString());
+        }
+        values.sort(null);
+        return values;
+    }
+
+    private void insert(RowCursor row) {
+        final StringBuilder insert = new StringBuilder(newLayout.insertPrefix());
+        for (int i = 0; i < newLayout.columnCount(); i++) {
+            if (i > 0) {
+                insert.append(SEPARATOR);
+            }
+            row.appendLiteral(i, insert);
+        }
+        sink.accept(insert.append(");"));
+        inserts++;
+    }
+
+    /**
+     * Updates all non key columns, including the ignored ones, since the row changed anyway.
+     */
+    private void update(RowCursor row) {
+        final StringBuilder update = new StringBuilder("UPDATE ").append(name).append(" SET ");
+        boolean first = true;
+        for (int i = 0; i < newLayout.columnCount(); i++) {
+            if (Arrays.binarySearch(keyColumns, i) < 0) {
+                if (!first) {
+                    update.append(SEPARATOR);
+                }
+                first = false;
+                row.appendLiteral(i, update.append(newLayout.column(i)).append('='));
+            }
+        }
+        sink.accept(appendWhere(row, keyColumns, update).append(';'));
+        updates++;
+    }
+
+    private void delete(RowCursor row) {
+        sink.accept(appendWhere(row, oldKeyColumns, new StringBuilder("DELETE FROM ").append(name)).append(';'));
+        deletes++;
+    }
+
+    private static StringBuilder appendWhere(RowCursor row, int[] keyColumns, StringBuilder statement) {
+        statement.append(" WHERE ");
+        for (int i = 0; i < keyColumns.length; i++) {
+            if (i > 0) {
+                statement.append(" AND ");
+            }
+            statement.append(row.layout().column(keyColumns[i]));
+            if (row.isNull(keyColumns[i])) {
+                statement.append(" IS NULL");
+            } else {
+                row.appendLiteral(keyColumns[i], statement.append('='));
+            }
+        }
+        return statement;
+    }
+
+    private static boolean sameValue(RowCursor oldCursor, RowCursor newCursor, int column) {
+        final int oldStart = oldCursor.layout().start(column);
+        final int newStart = newCursor.layout().start(column);
+        final int oldLength = trimmedEnd(oldCursor, column) - oldStart;
+        if (oldLength != trimmedEnd(newCursor, column) - newStart) {
+            return false;
+        }
+        for (int i = 0; i < oldLength; i++) {
+            if (oldCursor.charAt(oldStart + i) != newCursor.charAt(newStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hashes the key of a row with no String creation, so rows out of the current partition cost nothing but reading.
+     */
+    private static int keyHash(RowCursor cursor, int[] keyColumns) {
+        int hash = 1;
+        for (int keyColumn : keyColumns) {
+            final int end = trimmedEnd(cursor, keyColumn);
+            for (int i = cursor.layout().start(keyColumn); i < end; i++) {
+                hash = 31 * hash + cursor.charAt(i);
+            }
+            hash = 31 * hash + KEY_SEPARATOR;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static StringBuilder appendTrimmed(RowCursor cursor, int column, StringBuilder builder) {
+        final int end = trimmedEnd(cursor, column);
+        for (int i = cursor.layout().start(column); i < end; i++) {
+            builder.append(cursor.charAt(i));
+        }
+        return builder;
+    }
+
+    /**
+     * @return End of the column's value, ignoring trailing whitespaces and the line's end.
+     */
+    private static int trimmedEnd(RowCursor cursor, int column) {
+        final int start = cursor.layout().start(column);
+        int end = Math.min(cursor.layout().end(column), cursor.length());
+        while (end > start && cursor.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return Math.max(end, start);
+    }
+
+    private static int countRows(ByteBuffer data) {
+        return forEachRow(data, (offset, length) -> {
+        });
+    }
+
+    /**
+     * Calls the visitor for each row of the data, ignoring <code>\r</code> and blank lines.
+     *
+     * @return Amount of rows visited.
+     */
+    private static int forEachRow(ByteBuffer data, RowVisitor visitor) {
+        final int limit = data.limit();
+        int rows = 0;
+        int start = 0;
+        while (start < limit) {
+            int end = start;
+            while (end < limit && data.get(end) != '\n') {
+                end++;
+            }
+            final int next = end + 1;
+            if (end > start && data.get(end - 1) == '\r') {
+                end--;
+            }
+            if (end > start) {
+                visitor.visit(start, end - start);
+                rows++;
+            }
+            start = next;
+        }
+        return rows;
+    }
+
+    @FunctionalInterface
+    private interface RowVisitor {
+        void visit(int offset, int length);
+    }
+}
@@ -0,0 +1,173 @@
+package com.test.gmendes.stream.study.incremental;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * Identity of an input file at a given time: its size, its last modification time and a SHA-256 hash of its content.
+ * <p>
+ * Size and modification time are cheap to get, so they are checked first. The content is only hashed when they don't
+ * match, which avoids reading unchanged files while still ignoring files that were just touched or copied again.
+ *
+ * @author grmendes
+ */
+public final class FileFingerprint {
+
+    /**
+     * Fingerprint of a file that does not exist.
+     */
+    public static final FileFingerprint MISSING = new FileFingerprint(-1, -1, "");
+
+    private static final String SEPARATOR = ",";
+
+    private final long size;
+    private final long lastModified;
+    private final String hash;
+
+    private FileFingerprint(long size, long lastModified, String hash) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.hash = hash;
+    }
+
+    /**
+     * Reads the fingerprint of a file, hashing its whole content.
+     *
+     * @param file Path to the file.
+     * @return FileFingerprint of the file, or {@link #MISSING} if it does not exist.
+     * @throws UncheckedIOException if the file exists but can't be read.
+     */
+    public static FileFingerprint of(Path file) {
+        final BasicFileAttributes attributes = attributes(file);
+        if (attributes == null) {
+            return MISSING;
+        }
+        return new FileFingerprint(attributes.size(), attributes.lastModifiedTime().toMillis(), hash(file));
+    }
+
+    /**
+     * Checks if a file still matches this fingerprint. When size and modification time are the same, the file is
+     * assumed unchanged without reading it.
+     *
+     * @param file Path to the file.
+     * @return This fingerprint if the file is unchanged and was not touched, an updated fingerprint with the same hash
+     * if it was only touched, or null if its content changed.
+     */
+    public FileFingerprint check(Path file) {
+        final BasicFileAttributes attributes = attributes(file);
+        if (attributes == null) {
+            return size == MISSING.size ? this : null;
+        }
+        if (attributes.size() != size) {
+            return null;
+        }
+        final long modified = attributes.lastModifiedTime().toMillis();
+        if (modified == lastModified) {
+            return this;
+        }
+        return hash.equals(hash(file)) ? new FileFingerprint(size, modified, hash) : null;
+    }
+
+    private static BasicFileAttributes attributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String hash(Path file) {
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            final MessageDigest digest = sha256();
+            final byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = inputStream.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+            return hex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param content Content hashed.
+     * @return SHA-256 hash of the content, as hex digits, the same way as the files' ones.
+     */
+    static String hash(byte[] content) {
+        return hex(sha256().digest(content));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] digest) {
+        final StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * @param text Text written by {@link #toString()}.
+     * @return FileFingerprint read from the text, or null if it's malformed.
+     */
+    public static FileFingerprint parse(String text) {
+        final String[] parts = text.split(SEPARATOR, -1);
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            return new FileFingerprint(Long.parseLong(parts[0]), Long.parseLong(parts[1]), parts[2]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long lastModified() {
+        return lastModified;
+    }
+
+    public String hash() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FileFingerprint)) {
+            return false;
+        }
+        final FileFingerprint other = (FileFingerprint) o;
+        return size == other.size && lastModified == other.lastModified && hash.equals(other.hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, lastModified, hash);
+    }
+
+    @Override
+    public String toString() {
+        return size + SEPARATOR + lastModified + SEPARATOR + hash;
+    }
+}
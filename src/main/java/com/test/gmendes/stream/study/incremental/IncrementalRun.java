@@ -0,0 +1,223 @@
+package com.test.gmendes.stream.study.incremental;
+
+import com.test.gmendes.stream.study.layout.TableLayout;
+import com.test.gmendes.stream.study.sink.ChannelInsertSink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Incremental generation of the inserts. Each table's inserts are written to their own <code>TABLE_NAME.sql</code>
+ * file into an output directory, and a manifest with the fingerprint of each table's inputs is kept there as well:
+ * its data file, its own layout file and the hash of its section of layout.txt, which is the layout the inserts are
+ * generated from. On the next run, only the tables whose inputs changed are processed again; the output files of all
+ * other tables are reused as they are, and the ones of tables removed from layout.txt are deleted.
+ * <p>
+ * The manifest also records an output key, chosen by the caller, which describes how the inserts are generated. If it
+ * changes (e.g. another output format, or a new {@link #INSERT_FORMAT_VERSION}), every table is processed again.
+ * <p>
+ * Output files are written into a temporary file and moved over the previous one only when complete, so a failed run
+ * never leaves a partial output file behind a valid manifest entry.
+ *
+ * @author grmendes
+ */
+public class IncrementalRun {
+
+    public static final String MANIFEST_FILE_NAME = "manifest.properties";
+    public static final String SQL_EXTENSION = ".sql";
+    /**
+     * Version of the SQL text generated for each row, i.e. {@link TableLayout#insertPrefix()} and
+     * {@link com.test.gmendes.stream.study.layout.RowCursor#appendLiteral(int, StringBuilder)}. It must be increased
+     * whenever any of them changes, so outputs written by older versions are not reused.
+     */
+    public static final int INSERT_FORMAT_VERSION = 1;
+    /**
+     * Output key of one SQL insert per row, as generated by the default execution of every version.
+     */
+    public static final String INSERT_OUTPUT = "insert/" + INSERT_FORMAT_VERSION;
+
+    private static final String OUTPUT_KEY = "output";
+    private static final String DATA_SUFFIX = ".data";
+    private static final String LAYOUT_SUFFIX = ".layout";
+    private static final String SECTION_SUFFIX = ".section";
+
+    private final String path;
+    private final Path outputDirectory;
+    private final String outputKey;
+
+    /**
+     * @param path            Path to the data directory.
+     * @param outputDirectory Directory of the output files and of the manifest. Created if needed.
+     * @param outputKey       Description of how inserts are generated. Tables are all processed again if it changes.
+     */
+    public IncrementalRun(String path, Path outputDirectory, String outputKey) {
+        this.path = path;
+        this.outputDirectory = outputDirectory;
+        this.outputKey = outputKey;
+    }
+
+    /**
+     * Processes the tables whose inputs changed since the last run, in parallel, and deletes the output files of the
+     * tables of the last run which are gone. The manifest is written at the end, with the fingerprints of all tables,
+     * processed or not.
+     *
+     * @param tables  Section of layout.txt of each table, by table name, with or without the name's line.
+     * @param inserts Generates the inserts of a table. Written in the stream's encounter order, so the stream must be
+     *                ordered, e.g. rows in file order, for the output to be the same on every run.
+     * @return Names of the tables processed by this run, sorted.
+     * @throws UncheckedIOException if an output file can't be written or deleted.
+     */
+    public List<String> run(Map<String, List<String>> tables, Function<String, Stream<String>> inserts) {
+        createOutputDirectory();
+        final Map<String, String> previous = loadManifest();
+        final boolean sameOutput = outputKey.equals(previous.get(OUTPUT_KEY));
+        final Map<String, String> manifest = new ConcurrentHashMap<>();
+        manifest.put(OUTPUT_KEY, outputKey);
+
+        final List<String> processed = tables.entrySet().parallelStream().filter(entry -> {
+            final String table = entry.getKey();
+            final Path dataFile = Paths.get(path, table + TXT_EXTENSION);
+            final Path layoutFile = Paths.get(path, table + "_" + LAYOUT_FILE_BASE_NAME);
+            final Path outputFile = outputDirectory.resolve(table + SQL_EXTENSION);
+            final String section = sectionHash(table, entry.getValue());
+
+            if (sameOutput && section.equals(previous.get(table + SECTION_SUFFIX)) && Files.exists(outputFile)) {
+                final FileFingerprint data = check(previous.get(table + DATA_SUFFIX), dataFile);
+                final FileFingerprint layout = check(previous.get(table + LAYOUT_SUFFIX), layoutFile);
+                if (data != null && layout != null) {
+                    manifest.put(table + DATA_SUFFIX, data.toString());
+                    manifest.put(table + LAYOUT_SUFFIX, layout.toString());
+                    manifest.put(table + SECTION_SUFFIX, section);
+                    return false;
+                }
+            }
+
+            // Fingerprints are taken before processing, so a file changed while it's read is processed again later.
+            final FileFingerprint data = FileFingerprint.of(dataFile);
+            final FileFingerprint layout = FileFingerprint.of(layoutFile);
+            write(outputFile, inserts.apply(table));
+            manifest.put(table + DATA_SUFFIX, data.toString());
+            manifest.put(table + LAYOUT_SUFFIX, layout.toString());
+            manifest.put(table + SECTION_SUFFIX, section);
+            return true;
+        }).map(Map.Entry::getKey).sorted().collect(toList());
+
+        deleteRemoved(previous, tables.keySet());
+        saveManifest(manifest);
+        return processed;
+    }
+
+    /**
+     * Hashes a table's section of layout.txt, skipping the table's name, so callers may pass the section either way.
+     */
+    private static String sectionHash(String table, List<String> section) {
+        final List<String> lines = !section.isEmpty() && table.equals(section.get(0))
+                ? section.subList(1, section.size()) : section;
+        return FileFingerprint.hash(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Deletes the output files of the tables of the previous manifest which are not processed anymore. Files of
+     * tables never recorded into the manifest are not touched.
+     */
+    private void deleteRemoved(Map<String, String> previous, Set<String> tables) {
+        for (String key : previous.keySet()) {
+            if (!key.endsWith(DATA_SUFFIX)) {
+                continue;
+            }
+            final String table = key.substring(0, key.length() - DATA_SUFFIX.length());
+            if (!tables.contains(table)) {
+                try {
+                    Files.deleteIfExists(outputDirectory.resolve(table + SQL_EXTENSION));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    private static FileFingerprint check(String previous, Path file) {
+        final FileFingerprint fingerprint = previous == null ? null : FileFingerprint.parse(previous);
+        return fingerprint == null ? null : fingerprint.check(file);
+    }
+
+    /**
+     * Writes a table's inserts in the stream's encounter order, even for a parallel stream, so the same inputs always
+     * give the same file.
+     */
+    private void write(Path outputFile, Stream<String> inserts) {
+        final Path tempFile = outputFile.resolveSibling(outputFile.getFileName() + ".tmp");
+        try (ChannelInsertSink sink = ChannelInsertSink.toFile(tempFile); Stream<String> stream = inserts) {
+            stream.forEachOrdered(sink::accept);
+        }
+        try {
+            Files.move(tempFile, outputFile, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void createOutputDirectory() {
+        try {
+            Files.createDirectories(outputDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, String> loadManifest() {
+        final Path manifestFile = outputDirectory.resolve(MANIFEST_FILE_NAME);
+        if (!Files.exists(manifestFile)) {
+            return Collections.emptyMap();
+        }
+        final Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(manifestFile)) {
+            properties.load(inputStream);
+        } catch (Exception e) {
+            // A broken manifest just means that every table is processed again.
+            e.printStackTrace();
+            return Collections.emptyMap();
+        }
+        final Map<String, String> manifest = new ConcurrentHashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            manifest.put(key, properties.getProperty(key));
+        }
+        return manifest;
+    }
+
+    private void saveManifest(Map<String, String> manifest) {
+        final Properties properties = new Properties();
+        properties.putAll(manifest);
+        final Path manifestFile = outputDirectory.resolve(MANIFEST_FILE_NAME);
+        final Path tempFile = outputDirectory.resolve(MANIFEST_FILE_NAME + ".tmp");
+        try {
+            try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                properties.store(outputStream, "Input files of each table: size,last modified,sha-256. "
+                        + "Sections of layout.txt: sha-256");
+            }
+            Files.move(tempFile, manifestFile, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
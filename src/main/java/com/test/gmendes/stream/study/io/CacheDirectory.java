@@ -0,0 +1,37 @@
+package com.test.gmendes.stream.study.io;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Directory of the files derived from a data directory, like layout validations and snapshots, so the data directory
+ * itself is only read, and may be read only.
+ * <p>
+ * The root directory is received by the <code>-Dcache=/path/to/cache</code> argument, and defaults to a
+ * <code>stream_study_cache</code> folder into <code>java.io.tmpdir</code>. Each data directory gets its own folder into
+ * the root, named after the data directory and a hash of its absolute path, e.g. <code>Sigtap-1a2b3c4d</code>.
+ *
+ * @author grmendes
+ */
+public final class CacheDirectory {
+
+    public static final String CACHE_PROPERTY = "cache";
+    public static final String DEFAULT_DIRECTORY_NAME = "stream_study_cache";
+
+    private CacheDirectory() {
+        // Private default constructor.
+    }
+
+    /**
+     * @param path Path to the data directory.
+     * @return Cache directory of the data directory. It's not created by this method.
+     */
+    public static Path of(String path) {
+        final String cache = System.getProperty(CACHE_PROPERTY);
+        final Path root = cache == null || cache.isEmpty()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), DEFAULT_DIRECTORY_NAME) : Paths.get(cache);
+        final Path data = Paths.get(path).toAbsolutePath().normalize();
+        final String name = data.getFileName() != null ? data.getFileName().toString() : "root";
+        return root.resolve(name + "-" + String.format("%08x", data.toString().hashCode()));
+    }
+}
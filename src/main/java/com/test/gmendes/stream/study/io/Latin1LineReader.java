@@ -0,0 +1,104 @@
+package com.test.gmendes.stream.study.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Line reader specialized for ISO-8859-1 files, which skips the charset decoder.
+ * <p>
+ * ISO-8859-1 maps each byte to the char with the same value, so there's nothing to decode. Bytes are read in chunks
+ * into a reusable array, line breaks are found by a tight loop over it, and each line's bytes become a String at once.
+ * Strings are created by the <code>hibyte</code> constructor, which on compact strings JVMs just copies the Latin-1
+ * bytes, and on older ones widens them with no decoder involved.
+ * <p>
+ * Lines are split the same way as {@link Files#readAllLines}: by <code>\n</code>, <code>\r\n</code> or a lone
+ * <code>\r</code>, with no empty line after a final line break.
+ *
+ * @author grmendes
+ */
+public final class Latin1LineReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Latin1LineReader() {
+        // Private default constructor.
+    }
+
+    /**
+     * Reads all file lines.
+     *
+     * @param path     Path to the file.
+     * @param filename Name of the file.
+     * @return List of String with all file's lines.
+     */
+    public static List<String> readFile(String path, String filename) {
+        try (InputStream input = Files.newInputStream(Paths.get(path, filename))) {
+            return readLines(input);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return Collections.emptyList();
+    }
+
+    /**
+     * Reads all lines of a stream, which is not closed.
+     *
+     * @param input Stream with ISO-8859-1 content.
+     * @return List of String with all lines.
+     * @throws IOException if the stream can't be read.
+     */
+    public static List<String> readLines(InputStream input) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        // Bytes of the current line, already read, are kept from lineStart to end.
+        int end = 0;
+        boolean skipLineFeed = false;
+        int read;
+        while ((read = input.read(buffer, end, buffer.length - end)) != -1) {
+            final int limit = end + read;
+            int lineStart = 0;
+            for (int i = end; i < limit; i++) {
+                final byte b = buffer[i];
+                if (b == '\n' || b == '\r') {
+                    if (b == '\n' && skipLineFeed) {
+                        // Second half of a \r\n, whose line was already added.
+                        lineStart = i + 1;
+                    } else {
+                        lines.add(newString(buffer, lineStart, i));
+                        lineStart = i + 1;
+                    }
+                    skipLineFeed = b == '\r';
+                } else {
+                    skipLineFeed = false;
+                }
+            }
+            end = limit - lineStart;
+            if (lineStart == 0 && end == buffer.length) {
+                // A line longer than the buffer.
+                final byte[] larger = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, larger, 0, end);
+                buffer = larger;
+            } else {
+                System.arraycopy(buffer, lineStart, buffer, 0, end);
+            }
+        }
+        if (end > 0) {
+            lines.add(newString(buffer, 0, end));
+        }
+        return lines;
+    }
+
+    /**
+     * Creates a String from ISO-8859-1 bytes, with no decoding.
+     */
+    @SuppressWarnings("deprecation")
+    private static String newString(byte[] bytes, int start, int end) {
+        return new String(bytes, 0, start, end - start);
+    }
+}
@@ -0,0 +1,191 @@
+package com.test.gmendes.stream.study.io;
+
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+
+import java.nio.ByteBuffer;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Spliterator over the rows of a byte range of a memory mapped data file. Nothing is read up front: each split just
+ * narrows the byte range, so every fork-join task scans only its own chunk of the file.
+ * <p>
+ * Sigtap data files are fixed width, so when every row of the buffer has the same length the range is split by row
+ * index, with exact sizes ({@link #SIZED} and {@link #SUBSIZED}). Otherwise it's split at the middle byte, moved
+ * forward to the next line break, and sizes are estimated. The stride is proven once up front by looking at every
+ * line break of the buffer, so it never changes while rows are read.
+ * <p>
+ * Elements are {@link RowCursor}s owned by the spliterator and moved to the next row on every advance. They must be
+ * consumed right away and never kept. Each split gets its own cursor, so this is safe on parallel streams.
+ *
+ * @author grmendes
+ */
+public final class LineSpliterator implements Spliterator<RowCursor> {
+
+    /**
+     * Below this amount of bytes, ranges are not split anymore.
+     */
+    private static final int MIN_SPLIT_BYTES = 16 * 1024;
+
+    private final ByteBuffer buffer;
+    private final RowCursor cursor;
+    /**
+     * Length of each row including its line break, or 0 when rows don't have all the same length.
+     */
+    private int stride;
+    /**
+     * Current position: a row index when stride > 0, a byte offset otherwise.
+     */
+    private int position;
+    /**
+     * End of the range, exclusive. A row index when stride > 0, a byte offset otherwise. In bytes, rows belong to the
+     * range where they start, so the last one may end after the limit.
+     */
+    private int limit;
+
+    private LineSpliterator(ByteBuffer buffer, TableLayout layout, int stride, int position, int limit) {
+        this.buffer = buffer;
+        this.cursor = new RowCursor(layout);
+        this.stride = stride;
+        this.position = position;
+        this.limit = limit;
+    }
+
+    /**
+     * Creates a spliterator over all rows of a buffer.
+     *
+     * @param buffer Buffer with the content of a data file, ISO-8859-1 encoded.
+     * @param layout Layout of the table, used by the cursors.
+     * @return LineSpliterator over the whole buffer.
+     */
+    public static LineSpliterator of(ByteBuffer buffer, TableLayout layout) {
+        final int stride = fixedStride(buffer);
+        if (stride > 0) {
+            return new LineSpliterator(buffer, layout, stride, 0, (buffer.limit() + stride - 1) / stride);
+        }
+        return new LineSpliterator(buffer, layout, 0, 0, buffer.limit());
+    }
+
+    /**
+     * Creates a stream over the rows of a data file, which is memory mapped.
+     *
+     * @param path     Path to the file.
+     * @param filename Name of the file.
+     * @param layout   Layout of the table.
+     * @param parallel true for a parallel stream.
+     * @return Stream of cursors over the file's rows, or an empty stream if the file can't be read.
+     */
+    public static Stream<RowCursor> stream(String path, String filename, TableLayout layout, boolean parallel) {
+        final ByteBuffer buffer = MappedFile.map(path, filename);
+        if (buffer == null) {
+            return Stream.empty();
+        }
+        return StreamSupport.stream(of(buffer, layout), parallel);
+    }
+
+    /**
+     * Checks if all rows have the same length, by looking at every byte of the buffer: there must be a line break at
+     * the end of each row, and nowhere else. The last row may have no line break.
+     *
+     * @param buffer Buffer with the content of a data file.
+     * @return Length of a row including its line break, or 0 if rows don't have a fixed length.
+     */
+    private static int fixedStride(ByteBuffer buffer) {
+        final int size = buffer.limit();
+        int stride = 0;
+        while (stride < size && buffer.get(stride) != '\n') {
+            stride++;
+        }
+        stride++;
+        if (stride >= size) { // One row only, or no line break at all.
+            return 0;
+        }
+        if (size % stride != 0 && (size + 1) % stride != 0) {
+            return 0;
+        }
+        for (int i = stride, column = 0; i < size; i++, column++) {
+            if (column == stride) {
+                column = 0;
+            }
+            if ((buffer.get(i) == '\n') != (column == stride - 1)) {
+                return 0;
+            }
+        }
+        return stride;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super RowCursor> action) {
+        if (position >= limit) {
+            return false;
+        }
+        if (stride > 0) {
+            final int start = position * stride;
+            final int end = Math.min(start + stride - 1, buffer.limit());
+            position++;
+            wrap(start, end);
+        } else {
+            final int start = position;
+            int end = start;
+            while (end < buffer.limit() && buffer.get(end) != '\n') {
+                end++;
+            }
+            position = end + 1;
+            wrap(start, end);
+        }
+        action.accept(cursor);
+        return true;
+    }
+
+    private void wrap(int start, int end) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        cursor.wrap(buffer, start, end - start);
+    }
+
+    @Override
+    public Spliterator<RowCursor> trySplit() {
+        if (stride > 0) {
+            final int middle = (position + limit) >>> 1;
+            if ((long) (limit - position) * stride < MIN_SPLIT_BYTES || middle <= position) {
+                return null;
+            }
+            final LineSpliterator prefix = new LineSpliterator(buffer, cursor.layout(), stride, position, middle);
+            position = middle;
+            return prefix;
+        }
+
+        if (limit - position < MIN_SPLIT_BYTES) {
+            return null;
+        }
+        int middle = (position + limit) >>> 1;
+        while (middle < limit && buffer.get(middle - 1) != '\n') {
+            middle++;
+        }
+        if (middle >= limit) {
+            return null;
+        }
+        final LineSpliterator prefix = new LineSpliterator(buffer, cursor.layout(), 0, position, middle);
+        position = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        if (stride > 0 || position >= limit) {
+            return Math.max(limit - position, 0);
+        }
+        // Rows are expected to be at least as wide as the layout.
+        return (limit - position) / (cursor.layout().width() + 1) + 1;
+    }
+
+    @Override
+    public int characteristics() {
+        final int characteristics = ORDERED | NONNULL | IMMUTABLE;
+        return stride > 0 ? characteristics | SIZED | SUBSIZED : characteristics;
+    }
+}
@@ -0,0 +1,140 @@
+package com.test.gmendes.stream.study.io;
+
+import com.test.gmendes.stream.study.layout.RowCursor;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Read only view of a data file, backed by a {@link java.nio.MappedByteBuffer}.
+ * <p>
+ * The file is mapped once and its row boundaries are indexed, so any column of any row can be read straight from the
+ * file's bytes. No String is created until a value is actually requested. Files are expected to be encoded in
+ * ISO-8859-1, so every byte is exactly one char.
+ * <p>
+ * Rows are separated by <code>\n</code>. A <code>\r</code> preceding it is not considered part of the row.
+ * <p>
+ * Reading is done only by absolute operations over the buffer, so one instance can be shared by many threads.
+ *
+ * @author grmendes
+ */
+public final class MappedFile {
+
+    private static final MappedFile EMPTY = new MappedFile(ByteBuffer.allocate(0));
+
+    private final ByteBuffer buffer;
+    private int[] rowStart;
+    private int[] rowEnd;
+    private int rowCount;
+
+    private MappedFile(ByteBuffer buffer) {
+        this.buffer = buffer;
+        index();
+    }
+
+    /**
+     * Maps the whole file into memory and indexes its rows.
+     *
+     * @param path     Path to the file.
+     * @param filename Name of the file.
+     * @return MappedFile for the file, or an empty one if it can't be read.
+     */
+    public static MappedFile readFile(String path, String filename) {
+        final ByteBuffer buffer = map(path, filename);
+        return buffer != null ? new MappedFile(buffer) : EMPTY;
+    }
+
+    /**
+     * Maps the whole file into memory, with no further processing.
+     *
+     * @param path     Path to the file.
+     * @param filename Name of the file.
+     * @return Read only buffer with the file's content, or null if it can't be read.
+     */
+    public static ByteBuffer map(String path, String filename) {
+        try (FileChannel channel = FileChannel.open(Paths.get(path, filename), READ)) {
+            // The mapping stays valid after the channel is closed.
+            return channel.map(READ_ONLY, 0, channel.size());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    /**
+     * Finds all row boundaries of the buffer.
+     */
+    private void index() {
+        final int limit = buffer.limit();
+        rowStart = new int[1024];
+        rowEnd = new int[1024];
+        int start = 0;
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                addRow(start, i);
+                start = i + 1;
+            }
+        }
+        if (start < limit) { // Last line without line terminator.
+            addRow(start, limit);
+        }
+    }
+
+    private void addRow(int start, int end) {
+        if (rowCount == rowStart.length) {
+            rowStart = Arrays.copyOf(rowStart, rowCount * 2);
+            rowEnd = Arrays.copyOf(rowEnd, rowCount * 2);
+        }
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        rowStart[rowCount] = start;
+        rowEnd[rowCount] = end;
+        rowCount++;
+    }
+
+    /**
+     * @return Amount of rows into the file.
+     */
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @param row Index of the row.
+     * @return Length, in chars, of the row.
+     */
+    public int rowLength(int row) {
+        return rowEnd[row] - rowStart[row];
+    }
+
+    /**
+     * Points a cursor to a row of the file. No bytes are copied.
+     *
+     * @param row    Index of the row.
+     * @param cursor Cursor to be moved.
+     * @return The same cursor received.
+     */
+    public RowCursor row(int row, RowCursor cursor) {
+        return cursor.wrap(buffer, rowStart[row], rowLength(row));
+    }
+
+    /**
+     * Copies a row's bytes, with no line terminator, into a buffer at its current position, which is advanced.
+     *
+     * @param row    Index of the row.
+     * @param target Buffer to receive the bytes.
+     * @return The same buffer received.
+     */
+    public ByteBuffer copyRow(int row, ByteBuffer target) {
+        final ByteBuffer source = buffer.duplicate();
+        source.limit(rowEnd[row]).position(rowStart[row]);
+        return target.put(source);
+    }
+}
@@ -0,0 +1,25 @@
+package com.test.gmendes.stream.study.io;
+
+/**
+ * Available strategies for reading the table data files.
+ *
+ * @author grmendes
+ */
+public enum ReadMode {
+
+    /**
+     * Decodes every line of the file into a String, as done since the first versions.
+     */
+    LINES,
+
+    /**
+     * Memory maps the file and reads the columns straight from its bytes. Strings are only created for emitted values.
+     */
+    MAPPED,
+
+    /**
+     * Reads the columnar snapshot of the file, see {@link com.test.gmendes.stream.study.snapshot.SnapshotWriter}.
+     * Snapshots missing or older than their text file are written first, so only the first run parses any text.
+     */
+    SNAPSHOT
+}
@@ -0,0 +1,94 @@
+package com.test.gmendes.stream.study.io;
+
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Spliterator over a range of rows of a {@link RowSource}, split by row index with exact sizes.
+ * <p>
+ * Elements are {@link RowCursor}s owned by the spliterator and moved to the next row on every advance, the same way as
+ * {@link LineSpliterator} does. They must be consumed right away and never kept. Each split gets its own cursor, so
+ * this is safe on parallel streams, and cursors are released together with the stream.
+ *
+ * @author grmendes
+ */
+public final class RowRangeSpliterator implements Spliterator<RowCursor> {
+
+    /**
+     * Below this amount of rows, ranges are not split anymore.
+     */
+    private static final int MIN_SPLIT_ROWS = 256;
+
+    private final RowSource source;
+    private final RowCursor cursor;
+    private int position;
+    private final int limit;
+
+    /**
+     * @param layout Layout of the table, used by the cursor.
+     * @param source Rows of the table.
+     * @param from   First row of the range, inclusive.
+     * @param to     Last row of the range, exclusive.
+     */
+    public RowRangeSpliterator(TableLayout layout, RowSource source, int from, int to) {
+        this.source = source;
+        this.cursor = new RowCursor(layout);
+        this.position = from;
+        this.limit = to;
+    }
+
+    /**
+     * Creates a stream over all rows of a source.
+     *
+     * @param layout   Layout of the table.
+     * @param source   Rows of the table.
+     * @param rowCount Amount of rows of the table.
+     * @param parallel true for a parallel stream.
+     * @return Stream of cursors over the rows, in order.
+     */
+    public static Stream<RowCursor> stream(TableLayout layout, RowSource source, int rowCount, boolean parallel) {
+        return StreamSupport.stream(new RowRangeSpliterator(layout, source, 0, rowCount), parallel);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super RowCursor> action) {
+        if (position >= limit) {
+            return false;
+        }
+        action.accept(source.row(position++, cursor));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super RowCursor> action) {
+        while (position < limit) {
+            action.accept(source.row(position++, cursor));
+        }
+    }
+
+    @Override
+    public Spliterator<RowCursor> trySplit() {
+        final int middle = (position + limit) >>> 1;
+        if (limit - position < MIN_SPLIT_ROWS || middle <= position) {
+            return null;
+        }
+        final RowRangeSpliterator prefix = new RowRangeSpliterator(cursor.layout(), source, position, middle);
+        position = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Math.max(limit - position, 0);
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE | SIZED | SUBSIZED;
+    }
+}
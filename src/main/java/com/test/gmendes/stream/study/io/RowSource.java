@@ -0,0 +1,25 @@
+package com.test.gmendes.stream.study.io;
+
+import com.test.gmendes.stream.study.layout.RowCursor;
+
+/**
+ * Rows of a table reachable by index, like the rows of a {@link MappedFile} or of a
+ * {@link com.test.gmendes.stream.study.snapshot.SnapshotTable}.
+ * <p>
+ * The cursor is given by the caller, so sources keep no cursor of their own and can be shared by many threads, each
+ * one with its own cursor.
+ *
+ * @author grmendes
+ */
+@FunctionalInterface
+public interface RowSource {
+
+    /**
+     * Points a cursor to a row.
+     *
+     * @param row    Index of the row.
+     * @param cursor Cursor to be moved.
+     * @return The same cursor received.
+     */
+    RowCursor row(int row, RowCursor cursor);
+}
@@ -1,5 +1,8 @@
 package com.test.gmendes.stream.study.java7.v1;
 
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
@@ -10,12 +13,10 @@ import java.util.List;
 import java.util.Map;
 
 import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
-import static com.test.gmendes.stream.study.Constants.LAYOUT_HEADER;
 import static com.test.gmendes.stream.study.Constants.NULL;
 import static com.test.gmendes.stream.study.Constants.SEPARATOR;
 import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
-import static java.util.Collections.sort;
 
 /**
  * This class contains the Java 7 based implementation of the project. The main goal is to process a batch of files,
@@ -154,37 +155,34 @@ public class ProcessJava7V1 {
      * and positional information for data extraction. Both general layout and table specific layout files must contain
      * the same information. This method validates if both information are the same.
      * <p>
-     * This method generates two ordered strings, one containing the information from the general layout file (entry
-     * param) and the other containing the information from the table's specific layout file.
+     * This method counts how many times each line occurs in the general layout file (entry param) and in the table's
+     * specific layout file, and compares both counts, so the comparison takes linear time and duplicated lines count.
      *
      * @param entry Map.Entry containing the table name as key and the general layout's content as value.
      * @throws RuntimeException if results are not the same. Not supposed to occur.
      */
     private void validate(Map.Entry<String, List<String>> entry) {
-        String layout = "";
-        String file = "";
-
-        sort(entry.getValue());
-
-        for (String string : entry.getValue()) {
-            layout += string;
-            layout += SEPARATOR;
-        }
-        layout = layout.substring(0, layout.length() - 1);
-
         final List<String> fileLines = readFile(path,
                 String.format("%s_%s", entry.getKey(), LAYOUT_FILE_BASE_NAME));
-        sort(fileLines);
 
-        for (String line : fileLines) {
-            file += line;
-            file += SEPARATOR;
+        if (!count(entry.getValue()).equals(count(fileLines))) {
+            throw new RuntimeException(entry.getKey());
         }
-        file = file.substring(0, file.length() - 1);
+    }
 
-        if (!layout.equals(file)) {
-            throw new RuntimeException(entry.getKey());
+    /**
+     * Counts how many times each line occurs in a list.
+     *
+     * @param lines the lines to count.
+     * @return a Map with each distinct line as key and the times it occurs as value.
+     */
+    private Map<String, Integer> count(List<String> lines) {
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (String line : lines) {
+            Integer count = counts.get(line);
+            counts.put(line, count == null ? 1 : count + 1);
         }
+        return counts;
     }
 
     /**
@@ -196,38 +194,18 @@ public class ProcessJava7V1 {
     private List<String> process(Map.Entry<String, List<String>> entry) {
         validate(entry);
 
-        final List<Map<String, String>> processedDataList = new ArrayList<>();
-
-        final List<String> layout = entry.getValue();
-        // Remove header line from layout
-        layout.remove(LAYOUT_HEADER);
+        final TableLayout layout = TableLayout.compile(entry.getKey(), entry.getValue());
 
         final List<String> fileData = readFile(path, String.format("%s%s", entry.getKey(), TXT_EXTENSION));
 
-        final List<String> columns = new ArrayList<>();
-        for (String line : layout) {
-            columns.add(line.split(SEPARATOR)[0]);
-        }
+        final List<String> columns = layout.columns();
 
-        sort(columns);
-
-        for (String fileLine : fileData) {
-            final Map<String, String> data = new HashMap<>();
-            for (String layoutLine : layout) {
-                final String[] layoutInfo = layoutLine.split(SEPARATOR);
-                // layoutInfo[0] = Column name
-                // layoutInfo[2] = Start position of information
-                // layoutInfo[3] = End position of information
-                // Next line maps the column value to its content
-                data.put(layoutInfo[0], fileLine.substring(Integer.parseInt(layoutInfo[2]),
-                        Integer.parseInt(layoutInfo[3])));
-            }
-            processedDataList.add(data);
-        }
+        // The same cursor is reused for all lines, so no Map is created per line to hold the columns.
+        final RowCursor cursor = new RowCursor(layout);
 
         final List<String> inserts = new ArrayList<>();
-        for (Map<String, String> processedData : processedDataList) {
-            inserts.add(generateInsert(processedData, entry.getKey(), columns));
+        for (String fileLine : fileData) {
+            inserts.add(generateInsert(cursor.wrap(fileLine), entry.getKey(), columns));
         }
         return inserts;
     }
@@ -235,13 +213,12 @@ public class ProcessJava7V1 {
     /**
      * Generates a SQL insert string based on parameters.
      *
-     * @param processedData Map with a column name as key and its data as value.
-     * @param tableName     The table name.
-     * @param columnList    List of columns to the insert.
+     * @param row        Cursor pointing to the line with the insert's data.
+     * @param tableName  The table name.
+     * @param columnList List of columns to the insert, in the same order as the cursor's layout.
      * @return String with the SQL insert generated.
      */
-    private String generateInsert(Map<String, String> processedData, String tableName,
-                                  List<String> columnList) {
+    private String generateInsert(RowCursor row, String tableName, List<String> columnList) {
         final StringBuilder insert = new StringBuilder();
         insert.append("INSERT INTO ").append(tableName).append(" (");
         String columns = "";
@@ -257,10 +234,10 @@ public class ProcessJava7V1 {
 
         String data = "";
 
-        for (String column : columnList) {
-            String value = processedData.get(column);
-            if (value == null || value.trim().isEmpty()) {
-                value = NULL;
+        for (int i = 0; i < columnList.size(); i++) {
+            String value = NULL;
+            if (!row.isNull(i)) {
+                value = row.value(i);
             }
             data += value;
             data += SEPARATOR;
@@ -1,20 +1,22 @@
 package com.test.gmendes.stream.study.java8.v1;
 
+import com.test.gmendes.stream.study.io.RowRangeSpliterator;
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.function.Predicate;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
-import static com.test.gmendes.stream.study.Constants.LAYOUT_HEADER;
 import static com.test.gmendes.stream.study.Constants.NULL;
 import static com.test.gmendes.stream.study.Constants.SEPARATOR;
 import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
@@ -22,6 +24,9 @@ import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static java.util.Collections.singletonList;
 import static java.util.Collections.synchronizedList;
 import static java.util.Collections.synchronizedMap;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 
@@ -136,16 +141,17 @@ public class ProcessJava8V1 {
      * and positional information for data extraction. Both general layout and table specific layout files must contain
      * the same information. This method validates if both information are the same.
      * <p>
-     * This method generates two ordered strings, one containing the information from the general layout file (entry
-     * param) and the other containing the information from the table's specific layout file.
+     * This method compares the lines from the general layout file (entry param) and the lines from the table's
+     * specific layout file as multisets, counting how many times each line occurs, so the comparison takes linear
+     * time and duplicated lines count.
      *
      * @param entry Map.Entry containing the table name as key and the general layout's content as value.
      * @throws RuntimeException if results are not the same. Not supposed to occur.
      */
     private void validate(Map.Entry<String, List<String>> entry) {
-        if (!entry.getValue().stream().sorted().collect(joining(SEPARATOR))
-                .equals(readFile(path, String.format("%s_%s", entry.getKey(), LAYOUT_FILE_BASE_NAME)).stream().sorted()
-                        .collect(joining(SEPARATOR)))) {
+        final List<String> fileLines = readFile(path, String.format("%s_%s", entry.getKey(), LAYOUT_FILE_BASE_NAME));
+        if (!entry.getValue().stream().collect(groupingBy(identity(), counting()))
+                .equals(fileLines.stream().collect(groupingBy(identity(), counting())))) {
             throw new RuntimeException(entry.getKey());
         }
     }
@@ -159,50 +165,32 @@ public class ProcessJava8V1 {
     private List<String> process(Map.Entry<String, List<String>> entry) {
         validate(entry);
 
-        final List<Map<String, String>> processedDataList = synchronizedList(new ArrayList<>());
-
-        final List<String> layout = synchronizedList(entry.getValue());
-        // Remove header line from layout
-        layout.remove(LAYOUT_HEADER);
+        final TableLayout layout = TableLayout.compile(entry.getKey(), entry.getValue());
 
         final List<String> fileData = readFile(path, String.format("%s%s", entry.getKey(), TXT_EXTENSION));
-        final List<String> columns = synchronizedList(
-                layout.stream().map(line -> line.split(SEPARATOR)[0]).sorted().collect(toList()));
-
-        fileData.parallelStream().forEach(fileLine -> {
-            final Map<String, String> data = synchronizedMap(new HashMap<>());
-            layout.parallelStream().forEach(layoutLine -> {
-                final String[] layoutInfo = layoutLine.split(SEPARATOR);
-                // layoutInfo[0] = Column name
-                // layoutInfo[2] = Start position of information
-                // layoutInfo[3] = End position of information
-                // Next line maps the column value to its content
-                data.put(layoutInfo[0], fileLine.substring(Integer.parseInt(layoutInfo[2]),
-                        Integer.parseInt(layoutInfo[3])));
-            });
-            processedDataList.add(data);
-        });
-
-        return processedDataList.parallelStream().filter(Objects::nonNull)
-                .map(processedData -> generateInsert(processedData, entry.getKey(), columns)).collect(toList());
+        final List<String> columns = layout.columns();
+
+        // Each split of the stream reuses its own cursor, so no Map is created per line to hold the columns.
+        return RowRangeSpliterator.stream(layout, (row, cursor) -> cursor.wrap(fileData.get(row)), fileData.size(),
+                true).map(row -> generateInsert(row, entry.getKey(), columns))
+                .collect(toList());
     }
 
     /**
      * Generates a SQL insert string based on parameters.
      *
-     * @param processedData Map with a column name as key and its data as value.
-     * @param tableName     The table name.
-     * @param columnList    List of columns to the insert.
+     * @param row        Cursor pointing to the line with the insert's data.
+     * @param tableName  The table name.
+     * @param columnList List of columns to the insert, in the same order as the cursor's layout.
      * @return String with the SQL insert generated.
      */
-    private String generateInsert(Map<String, String> processedData, String tableName,
-                                  List<String> columnList) {
+    private String generateInsert(RowCursor row, String tableName, List<String> columnList) {
         final StringBuffer insert = new StringBuffer();
         insert.append("INSERT INTO ").append(tableName).append(" (");
         insert.append(columnList.stream().collect(joining(SEPARATOR))).append(") VALUES (");
         insert.append(
-                columnList.stream().map(processedData::get).map(Optional::ofNullable).map(value -> value.orElse(NULL))
-                        .map(value -> (!value.trim().isEmpty()) ? value : NULL).collect(joining(SEPARATOR)))
+                IntStream.range(0, columnList.size()).mapToObj(i -> row.isNull(i) ? NULL : row.value(i))
+                        .collect(joining(SEPARATOR)))
                 .append(");");
         return insert.toString();
     }
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 import java.util.stream.Collector;
 import java.util.stream.IntStream;
@@ -22,16 +23,14 @@ public class ListToMapJava8Tests {
         // Private Default Constructor.
     }
 
-    private static boolean newList;
-    private static Object key;
-
     /**
      * Converts the received list into a map, splitting it by empty lines. For each sublist generated, removes its
      * first element and uses it as the Map's key.
      * <p>
      * The same approach as ProcessJava7V2's, using lambdas. Iterates once the input list to compute the output map
      * directly, with no need to post processing anything.
-     * It requires static variables to be declared for use inside the lambdas, which is not the safer approach.
+     * Lambdas can't assign local variables, so the current section is kept into a local AtomicReference. It used to be
+     * kept into static variables, which broke concurrent calls.
      * <p>
      * Example:
      * <li>input list = ["Header", "1", "2", "", "Header2", "3"]</li>
@@ -40,20 +39,18 @@ public class ListToMapJava8Tests {
      * @param list List to be converted.
      * @return Map with a String key and a List of Strings value.
      */
-    @SuppressWarnings({"unchecked", "SuspiciousMethodCalls"})
     public static <T> Map<T, List<T>> listToMap8ForEach(List<T> list, Predicate<T> separator) {
         Map<T, List<T>> map = new HashMap<>();
+        AtomicReference<List<T>> current = new AtomicReference<>();
 
-        newList = true;
         list.forEach(t -> {
             if (separator.test(t)) { // If reaches the separator, starts over a new list.
-                newList = true;
-            } else if (newList) { // If it's not the separator and is a new list, gets the key of this list and starts over the map.
-                key = t;
-                newList = false;
-                map.put((T) key, new ArrayList<>());
-            } else { // If it's not the separator and it's not a new list, uses current key and adds the value to its list.
-                map.get(key).add(t);
+                current.set(null);
+            } else if (current.get() == null) { // If it's not the separator and is a new list, uses it as key of a new list.
+                current.set(new ArrayList<>());
+                map.put(t, current.get());
+            } else { // If it's not the separator and it's not a new list, adds the value to the current list.
+                current.get().add(t);
             }
         });
 
@@ -1,23 +1,47 @@
 package com.test.gmendes.stream.study.java8.v2;
 
+import com.test.gmendes.stream.study.bulk.BulkFormat;
+import com.test.gmendes.stream.study.bulk.BulkWriter;
+import com.test.gmendes.stream.study.incremental.IncrementalRun;
+import com.test.gmendes.stream.study.io.MappedFile;
+import com.test.gmendes.stream.study.io.ReadMode;
+import com.test.gmendes.stream.study.io.RowRangeSpliterator;
+import com.test.gmendes.stream.study.io.RowSource;
+import com.test.gmendes.stream.study.jdbc.JdbcLoader;
+import com.test.gmendes.stream.study.layout.LayoutValidationCache;
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import com.test.gmendes.stream.study.pipeline.Pipeline;
+import com.test.gmendes.stream.study.pipeline.StageUtilization;
+import com.test.gmendes.stream.study.schedule.ScheduledTable;
+import com.test.gmendes.stream.study.schedule.TableScheduler;
+import com.test.gmendes.stream.study.schedule.TableTiming;
+import com.test.gmendes.stream.study.sink.InsertBatching;
+import com.test.gmendes.stream.study.sink.InsertSink;
+import com.test.gmendes.stream.study.snapshot.SnapshotTable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.IntFunction;
 import java.util.function.Predicate;
-import java.util.function.Supplier;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
-import static com.test.gmendes.stream.study.Constants.LAYOUT_HEADER;
-import static com.test.gmendes.stream.study.Constants.NULL;
 import static com.test.gmendes.stream.study.Constants.SEPARATOR;
 import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
-import static java.util.stream.Collectors.joining;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 
@@ -37,9 +61,11 @@ import static java.util.stream.Collectors.toMap;
 public class ProcessJava8V2 {
 
     private final String path;
+    private final LayoutValidationCache validationCache;
 
     public ProcessJava8V2(String path) {
         this.path = path;
+        this.validationCache = new LayoutValidationCache(path);
     }
 
     /**
@@ -61,6 +87,20 @@ public class ProcessJava8V2 {
         return Collections.emptyList();
     }
 
+    /**
+     * Gets the size of a file.
+     *
+     * @param filename Name of the file.
+     * @return Size of the file, in bytes, or 0 if it can't be read.
+     */
+    private long fileSize(String filename) {
+        try {
+            return Files.size(Paths.get(path, filename));
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
     /**
      * Converts the received list into a map, splitting it by the predicate informed. For each sublist generated,
      * removes its first element and uses it as the Map's key.
@@ -106,11 +146,196 @@ public class ProcessJava8V2 {
      * @return List of the generated inserts.
      */
     public List<String> execute() {
+        return execute(ReadMode.LINES);
+    }
+
+    /**
+     * Entry point to start processing for testing. Generates a list of SQL inserts, based on the files processed.
+     * <p>
+     * The list keeps the stream's order: tables in the order of the layout map, each one with its rows in file order.
+     *
+     * @param readMode Strategy used to read the tables' data files.
+     * @return List of the generated inserts.
+     */
+    public List<String> execute(ReadMode readMode) {
+        final List<String> inserts = inserts(readMode, InsertBatching.SINGLE_ROW).collect(toList());
+        validationCache.save();
+        return inserts;
+    }
+
+    /**
+     * Entry point to start processing. Generates SQL inserts, based on the files processed, handing each one to the
+     * sink as soon as it's generated. The sink is not closed by this method.
+     *
+     * @param sink Destination of the generated inserts.
+     */
+    public void execute(InsertSink sink) {
+        execute(sink, ReadMode.LINES);
+    }
+
+    /**
+     * Entry point to start processing. Generates SQL inserts, based on the files processed, handing each one to the
+     * sink as soon as it's generated. The sink is not closed by this method.
+     *
+     * @param sink     Destination of the generated inserts.
+     * @param readMode Strategy used to read the tables' data files.
+     */
+    public void execute(InsertSink sink, ReadMode readMode) {
+        execute(sink, readMode, InsertBatching.SINGLE_ROW);
+    }
+
+    /**
+     * Entry point to start processing. Generates SQL inserts, based on the files processed, handing each one to the
+     * sink as soon as it's generated. The sink is not closed by this method.
+     *
+     * @param sink     Destination of the generated inserts.
+     * @param readMode Strategy used to read the tables' data files.
+     * @param batching How many rows are grouped into each insert.
+     */
+    public void execute(InsertSink sink, ReadMode readMode, InsertBatching batching) {
+        // Sinks don't need the inserts in order, so they're handed over as soon as each thread generates them.
+        inserts(readMode, batching).forEach(sink::accept);
+        validationCache.save();
+    }
+
+    /**
+     * @return Parallel stream of the inserts of all tables, in order.
+     */
+    private Stream<String> inserts(ReadMode readMode, InsertBatching batching) {
+
+        final Map<String, List<String>> mapLinesPerTable = listToMap(readFile(path, LAYOUT_FILE_BASE_NAME),
+                String::isEmpty);
+
+        return mapLinesPerTable.entrySet().parallelStream().flatMap(entry -> process(entry, readMode, batching));
+    }
+
+    /**
+     * Entry point to start processing incrementally. Each table's inserts are written into a
+     * <code>TABLE_NAME.sql</code> file into the output directory, but only for the tables whose data file or layout
+     * changed since the last incremental run into the same directory. Other tables keep their previous output file,
+     * and the ones of tables removed from layout.txt are deleted.
+     *
+     * @param outputDirectory Directory of the output files. Created if needed.
+     * @param readMode        Strategy used to read the tables' data files.
+     * @return Names of the tables processed by this run.
+     * @see IncrementalRun
+     */
+    public List<String> executeIncremental(Path outputDirectory, ReadMode readMode) {
+
+        final Map<String, List<String>> mapLinesPerTable = listToMap(readFile(path, LAYOUT_FILE_BASE_NAME),
+                String::isEmpty);
+
+        final List<String> processed = new IncrementalRun(path, outputDirectory, IncrementalRun.INSERT_OUTPUT)
+                .run(mapLinesPerTable, tableName -> process(
+                        new SimpleImmutableEntry<>(tableName, mapLinesPerTable.get(tableName)), readMode,
+                        InsertBatching.SINGLE_ROW));
+        validationCache.save();
+        return processed;
+    }
+
+    /**
+     * Entry point to start processing with a cost aware scheduling of the tables. Generates SQL inserts, based on the
+     * files processed, handing each one to the sink as soon as it's generated. The sink is not closed by this method.
+     * <p>
+     * Instead of a parallel stream over the tables, which splits the work by the tables' position into a hash map,
+     * the scheduler starts the largest tables first, runs the tiny ones sequentially and splits the big ones.
+     *
+     * @param sink      Destination of the generated inserts.
+     * @param readMode  Strategy used to read the tables' data files.
+     * @param scheduler Scheduler running the tables.
+     * @return Timing of each table, to check how balanced the run was.
+     */
+    public List<TableTiming> executeScheduled(InsertSink sink, ReadMode readMode, TableScheduler scheduler) {
+
+        final Map<String, List<String>> mapLinesPerTable = listToMap(readFile(path, LAYOUT_FILE_BASE_NAME),
+                String::isEmpty);
+
+        final List<TableTiming> timings = scheduler.run(mapLinesPerTable.entrySet().stream()
+                .map(entry -> new ScheduledInsertTable(entry, readMode, sink)).collect(toList()));
+        validationCache.save();
+        return timings;
+    }
+
+    /**
+     * Entry point to start processing with a staged pipeline, see {@link Pipeline}. A reader thread reads the tables'
+     * data files in chunks, while a pool of parsers encodes the previous chunks and a writer hands their inserts to the
+     * sink, so I/O and CPU overlap. Inserts are the same as the ones of {@link #execute(InsertSink, ReadMode)}, but
+     * written in order: table by table, and row by row. The sink is not closed by this method.
+     *
+     * @param sink     Destination of the generated inserts.
+     * @param pipeline Pipeline running the tables.
+     * @return Utilization of each stage, to find which one is the bottleneck.
+     */
+    public List<StageUtilization> executePipelined(InsertSink sink, Pipeline pipeline) {
+
+        final Map<String, List<String>> mapLinesPerTable = listToMap(readFile(path, LAYOUT_FILE_BASE_NAME),
+                String::isEmpty);
+
+        final List<TableLayout> layouts = mapLinesPerTable.entrySet().stream()
+                .map(entry -> {
+                    validate(entry);
+                    return TableLayout.compile(entry.getKey(), entry.getValue());
+                })
+                .collect(toList());
+        validationCache.save();
+        return pipeline.run(path, layouts,
+                (row, insert) -> appendValues(row, insert.append(row.layout().insertPrefix())).append(");"), sink);
+    }
+
+    /**
+     * Entry point to write the tables in a bulk loader format, instead of SQL inserts. Each table is written into a
+     * <code>TABLE_NAME</code> file with the format's extension into the output directory. Tables are written in
+     * parallel, each one by its own {@link BulkWriter}.
+     *
+     * @param format          Format of the output files.
+     * @param outputDirectory Directory of the output files. Created if needed.
+     * @param readMode        Strategy used to read the tables' data files.
+     * @return Amount of rows written.
+     * @throws UncheckedIOException if an output file can't be written.
+     */
+    public long executeBulk(BulkFormat format, Path outputDirectory, ReadMode readMode) {
+
+        final Map<String, List<String>> mapLinesPerTable = listToMap(readFile(path, LAYOUT_FILE_BASE_NAME),
+                String::isEmpty);
+
+        try {
+            Files.createDirectories(outputDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final long rows = mapLinesPerTable.entrySet().parallelStream()
+                .mapToLong(entry -> {
+                    final TableData tableData = openTable(entry, readMode);
+                    try (BulkWriter writer = BulkWriter.toFile(
+                            outputDirectory.resolve(entry.getKey() + format.extension()), format)) {
+                        return writer.write(tableData.layout, tableData.rowCount, tableData.rows());
+                    }
+                })
+                .sum();
+        validationCache.save();
+        return rows;
+    }
+
+    /**
+     * Entry point to load the tables straight into a database, with no SQL text generated. Tables are loaded in
+     * parallel, each one by its own connection, see {@link JdbcLoader}.
+     *
+     * @param loader   Loader of the tables, which must already exist into the database.
+     * @param readMode Strategy used to read the tables' data files.
+     * @return Amount of rows loaded.
+     * @throws RuntimeException if any table can't be loaded.
+     */
+    public long executeJdbc(JdbcLoader loader, ReadMode readMode) {
 
         final Map<String, List<String>> mapLinesPerTable = listToMap(readFile(path, LAYOUT_FILE_BASE_NAME),
                 String::isEmpty);
 
-        return mapLinesPerTable.entrySet().parallelStream().flatMap(this::process).collect(toList());
+        final long rows = mapLinesPerTable.entrySet().parallelStream()
+                .map(entry -> openTable(entry, readMode))
+                .mapToLong(tableData -> loader.load(tableData.layout, tableData.rowCount, tableData.rows()))
+                .sum();
+        validationCache.save();
+        return rows;
     }
 
     /**
@@ -120,71 +345,235 @@ public class ProcessJava8V2 {
      * and positional information for data extraction. Both general layout and table specific layout files must contain
      * the same information. This method validates if both information are the same.
      * <p>
-     * This method generates two ordered strings, one containing the information from the general layout file (entry
-     * param) and the other containing the information from the table's specific layout file.
+     * Validations are cached on disk by {@link LayoutValidationCache}, so a table is only validated again when
+     * layout.txt or the table's layout file change. When it's needed, the lines from the general layout file (entry
+     * param) and the lines from the table's specific layout file are compared as multisets, counting how many times
+     * each line occurs, which takes linear time and counts duplicated lines.
      *
-     * @param entry Map.Entry containing the table name as key and the general layout's content as value.
+     * <p>
+     * It's static, so the other implementations reading the same data directory share the validation cache. The cache
+     * is saved by the caller, once all tables were validated.
+     *
+     * @param path            Path to the data directory.
+     * @param validationCache Cache of the validations of the data directory.
+     * @param entry           Map.Entry containing the table name as key and the general layout's content as value.
      * @throws RuntimeException if results are not the same. Not supposed to occur.
      */
-    private void validate(Map.Entry<String, List<String>> entry) {
-        String layout = entry.getValue().stream().sorted().collect(joining(SEPARATOR));
-        String file = readFile(path, entry.getKey() + "_" + LAYOUT_FILE_BASE_NAME).stream().sorted()
-                .collect(joining(SEPARATOR));
-        if (!layout.equals(file)) {
+    public static void validate(String path, LayoutValidationCache validationCache,
+                                Map.Entry<String, List<String>> entry) {
+        final String fingerprint = validationCache.fingerprint(entry.getKey());
+        if (validationCache.isValidated(entry.getKey(), fingerprint)) {
+            return;
+        }
+        final List<String> file = readFile(path, entry.getKey() + "_" + LAYOUT_FILE_BASE_NAME);
+        if (!entry.getValue().stream().collect(groupingBy(identity(), counting()))
+                .equals(file.stream().collect(groupingBy(identity(), counting())))) {
             throw new RuntimeException(entry.getKey());
         }
+        validationCache.validated(entry.getKey(), fingerprint);
+    }
+
+    private void validate(Map.Entry<String, List<String>> entry) {
+        validate(path, validationCache, entry);
     }
 
     /**
-     * Receives a table's layout data, gets its data and generates inserts to this table with the data.
+     * Validates a table's layout, compiles it and reads the table's data.
      *
-     * @param entry Map.Entry with the table's name as key and List of table's layout information as value.
-     * @return Stream of String containing a SQL insert generated by the code.
+     * @param entry    Map.Entry with the table's name as key and List of table's layout information as value.
+     * @param readMode Strategy used to read the table's data file.
+     * @return TableData giving access to each row of the table.
      */
-    private Stream<String> process(Map.Entry<String, List<String>> entry) {
+    private TableData openTable(Map.Entry<String, List<String>> entry, ReadMode readMode) {
         validate(entry);
 
-        final List<String> layout = entry.getValue();
-        // Remove header line from layout
-        layout.remove(LAYOUT_HEADER);
-
         String tableName = entry.getKey();
+        final TableLayout layout = TableLayout.compile(tableName, entry.getValue());
+
+        if (readMode == ReadMode.MAPPED) {
+            final MappedFile fileData = MappedFile.readFile(path, tableName + TXT_EXTENSION);
+            return new TableData(layout, fileData.rowCount(), fileData::row);
+        }
+        if (readMode == ReadMode.SNAPSHOT) {
+            final SnapshotTable snapshot = SnapshotTable.openOrWrite(path, layout);
+            return new TableData(layout, snapshot.rowCount(), snapshot::row);
+        }
         final List<String> fileData = readFile(path, tableName + TXT_EXTENSION);
-        final Supplier<Stream<String>> columnSupplier =
-                () -> layout.stream().map(layoutLine -> layoutLine.split(SEPARATOR)[0]).sorted();
+        return new TableData(layout, fileData.size(), (row, cursor) -> cursor.wrap(fileData.get(row)));
+    }
 
-        final String baseInsertText =
-                columnSupplier.get().collect(joining(SEPARATOR, "INSERT INTO " + tableName + " (", ") VALUES ("));
+    /**
+     * Receives a table's layout data, gets its data and generates inserts to this table with the data.
+     * <p>
+     * On {@link ReadMode#MAPPED} mode, the data file is memory mapped and the cursor reads each column straight from
+     * the file's bytes, so the only String created per line is the insert itself. On {@link ReadMode#SNAPSHOT} mode,
+     * rows are rebuilt from the table's columnar snapshot, so no text is parsed at all.
+     *
+     * @param entry    Map.Entry with the table's name as key and List of table's layout information as value.
+     * @param readMode Strategy used to read the table's data file.
+     * @param batching How many rows are grouped into each insert.
+     * @return Stream of String containing a SQL insert generated by the code.
+     */
+    private Stream<String> process(Map.Entry<String, List<String>> entry, ReadMode readMode,
+                                   InsertBatching batching) {
+        final TableData tableData = openTable(entry, readMode);
+        final int rowCount = tableData.rowCount;
+
+        if (batching.isSingleRow()) {
+            // Each split of the stream reuses its own cursor, so no object is created per line to hold the columns.
+            return RowRangeSpliterator.stream(tableData.layout, tableData.source, rowCount, true)
+                    .map(this::generateInsert);
+        }
 
-        return fileData.parallelStream().map(fileLine -> {
-            final Map<String, String> data = new HashMap<>();
-            layout.forEach(layoutLine -> {
-                final String[] layoutInfo = layoutLine.split(SEPARATOR);
-                // layoutInfo[0] = Column name
-                // layoutInfo[2] = Start position of information
-                // layoutInfo[3] = End position of information
-                // Next line maps the column value to its content
-                data.put(layoutInfo[0], fileLine.substring(Integer.parseInt(layoutInfo[2]),
-                        Integer.parseInt(layoutInfo[3])));
-            });
-            return generateInsert(data, columnSupplier, baseInsertText);
-        });
+        final int rowsPerStatement = batching.rowsPerStatement();
+        final String baseInsertText = tableData.layout.insertPrefix();
+        return IntStream.range(0, (rowCount + rowsPerStatement - 1) / rowsPerStatement).parallel()
+                .mapToObj(batch -> generateBatchedInserts(tableData.rows(), batch * rowsPerStatement,
+                        Math.min(rowCount, (batch + 1) * rowsPerStatement), batching.maxStatementChars(),
+                        baseInsertText))
+                .flatMap(List::stream);
     }
 
     /**
      * Generates a SQL insert string based on parameters.
+     * <p>
+     * Values are appended straight from the cursor's line into the insert, so no String is created for them.
      *
-     * @param data           Map with a column name as key and its data as value.
-     * @param columnSupplier Supplier for a Stream of columns to the insert.
-     * @param baseInsertText The base insert text, which contains all information before the values itself.
+     * @param row Cursor pointing to the line with the insert's data.
      * @return String with the SQL insert generated.
      */
-    private String generateInsert(Map<String, String> data, Supplier<Stream<String>> columnSupplier, String baseInsertText) {
-        return columnSupplier.get()
-                .map(column -> {
-                    String value = data.get(column);
-                    return !value.trim().isEmpty() ? value : NULL;
-                })
-                .collect(joining(SEPARATOR, baseInsertText, ");"));
+    private String generateInsert(RowCursor row) {
+        final StringBuilder insert = new StringBuilder(row.layout().insertPrefix());
+        return appendValues(row, insert).append(");").toString();
+    }
+
+    /**
+     * Generates multi-row SQL inserts for a range of rows, like <code>INSERT INTO t (a,b) VALUES (1,2),(3,4);</code>.
+     * A new insert is started every time the current one would get longer than the maximum length.
+     *
+     * @param rows           Function pointing a cursor to the row with the given index.
+     * @param from           First row of the range, inclusive.
+     * @param to             Last row of the range, exclusive.
+     * @param maxChars       Maximum length of each insert, in chars.
+     * @param baseInsertText The base insert text, which contains all information before the values itself.
+     * @return List of String with the SQL inserts generated.
+     */
+    private List<String> generateBatchedInserts(IntFunction<RowCursor> rows, int from, int to, int maxChars,
+                                                String baseInsertText) {
+        final List<String> inserts = new ArrayList<>(1);
+        final StringBuilder insert = new StringBuilder(baseInsertText);
+        int rowsInInsert = 0;
+        for (int row = from; row < to; row++) {
+            final int mark = insert.length();
+            if (rowsInInsert > 0) {
+                insert.append(SEPARATOR).append('(');
+            }
+            appendValues(rows.apply(row), insert).append(')');
+            // One more char is needed for the closing ';'
+            if (rowsInInsert > 0 && insert.length() + 1 > maxChars) {
+                insert.setLength(mark);
+                inserts.add(insert.append(';').toString());
+                insert.setLength(0);
+                appendValues(rows.apply(row), insert.append(baseInsertText)).append(')');
+                rowsInInsert = 0;
+            }
+            rowsInInsert++;
+        }
+        if (rowsInInsert > 0) {
+            inserts.add(insert.append(';').toString());
+        }
+        return inserts;
+    }
+
+    /**
+     * Appends the values of a row, separated by the default SEPARATOR. Each value is written as a SQL literal of its
+     * column's type, see {@link com.test.gmendes.stream.study.layout.ColumnType}. Blank values are written as NULL.
+     *
+     * @param row    Cursor pointing to the line with the values.
+     * @param insert StringBuilder to append the values.
+     * @return The same StringBuilder received.
+     */
+    private StringBuilder appendValues(RowCursor row, StringBuilder insert) {
+        final TableLayout layout = row.layout();
+        for (int i = 0; i < layout.columnCount(); i++) {
+            if (i > 0) {
+                insert.append(SEPARATOR);
+            }
+            row.appendLiteral(i, insert);
+        }
+        return insert;
+    }
+
+    /**
+     * Compiled layout and data of a table, opened for processing.
+     */
+    private static final class TableData {
+
+        private final TableLayout layout;
+        private final int rowCount;
+        private final RowSource source;
+
+        private TableData(TableLayout layout, int rowCount, RowSource source) {
+            this.layout = layout;
+            this.rowCount = rowCount;
+            this.source = source;
+        }
+
+        /**
+         * @return Function pointing a new cursor, owned by the caller, to the row with the given index. Not thread
+         * safe, so each thread or task must get its own function.
+         */
+        private IntFunction<RowCursor> rows() {
+            final RowCursor cursor = new RowCursor(layout);
+            return row -> source.row(row, cursor);
+        }
+    }
+
+    /**
+     * A table which generates its inserts into a sink, processed by a {@link TableScheduler}.
+     */
+    private final class ScheduledInsertTable implements ScheduledTable {
+
+        private final Map.Entry<String, List<String>> entry;
+        private final ReadMode readMode;
+        private final InsertSink sink;
+        private final long estimatedCost;
+        private TableData tableData;
+
+        private ScheduledInsertTable(Map.Entry<String, List<String>> entry, ReadMode readMode, InsertSink sink) {
+            this.entry = entry;
+            this.readMode = readMode;
+            this.sink = sink;
+
+            // Rows are estimated from the file size and the row width. Each row costs its own chars plus the insert
+            // prefix, which is repeated on every insert.
+            final TableLayout layout = TableLayout.compile(entry.getKey(), entry.getValue());
+            final long rows = fileSize(entry.getKey() + TXT_EXTENSION) / (layout.width() + 1);
+            this.estimatedCost = rows * (layout.insertPrefix().length() + layout.width());
+        }
+
+        @Override
+        public String name() {
+            return entry.getKey();
+        }
+
+        @Override
+        public long estimatedCost() {
+            return estimatedCost;
+        }
+
+        @Override
+        public int open() {
+            tableData = openTable(entry, readMode);
+            return tableData.rowCount;
+        }
+
+        @Override
+        public void process(int fromRow, int toRow) {
+            final IntFunction<RowCursor> rows = tableData.rows();
+            for (int row = fromRow; row < toRow; row++) {
+                sink.accept(generateInsert(rows.apply(row)));
+            }
+        }
     }
 }
@@ -1,23 +1,33 @@
 package com.test.gmendes.stream.study.java8.v3;
 
+import com.test.gmendes.stream.study.collect.SectionCollector;
+import com.test.gmendes.stream.study.incremental.IncrementalRun;
+import com.test.gmendes.stream.study.io.LineSpliterator;
+import com.test.gmendes.stream.study.io.ReadMode;
+import com.test.gmendes.stream.study.io.RowRangeSpliterator;
+import com.test.gmendes.stream.study.layout.LayoutValidationCache;
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import com.test.gmendes.stream.study.sink.InsertSink;
+import com.test.gmendes.stream.study.snapshot.SnapshotTable;
+
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Predicate;
-import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
-import static com.test.gmendes.stream.study.Constants.LAYOUT_HEADER;
-import static com.test.gmendes.stream.study.Constants.NULL;
 import static com.test.gmendes.stream.study.Constants.SEPARATOR;
 import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
-import static java.util.stream.Collectors.joining;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 
 /**
  * This class contains the Java 8 based implementation of the project. The main goal is to process a batch of files,
@@ -36,9 +46,11 @@ import static java.util.stream.Collectors.toList;
 public class ProcessJava8V3 {
 
     private final String path;
+    private final LayoutValidationCache validationCache;
 
     public ProcessJava8V3(String path) {
         this.path = path;
+        this.validationCache = new LayoutValidationCache(path);
     }
 
     /**
@@ -61,6 +73,9 @@ public class ProcessJava8V3 {
 
     /**
      * Converts the received stream into a Stream of lists, splitting it by the predicate informed.
+     * <p>
+     * Uses {@link SectionCollector}, which is associative, so the input stream may be parallel. It used to be a
+     * reduce over a mutable identity list, which is only correct on sequential streams.
      *
      * @param list List to be converted.
      * @param sep  Predicate indicating the separator in use.
@@ -69,32 +84,74 @@ public class ProcessJava8V3 {
      * @return Stream with a List of T elements.
      */
     public static <T> Stream<List<T>> splitList(Stream<T> list, Predicate<T> sep) {
-        return list.reduce(new ArrayList<List<T>>(),
-                (l, elem) -> {
-                    if (l.isEmpty()) {
-                        l.add(new ArrayList<>());
-                    }
-                    if (sep.test(elem)) {
-                        l.add(new ArrayList<>());
-                    } else {
-                        l.get(l.size() - 1).add(elem);
-                    }
-                    return l;
-                },
-                (l1, l2) -> {
-                    l1.addAll(l2);
-                    return l1;
-                }).parallelStream().filter(l -> !l.isEmpty());
+        return list.collect(SectionCollector.toSections(sep)).parallelStream();
     }
 
     /**
      * Entry point to start processing for testing. Generates a list of SQL inserts, based on the files processed.
      *
+     * <p>
+     * The list keeps the stream's order: tables in the order of layout.txt, each one with its rows in file order.
+     *
      * @return List of the generated inserts.
      */
     public List<String> execute() {
-        return splitList(readFile(path, LAYOUT_FILE_BASE_NAME), String::isEmpty).flatMap(this::process)
-                .collect(toList());
+        final List<String> inserts = inserts(ReadMode.MAPPED).collect(toList());
+        validationCache.save();
+        return inserts;
+    }
+
+    /**
+     * Entry point to start processing. Generates SQL inserts, based on the files processed, handing each one to the
+     * sink as soon as it's generated. The sink is not closed by this method.
+     *
+     * @param sink Destination of the generated inserts.
+     */
+    public void execute(InsertSink sink) {
+        execute(sink, ReadMode.MAPPED);
+    }
+
+    /**
+     * Entry point to start processing. Generates SQL inserts, based on the files processed, handing each one to the
+     * sink as soon as it's generated. The sink is not closed by this method.
+     *
+     * @param sink     Destination of the generated inserts.
+     * @param readMode Strategy used to read the tables' data files. This version always memory maps the text files,
+     *                 so {@link ReadMode#LINES} and {@link ReadMode#MAPPED} are the same.
+     */
+    public void execute(InsertSink sink, ReadMode readMode) {
+        // Sinks don't need the inserts in order, so they're handed over as soon as each thread generates them.
+        inserts(readMode).forEach(sink::accept);
+        validationCache.save();
+    }
+
+    /**
+     * @return Parallel stream of the inserts of all tables, in order.
+     */
+    private Stream<String> inserts(ReadMode readMode) {
+        return splitList(readFile(path, LAYOUT_FILE_BASE_NAME), String::isEmpty)
+                .flatMap(layoutList -> process(layoutList, readMode));
+    }
+
+    /**
+     * Entry point to start processing incrementally. Each table's inserts are written into a
+     * <code>TABLE_NAME.sql</code> file into the output directory, but only for the tables whose data file or layout
+     * changed since the last incremental run into the same directory. Other tables keep their previous output file,
+     * and the ones of tables removed from layout.txt are deleted.
+     *
+     * @param outputDirectory Directory of the output files. Created if needed.
+     * @return Names of the tables processed by this run.
+     * @see IncrementalRun
+     */
+    public List<String> executeIncremental(Path outputDirectory) {
+        final Map<String, List<String>> layoutListPerTable = splitList(readFile(path, LAYOUT_FILE_BASE_NAME),
+                String::isEmpty).collect(toMap(layoutList -> layoutList.get(0), layoutList -> layoutList));
+
+        final List<String> processed = new IncrementalRun(path, outputDirectory, IncrementalRun.INSERT_OUTPUT)
+                .run(layoutListPerTable,
+                        tableName -> process(layoutListPerTable.get(tableName), ReadMode.MAPPED));
+        validationCache.save();
+        return processed;
     }
 
     /**
@@ -104,70 +161,73 @@ public class ProcessJava8V3 {
      * and positional information for data extraction. Both general layout and table specific layout files must contain
      * the same information. This method validates if both information are the same.
      * <p>
-     * This method receives a list with the information from the general layout file (layoutList param) and
-     * reads a list containing the information from the table's specific layout file. Then, it compares both with
-     * List.containsAll method.
+     * Validations are cached on disk by {@link LayoutValidationCache}, so a table is only validated again when
+     * layout.txt or the table's layout file change. When it's needed, this method receives a list with the information
+     * from the general layout file (layoutList param) and reads a list containing the information from the table's
+     * specific layout file. Then, it compares both as multisets, counting how many times each line occurs, which
+     * takes linear time and counts duplicated lines.
      *
      * @param tableName  the table name.
      * @param layoutList the general layout's content.
      * @throws RuntimeException if results are not the same. Not supposed to occur.
      */
     private void validate(String tableName, List<String> layoutList) {
-        List<String> fileList = readFile(path, tableName + "_" + LAYOUT_FILE_BASE_NAME).collect(toList());
-        // If layoutList contains all elements inside fileList and fileList contains all elements inside layoutList,
-        // then both lists are equals.
-        if (!layoutList.containsAll(fileList) || !fileList.containsAll(layoutList)) {
+        final String fingerprint = validationCache.fingerprint(tableName);
+        if (validationCache.isValidated(tableName, fingerprint)) {
+            return;
+        }
+        final Map<String, Long> fileCounts = readFile(path, tableName + "_" + LAYOUT_FILE_BASE_NAME)
+                .collect(groupingBy(identity(), counting()));
+        // List.containsAll took quadratic time, and a set comparison would miss duplicated lines.
+        if (!fileCounts.equals(layoutList.stream().collect(groupingBy(identity(), counting())))) {
             throw new RuntimeException(tableName);
         }
+        validationCache.validated(tableName, fingerprint);
     }
 
     /**
      * Receives a table's layout data, gets its data and generates inserts to this table with the data.
      *
      * @param layoutList List of table's layout information, where the first element is the table's name.
+     * @param readMode   Strategy used to read the table's data file.
      * @return Stream of String containing a SQL insert generated by the code.
      */
-    private Stream<String> process(final List<String> layoutList) {
+    private Stream<String> process(final List<String> layoutList, ReadMode readMode) {
         final String tableName = layoutList.remove(0);
         validate(tableName, layoutList);
-        // Remove header line from layout
-        layoutList.remove(LAYOUT_HEADER);
-
-        final Supplier<Stream<String>> columnSupplier =
-                () -> layoutList.stream().map(layoutLine -> layoutLine.split(SEPARATOR)[0]).sorted();
-
-        final String baseInsertText = columnSupplier.get()
-                .collect(joining(SEPARATOR, "INSERT INTO " + tableName + " (", ") VALUES ("));
-
-        return readFile(path, tableName + TXT_EXTENSION).parallel().map(fileLine -> {
-            final Map<String, String> data = new HashMap<>();
-            layoutList.forEach(layoutLine -> {
-                final String[] layoutInfo = layoutLine.split(SEPARATOR);
-                // layoutInfo[0] = Column name
-                // layoutInfo[2] = Start position of information
-                // layoutInfo[3] = End position of information
-                // Next line maps the column value to its content
-                data.put(layoutInfo[0], fileLine.substring(Integer.parseInt(layoutInfo[2]),
-                        Integer.parseInt(layoutInfo[3])));
-            });
-            return generateInsert(data, columnSupplier, baseInsertText);
-        });
+
+        final TableLayout layout = TableLayout.compile(tableName, layoutList);
+
+        if (readMode == ReadMode.SNAPSHOT) {
+            // Rows are rebuilt from the columnar snapshot, so no text is parsed at all.
+            final SnapshotTable snapshot = SnapshotTable.openOrWrite(path, layout);
+            return RowRangeSpliterator.stream(layout, snapshot::row, snapshot.rowCount(), true)
+                    .map(this::generateInsert);
+        }
+
+        // The data file is memory mapped and split by byte ranges, so each fork-join task reads only its own chunk.
+        // Each chunk reuses its own cursor, so no object is created per line to hold the columns.
+        return LineSpliterator.stream(path, tableName + TXT_EXTENSION, layout, true).map(this::generateInsert);
     }
 
     /**
      * Generates a SQL insert string based on parameters.
+     * <p>
+     * Values are appended straight from the cursor's line into the insert, so no String is created for them. Each value
+     * is written as a SQL literal of its column's type, see {@link com.test.gmendes.stream.study.layout.ColumnType}.
      *
-     * @param data           Map with a column name as key and its data as value.
-     * @param columnSupplier Supplier for a Stream of columns to the insert.
-     * @param baseInsertText The base insert text, which contains all information before the values itself.
+     * @param row Cursor pointing to the line with the insert's data.
      * @return String with the SQL insert generated.
      */
-    private String generateInsert(Map<String, String> data, Supplier<Stream<String>> columnSupplier, final String baseInsertText) {
-        return columnSupplier.get()
-                .map(column -> {
-                    String value = data.get(column);
-                    return !value.trim().isEmpty() ? value : NULL;
-                })
-                .collect(joining(SEPARATOR, baseInsertText, ");"));
+    private String generateInsert(RowCursor row) {
+        final TableLayout layout = row.layout();
+        final StringBuilder insert = new StringBuilder(layout.insertPrefix());
+        for (int i = 0; i < layout.columnCount(); i++) {
+            if (i > 0) {
+                insert.append(SEPARATOR);
+            }
+            row.appendLiteral(i, insert);
+        }
+        return insert.append(");").toString();
     }
 }
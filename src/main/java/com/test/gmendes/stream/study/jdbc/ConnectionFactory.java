@@ -0,0 +1,21 @@
+package com.test.gmendes.stream.study.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Opens a new JDBC connection each time it's called, e.g. <code>() -&gt; DriverManager.getConnection(url)</code>.
+ * <p>
+ * Each table is loaded by its own connection, so the factory must be thread safe.
+ *
+ * @author grmendes
+ */
+@FunctionalInterface
+public interface ConnectionFactory {
+
+    /**
+     * @return A new connection, which is closed by the caller.
+     * @throws SQLException if the connection can't be opened.
+     */
+    Connection open() throws SQLException;
+}
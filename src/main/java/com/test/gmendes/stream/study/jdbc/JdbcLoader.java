@@ -0,0 +1,208 @@
+package com.test.gmendes.stream.study.jdbc;
+
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.function.IntFunction;
+
+import static com.test.gmendes.stream.study.Constants.SEPARATOR;
+
+/**
+ * Loads tables straight into a database through JDBC, instead of generating SQL text to be replayed.
+ * <p>
+ * Each table gets one parameterized insert, prepared from its compiled layout, on its own connection. So tables can be
+ * loaded in parallel, each one by a different thread. Values are bound with the JDBC type of their column's
+ * {@link com.test.gmendes.stream.study.layout.ColumnType}, following the same rules as the SQL literals: VARCHAR2 is
+ * trimmed, NUMBER is bound as a number, CHAR keeps its padding and blank values are bound as NULL.
+ * <p>
+ * Rows are sent by <code>executeBatch</code> every <code>batchSize</code> rows, and committed every
+ * <code>commitInterval</code> rows, rounded up to whole batches. A failed table is rolled back to its last commit.
+ *
+ * @author grmendes
+ */
+public final class JdbcLoader {
+
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+    public static final int DEFAULT_COMMIT_INTERVAL = 50_000;
+
+    /**
+     * Longest integer bound as a long. Longer ones are bound as text, and converted by the database.
+     */
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private final ConnectionFactory connections;
+    private final int batchSize;
+    private final int commitInterval;
+
+    public JdbcLoader(ConnectionFactory connections) {
+        this(connections, DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_INTERVAL);
+    }
+
+    /**
+     * @param connections    Factory of the connections, one for each table.
+     * @param batchSize      Rows sent to the database by each executeBatch.
+     * @param commitInterval Rows loaded between commits.
+     * @throws IllegalArgumentException if any value is not positive.
+     */
+    public JdbcLoader(ConnectionFactory connections, int batchSize, int commitInterval) {
+        if (batchSize < 1 || commitInterval < 1) {
+            throw new IllegalArgumentException(String.format("Invalid loader: batches of %d rows, commits every %d "
+                    + "rows", batchSize, commitInterval));
+        }
+        this.connections = connections;
+        this.batchSize = batchSize;
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * @param layout Layout of the table.
+     * @return Parameterized insert of the table, with one parameter for each column, in sorted order.
+     */
+    public static String insertStatement(TableLayout layout) {
+        final StringBuilder insert = new StringBuilder(layout.insertPrefix());
+        for (int i = 0; i < layout.columnCount(); i++) {
+            insert.append(i > 0 ? SEPARATOR + "?" : "?");
+        }
+        return insert.append(')').toString();
+    }
+
+    /**
+     * @param layout Layout of the table.
+     * @return Statement creating the table, with the column types of the layout, e.g.
+     * <code>NO_CID VARCHAR2(100)</code>.
+     */
+    public static String createStatement(TableLayout layout) {
+        final StringBuilder create = new StringBuilder("CREATE TABLE ").append(layout.name()).append(" (");
+        for (int i = 0; i < layout.columnCount(); i++) {
+            if (i > 0) {
+                create.append(SEPARATOR);
+            }
+            create.append(layout.column(i)).append(' ').append(layout.type(i).name()).append('(')
+                    .append(layout.size(i)).append(')');
+        }
+        return create.append(')').toString();
+    }
+
+    /**
+     * Creates a table, using a connection of its own.
+     *
+     * @param layout Layout of the table.
+     * @throws RuntimeException if the table can't be created, e.g. if it already exists.
+     */
+    public void createTable(TableLayout layout) {
+        try (Connection connection = connections.open(); Statement statement = connection.createStatement()) {
+            statement.execute(createStatement(layout));
+        } catch (SQLException e) {
+            throw new RuntimeException("Table can't be created: " + layout.name(), e);
+        }
+    }
+
+    /**
+     * Loads all rows of a table, using a connection of its own. Rows are read by the calling thread, in order.
+     *
+     * @param layout   Layout of the table.
+     * @param rowCount Amount of rows of the table.
+     * @param rows     Function pointing a cursor to the row with the given index.
+     * @return Amount of rows loaded.
+     * @throws RuntimeException if any row can't be loaded. Rows committed before the failure are kept.
+     */
+    public int load(TableLayout layout, int rowCount, IntFunction<RowCursor> rows) {
+        try (Connection connection = connections.open()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(insertStatement(layout))) {
+                final StringBuilder value = new StringBuilder();
+                int batched = 0;
+                int uncommitted = 0;
+                for (int row = 0; row < rowCount; row++) {
+                    final RowCursor cursor = rows.apply(row);
+                    for (int column = 0; column < layout.columnCount(); column++) {
+                        bind(insert, column + 1, cursor, column, value);
+                    }
+                    insert.addBatch();
+                    if (++batched == batchSize) {
+                        insert.executeBatch();
+                        uncommitted += batched;
+                        batched = 0;
+                        if (uncommitted >= commitInterval) {
+                            connection.commit();
+                            uncommitted = 0;
+                        }
+                    }
+                }
+                if (batched > 0) {
+                    insert.executeBatch();
+                }
+                connection.commit();
+                return rowCount;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Table can't be loaded: " + layout.name(), e);
+        }
+    }
+
+    /**
+     * Binds a column's value with the JDBC type of its column type. The value builder is reused between calls.
+     */
+    private static void bind(PreparedStatement insert, int parameter, RowCursor row, int column,
+                             StringBuilder value) throws SQLException {
+        final TableLayout layout = row.layout();
+        switch (layout.type(column)) {
+            case VARCHAR2:
+                if (row.isNull(column)) {
+                    insert.setNull(parameter, Types.VARCHAR);
+                    return;
+                }
+                value.setLength(0);
+                insert.setString(parameter, row.appendTrimmed(column, value).toString());
+                return;
+            case NUMBER:
+                if (row.isNull(column)) {
+                    insert.setNull(parameter, Types.NUMERIC);
+                    return;
+                }
+                value.setLength(0);
+                row.appendTrimmed(column, value);
+                int start = 0;
+                while (value.charAt(start) == ' ') {
+                    start++;
+                }
+                if (value.length() - start <= MAX_LONG_DIGITS && isDigits(value, start)) {
+                    long number = 0;
+                    for (int i = start; i < value.length(); i++) {
+                        number = number * 10 + (value.charAt(i) - '0');
+                    }
+                    insert.setLong(parameter, number);
+                } else {
+                    // Not a plain integer: the database converts it, or reports the value.
+                    insert.setString(parameter, value.substring(start));
+                }
+                return;
+            case CHAR:
+                if (row.isNull(column)) {
+                    insert.setNull(parameter, Types.CHAR);
+                    return;
+                }
+                insert.setString(parameter, row.value(column));
+                return;
+            default:
+                throw new IllegalStateException(layout.type(column).name());
+        }
+    }
+
+    private static boolean isDigits(CharSequence value, int start) {
+        for (int i = start; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
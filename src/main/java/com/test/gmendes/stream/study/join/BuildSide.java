@@ -0,0 +1,52 @@
+package com.test.gmendes.stream.study.join;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A tb_ table joined by {@link HashJoin}: the rl_ column referencing it, and its columns written into the records.
+ * <p>
+ * The table is looked up by the code named after it, e.g. CO_CID for tb_cid, see
+ * {@link com.test.gmendes.stream.study.store.TableStore#primaryKey(String)}.
+ *
+ * @author grmendes
+ */
+public final class BuildSide {
+
+    private final String table;
+    private final String probeColumn;
+    private final List<String> outputColumns;
+
+    /**
+     * @param table         The tb_ table name.
+     * @param probeColumn   Column of the rl_ table with the tb_ table's code.
+     * @param outputColumns Columns of the tb_ table written into the records.
+     */
+    public BuildSide(String table, String probeColumn, String... outputColumns) {
+        this.table = table;
+        this.probeColumn = probeColumn;
+        this.outputColumns = Collections.unmodifiableList(Arrays.asList(outputColumns));
+    }
+
+    /**
+     * @return The tb_ table name.
+     */
+    public String table() {
+        return table;
+    }
+
+    /**
+     * @return Column of the rl_ table with the tb_ table's code.
+     */
+    public String probeColumn() {
+        return probeColumn;
+    }
+
+    /**
+     * @return Columns of the tb_ table written into the records.
+     */
+    public List<String> outputColumns() {
+        return outputColumns;
+    }
+}
@@ -0,0 +1,231 @@
+package com.test.gmendes.stream.study.join;
+
+import com.test.gmendes.stream.study.io.LineSpliterator;
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import com.test.gmendes.stream.study.sink.InsertSink;
+import com.test.gmendes.stream.study.store.ColumnKey;
+import com.test.gmendes.stream.study.store.OffHeapTable;
+import com.test.gmendes.stream.study.store.TableStore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+
+/**
+ * Inner join of a rl_ table with the tb_ tables it references, producing denormalized records, e.g. each procedure's
+ * name with the description of each of its CIDs.
+ * <p>
+ * The build side of each tb_ table is its {@link OffHeapTable}, loaded in parallel into direct memory and indexed by
+ * its code. The rl_ table is the probe side: its data file is memory mapped and streamed in parallel by a
+ * {@link LineSpliterator}, and each row looks its codes up straight from the file's bytes. Only the records are
+ * created as Strings.
+ * <p>
+ * Records are tab separated, with their values' trailing whitespaces removed. Rows referencing a code missing from a
+ * tb_ table are skipped, as in a SQL inner join.
+ *
+ * @author grmendes
+ */
+public final class HashJoin {
+
+    public static final char DELIMITER = '\t';
+
+    private final String path;
+    private final TableLayout probeLayout;
+    private final int[] probeOutput;
+    private final List<BuildSide> buildSides;
+    private final OffHeapTable[] buildTables;
+    private final int[] probeKeys;
+    private final int[][] buildOutput;
+    private final LongAdder unmatched = new LongAdder();
+
+    /**
+     * Loads the build sides, so the join is ready to be streamed.
+     *
+     * @param path         Path to the data directory.
+     * @param store        Store holding the tb_ tables, which are loaded if needed.
+     * @param probeTable   The rl_ table name.
+     * @param probeColumns Columns of the rl_ table written into the records, before the tb_ tables' columns.
+     * @param buildSides   tb_ tables joined, whose columns are written in the same order.
+     * @throws IllegalArgumentException if any table or column doesn't exist.
+     */
+    public HashJoin(String path, TableStore store, String probeTable, List<String> probeColumns,
+                    List<BuildSide> buildSides) {
+        this.path = path;
+        this.probeLayout = store.layout(probeTable);
+        this.probeOutput = indexesOf(probeLayout, probeColumns);
+        this.buildSides = new ArrayList<>(buildSides);
+        this.buildTables = buildSides.parallelStream().map(side -> store.table(side.table()))
+                .toArray(OffHeapTable[]::new);
+        this.probeKeys = new int[buildTables.length];
+        this.buildOutput = new int[buildTables.length][];
+        for (int i = 0; i < buildTables.length; i++) {
+            probeKeys[i] = indexesOf(probeLayout, Collections.singletonList(buildSides.get(i).probeColumn()))[0];
+            buildOutput[i] = indexesOf(buildTables[i].layout(), buildSides.get(i).outputColumns());
+        }
+    }
+
+    private static int[] indexesOf(TableLayout layout, List<String> columns) {
+        final int[] indexes = new int[columns.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = layout.indexOf(columns.get(i));
+            if (indexes[i] < 0) {
+                throw new IllegalArgumentException(String.format("Unknown column for %s: %s", layout.name(),
+                        columns.get(i)));
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * @return Names of the records' columns, each one prefixed by its table name.
+     */
+    public List<String> header() {
+        final List<String> header = new ArrayList<>();
+        for (int column : probeOutput) {
+            header.add(probeLayout.name() + '.' + probeLayout.column(column));
+        }
+        for (BuildSide side : buildSides) {
+            for (String column : side.outputColumns()) {
+                header.add(side.table() + '.' + column);
+            }
+        }
+        return header;
+    }
+
+    /**
+     * Streams the records, probing the rl_ table in parallel.
+     *
+     * @return Parallel stream of records.
+     */
+    public Stream<String> stream() {
+        final Stream<RowCursor> rows = LineSpliterator.stream(path, probeLayout.name() + TXT_EXTENSION, probeLayout,
+                true);
+        return StreamSupport.stream(new ProbeSpliterator(rows.spliterator()), true).onClose(rows::close);
+    }
+
+    /**
+     * Writes the header and all records into a sink. The sink is not closed by this method.
+     *
+     * @param sink Destination of the records, e.g. {@link com.test.gmendes.stream.study.sink.ChannelInsertSink} for a
+     *             file.
+     * @return Amount of records written, without the header.
+     */
+    public long execute(InsertSink sink) {
+        sink.accept(String.join(String.valueOf(DELIMITER), header()));
+        final LongAdder records = new LongAdder();
+        stream().forEach(record -> {
+            sink.accept(record);
+            records.increment();
+        });
+        return records.sum();
+    }
+
+    /**
+     * @return Amount of rl_ rows skipped so far, for referencing a missing code.
+     */
+    public long unmatched() {
+        return unmatched.sum();
+    }
+
+    /**
+     * Spliterator joining the rows of a rl_ table's spliterator, skipping the unmatched ones. Each split owns its
+     * {@link Probe}, so the probe state is released together with the stream.
+     */
+    private final class ProbeSpliterator implements Spliterator<String> {
+
+        private final Spliterator<RowCursor> rows;
+        private final Probe probe = new Probe();
+        private String next;
+
+        private ProbeSpliterator(Spliterator<RowCursor> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super String> action) {
+            next = null;
+            while (next == null && rows.tryAdvance(row -> next = probe.join(row))) {
+                // Skips the unmatched rows.
+            }
+            if (next == null) {
+                return false;
+            }
+            action.accept(next);
+            next = null;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super String> action) {
+            rows.forEachRemaining(row -> {
+                final String joined = probe.join(row);
+                if (joined != null) {
+                    action.accept(joined);
+                }
+            });
+        }
+
+        @Override
+        public Spliterator<String> trySplit() {
+            final Spliterator<RowCursor> prefix = rows.trySplit();
+            return prefix == null ? null : new ProbeSpliterator(prefix);
+        }
+
+        @Override
+        public long estimateSize() {
+            return rows.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return rows.characteristics() & ~(SIZED | SUBSIZED);
+        }
+    }
+
+    /**
+     * Probe side state of a split, so no object is created per row but the record.
+     */
+    private final class Probe {
+
+        private final ColumnKey key = new ColumnKey();
+        private final RowCursor[] buildRows = new RowCursor[buildTables.length];
+        private final StringBuilder record = new StringBuilder();
+
+        private Probe() {
+            for (int i = 0; i < buildRows.length; i++) {
+                buildRows[i] = new RowCursor(buildTables[i].layout());
+            }
+        }
+
+        /**
+         * @return The record of the row, or null if any of its codes is missing.
+         */
+        private String join(RowCursor row) {
+            for (int i = 0; i < buildTables.length; i++) {
+                if (buildTables[i].lookup(key.of(row, probeKeys[i]), buildRows[i]) == null) {
+                    unmatched.increment();
+                    return null;
+                }
+            }
+            record.setLength(0);
+            for (int column : probeOutput) {
+                row.appendTrimmed(column, record).append(DELIMITER);
+            }
+            for (int i = 0; i < buildTables.length; i++) {
+                for (int column : buildOutput[i]) {
+                    buildRows[i].appendTrimmed(column, record).append(DELIMITER);
+                }
+            }
+            record.setLength(Math.max(record.length() - 1, 0));
+            return record.toString();
+        }
+    }
+}
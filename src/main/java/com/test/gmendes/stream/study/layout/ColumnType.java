@@ -0,0 +1,136 @@
+package com.test.gmendes.stream.study.layout;
+
+import static com.test.gmendes.stream.study.Constants.NULL;
+
+/**
+ * Column types declared on the Tipo column of layout files.
+ * <p>
+ * Each type knows how to write a column's value as a SQL literal. Literals are appended straight from the chars of the
+ * line into the output, either from a cursor's line or from a value already cut from it, so no String is created per
+ * value. Blank values are written as NULL before any type is asked to encode them.
+ *
+ * @author grmendes
+ */
+public enum ColumnType {
+
+    /**
+     * Text padded with trailing spaces. Written as a quoted string, with the padding removed.
+     */
+    VARCHAR2 {
+        @Override
+        StringBuilder appendLiteral(CharSequence text, int start, int end, StringBuilder builder) {
+            return appendQuoted(text, start, trimmedEnd(text, start, end), builder);
+        }
+    },
+
+    /**
+     * Integer padded with leading zeros. Written as is, with the padding removed. Values which are not a plain integer
+     * are written quoted, so the statement is still valid and the database reports the value.
+     */
+    NUMBER {
+        @Override
+        StringBuilder appendLiteral(CharSequence text, int start, int end, StringBuilder builder) {
+            end = trimmedEnd(text, start, end);
+            while (start < end && text.charAt(start) == ' ') {
+                start++;
+            }
+            for (int i = start; i < end; i++) {
+                final char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    return appendQuoted(text, start, end, builder);
+                }
+            }
+            // The last digit is always kept, so zero is written as 0.
+            while (start < end - 1 && text.charAt(start) == '0') {
+                start++;
+            }
+            for (int i = start; i < end; i++) {
+                builder.append(text.charAt(i));
+            }
+            return builder;
+        }
+    },
+
+    /**
+     * Fixed width text. Written as a quoted string, keeping the padding, since the column is expected to have it.
+     */
+    CHAR {
+        @Override
+        StringBuilder appendLiteral(CharSequence text, int start, int end, StringBuilder builder) {
+            return appendQuoted(text, start, end, builder);
+        }
+    };
+
+    /**
+     * Parses the type as written into the layout file.
+     *
+     * @param tipo Tipo value of a layout line.
+     * @return ColumnType for the value.
+     * @throws IllegalArgumentException if the type is unknown.
+     */
+    public static ColumnType of(String tipo) {
+        return valueOf(tipo.trim());
+    }
+
+    /**
+     * Appends a raw value, as cut from a data line, as a SQL literal of this type. Blank values are written as NULL.
+     *
+     * @param value   Raw value of a column.
+     * @param builder StringBuilder to append the literal.
+     * @return The same StringBuilder received.
+     */
+    public StringBuilder appendLiteral(CharSequence value, StringBuilder builder) {
+        if (isBlank(value, 0, value.length())) {
+            return builder.append(NULL);
+        }
+        return appendLiteral(value, 0, value.length(), builder);
+    }
+
+    /**
+     * Appends a range of chars holding a value, which is not blank, as a SQL literal of this type.
+     *
+     * @param text    Chars with the value, e.g. a cursor over a data line.
+     * @param start   Position of the value's first char.
+     * @param end     Position after the value's last char.
+     * @param builder StringBuilder to append the literal.
+     * @return The same StringBuilder received.
+     */
+    abstract StringBuilder appendLiteral(CharSequence text, int start, int end, StringBuilder builder);
+
+    /**
+     * Checks if a range contains only whitespaces, the same way as <code>value.trim().isEmpty()</code> does.
+     */
+    static boolean isBlank(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends a range of the chars as a quoted string. Quotes inside the value are doubled, as SQL requires.
+     */
+    private static StringBuilder appendQuoted(CharSequence text, int start, int end, StringBuilder builder) {
+        builder.append('\'');
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            if (c == '\'') {
+                builder.append('\'');
+            }
+            builder.append(c);
+        }
+        return builder.append('\'');
+    }
+
+    /**
+     * @return End of the value, without trailing whitespaces.
+     */
+    private static int trimmedEnd(CharSequence text, int start, int end) {
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,193 @@
+package com.test.gmendes.stream.study.layout;
+
+import com.test.gmendes.stream.study.incremental.FileFingerprint;
+import com.test.gmendes.stream.study.io.CacheDirectory;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Persistent cache of layout validations. Layouts only change when DATASUS ships a new release, so once a table's
+ * layout was validated, the validation is skipped until layout.txt or the table's layout file change.
+ * <p>
+ * Each table is keyed by a fingerprint made of the {@link FileFingerprint}s of layout.txt and of the table's layout
+ * file: size, modification time and SHA-256 hash of the content. Files are only read and hashed when their size or
+ * modification time differ from the ones of the last validation, so a run over unchanged layouts reads no layout file
+ * for its validation. The cache is kept as a properties file into the {@link CacheDirectory} of the data directory,
+ * mapping each table to the fingerprint of its last successful validation.
+ * <p>
+ * This class is thread safe. Failures reading or writing the cache file are not fatal: validation just runs again.
+ *
+ * @author grmendes
+ */
+public class LayoutValidationCache {
+
+    public static final String CACHE_FILE_NAME = "layout_validation.cache";
+
+    private static final String SEPARATOR = ";";
+
+    private final String path;
+    private final Path cacheFile;
+    private final Map<String, String> validated = new ConcurrentHashMap<>();
+    /**
+     * Current fingerprint of layout.txt, by its fingerprint of the last validation, so it's checked once per run.
+     */
+    private final Map<String, FileFingerprint> layoutChecks = new ConcurrentHashMap<>();
+    private volatile FileFingerprint layout;
+    private volatile boolean changed;
+
+    /**
+     * Creates a cache for a data directory, into its {@link CacheDirectory}, loading the validations already stored.
+     *
+     * @param path Path to the data directory.
+     */
+    public LayoutValidationCache(String path) {
+        this(path, CacheDirectory.of(path));
+    }
+
+    /**
+     * Creates a cache for a data directory, loading the validations already stored.
+     *
+     * @param path           Path to the data directory.
+     * @param cacheDirectory Directory of the cache file. Created when the cache is saved.
+     */
+    public LayoutValidationCache(String path, Path cacheDirectory) {
+        this.path = path;
+        this.cacheFile = cacheDirectory.resolve(CACHE_FILE_NAME);
+        load();
+    }
+
+    private void load() {
+        if (!Files.exists(cacheFile)) {
+            return;
+        }
+        final Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(cacheFile)) {
+            properties.load(inputStream);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        for (String table : properties.stringPropertyNames()) {
+            validated.put(table, properties.getProperty(table));
+        }
+    }
+
+    /**
+     * Computes the current fingerprint of a table's layout. If the layout files were only touched since the last
+     * validation, their content is the same, so the validation is kept with the new modification times.
+     *
+     * @param tableName The table name.
+     * @return Fingerprint of layout.txt plus the table's layout file.
+     */
+    public String fingerprint(String tableName) {
+        final String previous = validated.get(tableName);
+        final String[] previousParts = previous == null ? new String[0] : previous.split(SEPARATOR, -1);
+        final boolean known = previousParts.length == 2;
+
+        FileFingerprint layoutFile = known
+                ? layoutChecks.computeIfAbsent(previousParts[0], text -> check(text, LAYOUT_FILE_BASE_NAME)) : null;
+        FileFingerprint tableFile = known ? check(previousParts[1], tableName + "_" + LAYOUT_FILE_BASE_NAME) : null;
+        if (layoutFile != null && tableFile != null) {
+            final String fingerprint = layoutFile + SEPARATOR + tableFile;
+            if (validated.replace(tableName, previous, fingerprint) && !fingerprint.equals(previous)) {
+                changed = true;
+            }
+            return fingerprint;
+        }
+        if (layoutFile == null) {
+            layoutFile = layout();
+        }
+        if (tableFile == null) {
+            tableFile = of(tableName + "_" + LAYOUT_FILE_BASE_NAME);
+        }
+        return layoutFile + SEPARATOR + tableFile;
+    }
+
+    /**
+     * @return Fingerprint of the file if it still has the content of the previous one, or null if it changed.
+     */
+    private FileFingerprint check(String previous, String filename) {
+        final FileFingerprint fingerprint = FileFingerprint.parse(previous);
+        try {
+            return fingerprint == null ? null : fingerprint.check(Paths.get(path, filename));
+        } catch (UncheckedIOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return Fingerprint of layout.txt, hashed only once, since all tables share it.
+     */
+    private FileFingerprint layout() {
+        FileFingerprint fingerprint = layout;
+        if (fingerprint == null) {
+            fingerprint = of(LAYOUT_FILE_BASE_NAME);
+            layout = fingerprint;
+        }
+        return fingerprint;
+    }
+
+    private FileFingerprint of(String filename) {
+        try {
+            return FileFingerprint.of(Paths.get(path, filename));
+        } catch (UncheckedIOException e) {
+            // Unreadable files are left for the validation itself to report.
+            return FileFingerprint.MISSING;
+        }
+    }
+
+    /**
+     * @param tableName   The table name.
+     * @param fingerprint Current fingerprint of the table's layout.
+     * @return true if the table was already validated with the same fingerprint.
+     */
+    public boolean isValidated(String tableName, String fingerprint) {
+        return fingerprint.equals(validated.get(tableName));
+    }
+
+    /**
+     * Stores a successful validation. It's only written to disk by {@link #save()}.
+     *
+     * @param tableName   The table name.
+     * @param fingerprint Fingerprint of the validated layout.
+     */
+    public void validated(String tableName, String fingerprint) {
+        if (!fingerprint.equals(validated.put(tableName, fingerprint))) {
+            changed = true;
+        }
+    }
+
+    /**
+     * Writes the cache file, if any validation was added or updated since it was loaded.
+     */
+    public synchronized void save() {
+        if (!changed) {
+            return;
+        }
+        final Properties properties = new Properties();
+        properties.putAll(validated);
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            final Path tempFile = Files.createTempFile(cacheFile.getParent(), CACHE_FILE_NAME, ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                properties.store(outputStream, "Layout validations: size,last modified,sha-256 of layout.txt;"
+                        + " size,last modified,sha-256 of the table's layout file. Safe to delete.");
+            }
+            Files.move(tempFile, cacheFile, REPLACE_EXISTING, ATOMIC_MOVE);
+            changed = false;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.test.gmendes.stream.study.layout;
+
+import java.nio.ByteBuffer;
+
+import static com.test.gmendes.stream.study.Constants.NULL;
+
+/**
+ * Flyweight view over a data line, exposing its columns by index as described by a {@link TableLayout}.
+ * <p>
+ * A cursor is reusable: it just points to the current line, either a String or a range of bytes into a ByteBuffer
+ * (ISO-8859-1 encoded, so one byte is one char). Moving it to another line allocates nothing, and NULL detection runs
+ * over the underlying chars, with no copy. A String is only created when {@link #value(int)} is called. The cursor is
+ * also a CharSequence over the current line, so the line's chars can be read with no copy as well.
+ * <p>
+ * Cursors are not thread safe. Each thread, or each split of a parallel stream, should create its own cursor, see
+ * {@link com.test.gmendes.stream.study.io.RowRangeSpliterator}. Cursors are meant to live no longer than the
+ * processing of their table, so they're never kept by the layout itself.
+ *
+ * @author grmendes
+ */
+public final class RowCursor implements CharSequence {
+
+    private final TableLayout layout;
+
+    private String line;
+    private ByteBuffer bytes;
+    private int offset;
+    private int length;
+    /**
+     * Duplicate of the current buffer, used for bulk reads, so the buffer's position is never changed.
+     */
+    private ByteBuffer view;
+    private byte[] scratch = new byte[0];
+    private char[] chars = new char[0];
+
+    public RowCursor(TableLayout layout) {
+        this.layout = layout;
+    }
+
+    /**
+     * Points the cursor to a line.
+     *
+     * @param line The data line.
+     * @return This cursor.
+     */
+    public RowCursor wrap(String line) {
+        this.line = line;
+        this.bytes = null;
+        this.offset = 0;
+        this.length = line.length();
+        return this;
+    }
+
+    /**
+     * Points the cursor to a line stored into a buffer. Only absolute reads are done, so the buffer's position is not
+     * changed.
+     *
+     * @param bytes  Buffer containing the line.
+     * @param offset Position of the line's first byte into the buffer.
+     * @param length Length of the line, without line terminators.
+     * @return This cursor.
+     */
+    public RowCursor wrap(ByteBuffer bytes, int offset, int length) {
+        if (bytes != this.bytes) {
+            this.view = null;
+        }
+        this.line = null;
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * @return The layout used by this cursor.
+     */
+    public TableLayout layout() {
+        return layout;
+    }
+
+    /**
+     * @return Length of the current line.
+     */
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @param index Position into the current line.
+     * @return The char at the position.
+     */
+    @Override
+    public char charAt(int index) {
+        return line != null ? line.charAt(index) : (char) (bytes.get(offset + index) & 0xFF);
+    }
+
+    /**
+     * Checks if a column contains only whitespaces, the same way as <code>value.trim().isEmpty()</code> does.
+     *
+     * @param column Index of the column, in sorted order.
+     * @return true if the column must be written as NULL.
+     */
+    public boolean isNull(int column) {
+        return ColumnType.isBlank(this, layout.start(column), checkedEnd(column));
+    }
+
+    /**
+     * Appends the raw content of a column, with no intermediate String.
+     *
+     * @param column  Index of the column, in sorted order.
+     * @param builder StringBuilder to append the content.
+     * @return The same StringBuilder received.
+     */
+    public StringBuilder appendValue(int column, StringBuilder builder) {
+        final int start = layout.start(column);
+        final int end = checkedEnd(column);
+        if (line != null) {
+            return builder.append(line, start, end);
+        }
+        return builder.append(read(start, end), 0, end - start);
+    }
+
+    /**
+     * Appends the content of a column with no trailing whitespaces, with no intermediate String.
+     *
+     * @param column  Index of the column, in sorted order.
+     * @param builder StringBuilder to append the content.
+     * @return The same StringBuilder received.
+     */
+    public StringBuilder appendTrimmed(int column, StringBuilder builder) {
+        final int start = layout.start(column);
+        int end = checkedEnd(column);
+        if (line != null) {
+            while (end > start && line.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            return builder.append(line, start, end);
+        }
+        final char[] value = read(start, end);
+        int valueLength = end - start;
+        while (valueLength > 0 && value[valueLength - 1] <= ' ') {
+            valueLength--;
+        }
+        return builder.append(value, 0, valueLength);
+    }
+
+    /**
+     * Copies the raw content of a column as ISO-8859-1 bytes. Lines stored into a buffer are copied by a single bulk
+     * read, with no char conversion at all.
+     *
+     * @param column Index of the column, in sorted order.
+     * @return Scratch array with the column's bytes at its beginning, overwritten by the next read. Only the first
+     * <code>layout().size(column)</code> bytes are the column's.
+     */
+    public byte[] bytes(int column) {
+        final int start = layout.start(column);
+        final int end = checkedEnd(column);
+        if (line != null) {
+            ensureScratch(end - start);
+            for (int i = start; i < end; i++) {
+                scratch[i - start] = (byte) line.charAt(i);
+            }
+            return scratch;
+        }
+        return readBytes(start, end);
+    }
+
+    /**
+     * Copies a range of the current line's bytes by a single bulk read, which is much cheaper than reading byte by
+     * byte, since each absolute read checks its bounds.
+     *
+     * @return Scratch array with the chars at its beginning, overwritten by the next read.
+     */
+    private char[] read(int start, int end) {
+        readBytes(start, end);
+        for (int i = 0; i < end - start; i++) {
+            chars[i] = (char) (scratch[i] & 0xFF);
+        }
+        return chars;
+    }
+
+    private byte[] readBytes(int start, int end) {
+        ensureScratch(end - start);
+        if (view == null) {
+            view = bytes.duplicate();
+        }
+        view.limit(offset + end).position(offset + start);
+        view.get(scratch, 0, end - start);
+        return scratch;
+    }
+
+    private void ensureScratch(int size) {
+        if (scratch.length < size) {
+            scratch = new byte[Math.max(size, scratch.length * 2)];
+            chars = new char[scratch.length];
+        }
+    }
+
+    /**
+     * Appends a column's value as a SQL literal, encoded by the column's {@link ColumnType}. Blank values are written
+     * as NULL. No intermediate String is created.
+     *
+     * @param column  Index of the column, in sorted order.
+     * @param builder StringBuilder to append the literal.
+     * @return The same StringBuilder received.
+     */
+    public StringBuilder appendLiteral(int column, StringBuilder builder) {
+        final int start = layout.start(column);
+        final int end = checkedEnd(column);
+        if (ColumnType.isBlank(this, start, end)) {
+            return builder.append(NULL);
+        }
+        return layout.type(column).appendLiteral(this, start, end, builder);
+    }
+
+    /**
+     * Creates a String with the raw content of a column.
+     *
+     * @param column Index of the column, in sorted order.
+     * @return String with the column's content.
+     */
+    public String value(int column) {
+        if (line != null) {
+            return line.substring(layout.start(column), checkedEnd(column));
+        }
+        return appendValue(column, new StringBuilder(layout.end(column) - layout.start(column))).toString();
+    }
+
+    /**
+     * Creates a String with a range of the current line.
+     *
+     * @param start Position of the range's first char.
+     * @param end   Position after the range's last char.
+     * @return String with the range's content.
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (line != null) {
+            return line.substring(start, end);
+        }
+        if (start == end) {
+            return "";
+        }
+        return new StringBuilder(end - start).append(read(start, end), 0, end - start).toString();
+    }
+
+    /**
+     * @return String with the content of the current line.
+     */
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+
+    /**
+     * @param column Index of the column, in sorted order.
+     * @return End position of the column.
+     * @throws StringIndexOutOfBoundsException if the current line is too short for the column.
+     */
+    private int checkedEnd(int column) {
+        final int end = layout.end(column);
+        if (end > length) {
+            throw new StringIndexOutOfBoundsException(String.format("Column %s of %s ends at %d, but line has %d chars",
+                    layout.column(column), layout.name(), end, length));
+        }
+        return end;
+    }
+}
@@ -0,0 +1,188 @@
+package com.test.gmendes.stream.study.layout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.test.gmendes.stream.study.Constants.LAYOUT_HEADER;
+import static com.test.gmendes.stream.study.Constants.SEPARATOR;
+
+/**
+ * Compiled version of a table's layout. The layout lines are parsed only once, and the positional information of each
+ * column is kept into primitive arrays, so the row loop does not need to split nor parse anything.
+ * <p>
+ * Columns are kept sorted by name, which is the order used by the generated inserts.
+ * <p>
+ * Layout files use 1-based, inclusive positions (Inicio and Fim). They are converted here to 0-based start and
+ * exclusive end, so they can be used directly by <code>String.substring</code>.
+ * <p>
+ * Instances are immutable, so they can be shared by any number of threads. Each thread, or each split of a parallel
+ * stream, creates its own reusable {@link RowCursor}.
+ *
+ * @author grmendes
+ */
+public final class TableLayout {
+
+    private final String name;
+    private final String[] columns;
+    private final int[] start;
+    private final int[] end;
+    private final int[] size;
+    private final ColumnType[] type;
+    private final int width;
+    private final String insertPrefix;
+
+    private TableLayout(String name, String[] columns, int[] start, int[] end, int[] size, ColumnType[] type) {
+        this.name = name;
+        this.columns = columns;
+        this.start = start;
+        this.end = end;
+        this.size = size;
+        this.type = type;
+
+        int maxEnd = 0;
+        for (int columnEnd : end) {
+            maxEnd = Math.max(maxEnd, columnEnd);
+        }
+        this.width = maxEnd;
+        this.insertPrefix = "INSERT INTO " + name + " (" + String.join(SEPARATOR, columns) + ") VALUES (";
+    }
+
+    /**
+     * Compiles a table's layout lines. The header line, if present, is ignored.
+     * <p>
+     * Example of layout line: <code>CO_CID,4,1,4,VARCHAR2</code>, which means column CO_CID, with size 4, starting at
+     * position 1 and ending at position 4, of VARCHAR2 type.
+     *
+     * @param name        The table name.
+     * @param layoutLines Layout lines of the table, as written into layout.txt.
+     * @return TableLayout with the compiled information.
+     * @throws IllegalArgumentException if any layout line is malformed.
+     */
+    public static TableLayout compile(String name, List<String> layoutLines) {
+        final List<String[]> parsed = new ArrayList<>(layoutLines.size());
+        for (String layoutLine : layoutLines) {
+            if (layoutLine.isEmpty() || LAYOUT_HEADER.equals(layoutLine)) {
+                continue;
+            }
+            final String[] layoutInfo = layoutLine.split(SEPARATOR);
+            if (layoutInfo.length < 5) {
+                throw new IllegalArgumentException(String.format("Invalid layout line for %s: %s", name, layoutLine));
+            }
+            parsed.add(layoutInfo);
+        }
+        Collections.sort(parsed, (a, b) -> a[0].compareTo(b[0]));
+
+        final int count = parsed.size();
+        final String[] columns = new String[count];
+        final int[] start = new int[count];
+        final int[] end = new int[count];
+        final int[] size = new int[count];
+        final ColumnType[] type = new ColumnType[count];
+        for (int i = 0; i < count; i++) {
+            final String[] layoutInfo = parsed.get(i);
+            // layoutInfo[0] = Column name
+            // layoutInfo[1] = Size of information
+            // layoutInfo[2] = Start position of information, 1-based
+            // layoutInfo[3] = End position of information, 1-based and inclusive
+            // layoutInfo[4] = Type of information
+            columns[i] = layoutInfo[0];
+            size[i] = Integer.parseInt(layoutInfo[1]);
+            start[i] = Integer.parseInt(layoutInfo[2]) - 1;
+            end[i] = Integer.parseInt(layoutInfo[3]);
+            type[i] = ColumnType.of(layoutInfo[4]);
+        }
+
+        return new TableLayout(name, columns, start, end, size, type);
+    }
+
+    /**
+     * @return The table name.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return Amount of columns of the table.
+     */
+    public int columnCount() {
+        return columns.length;
+    }
+
+    /**
+     * @param column Index of the column, in sorted order.
+     * @return Name of the column.
+     */
+    public String column(int column) {
+        return columns[column];
+    }
+
+    /**
+     * @return Unmodifiable list with the names of the columns, in sorted order.
+     */
+    public List<String> columns() {
+        return Collections.unmodifiableList(Arrays.asList(columns));
+    }
+
+    /**
+     * @param name Name of the column.
+     * @return Index of the column, or -1 if the table has no column with the name.
+     */
+    public int indexOf(String name) {
+        final int index = Arrays.binarySearch(columns, name);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * @param column Index of the column, in sorted order.
+     * @return Start position of the column into the line, 0-based and inclusive.
+     */
+    public int start(int column) {
+        return start[column];
+    }
+
+    /**
+     * @param column Index of the column, in sorted order.
+     * @return End position of the column into the line, 0-based and exclusive.
+     */
+    public int end(int column) {
+        return end[column];
+    }
+
+    /**
+     * @param column Index of the column, in sorted order.
+     * @return Size of the column, as declared by the layout.
+     */
+    public int size(int column) {
+        return size[column];
+    }
+
+    /**
+     * @param column Index of the column, in sorted order.
+     * @return Type of the column.
+     */
+    public ColumnType type(int column) {
+        return type[column];
+    }
+
+    /**
+     * @return Length of a full data line, which is the greatest end position of all columns.
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * @return The base insert text, which contains all information before the values itself.
+     */
+    public String insertPrefix() {
+        return insertPrefix;
+    }
+
+    @Override
+    public String toString() {
+        return name + Arrays.toString(columns);
+    }
+}
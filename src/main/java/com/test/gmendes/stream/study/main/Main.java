@@ -1,27 +1,43 @@
 package com.test.gmendes.stream.study.main;
 
+import com.test.gmendes.stream.study.benchmark.BenchmarkPath;
+import com.test.gmendes.stream.study.benchmark.LayoutBenchmark;
+import com.test.gmendes.stream.study.io.Latin1LineReader;
+import com.test.gmendes.stream.study.io.MappedFile;
+import com.test.gmendes.stream.study.io.ReadMode;
 import com.test.gmendes.stream.study.java7.v1.ProcessJava7V1;
-import com.test.gmendes.stream.study.java7.v2.ListToMapJava7Tests;
 import com.test.gmendes.stream.study.java7.v2.ProcessJava7V2;
 import com.test.gmendes.stream.study.java8.v1.ProcessJava8V1;
-import com.test.gmendes.stream.study.java8.v2.ListToMapJava8Tests;
 import com.test.gmendes.stream.study.java8.v2.ProcessJava8V2;
 import com.test.gmendes.stream.study.java8.v3.ProcessJava8V3;
+import com.test.gmendes.stream.study.pipeline.Pipeline;
+import com.test.gmendes.stream.study.regression.BenchmarkArchive;
+import com.test.gmendes.stream.study.regression.RegressionGate;
+import com.test.gmendes.stream.study.schedule.TableScheduler;
+import com.test.gmendes.stream.study.sink.InsertBatching;
+import com.test.gmendes.stream.study.sink.ListInsertSink;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
 import org.openjdk.jmh.results.format.ResultFormatType;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
-import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
-import java.io.File;
-import java.security.InvalidParameterException;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
 
@@ -35,28 +51,58 @@ import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
 @State(Scope.Benchmark)
 public class Main {
 
-    private static String path;
-
-    static {
-        path = System.getProperty("path");
-        if (path == null || path.isEmpty()) {
-            throw new InvalidParameterException("This program should receive a path to a directory as argument. Please use -Dpath='/path/to/Stream_Study/src/main/resources/Sigtap/' argument to java command.");
-        }
-        if (!path.endsWith(File.separator)) {
-            path = path + File.separator;
-        }
-    }
-
-    public static void main(String... args) throws RunnerException {
-        Options opt = new OptionsBuilder()
-                .include(Main.class.getSimpleName())
+    private static final String path = BenchmarkPath.get();
+
+    /**
+     * Runs the benchmarks. With <code>-Dhistory=/path/to/archive</code>, the run is profiled with the GC profiler,
+     * archived into a {@link BenchmarkArchive} and checked against its baseline, exiting with status 1 if any benchmark
+     * regressed. Also accepts <code>-Dthreshold=0.05</code> for the regression threshold,
+     * <code>-Dversion=...</code> for the version recorded and <code>-DreplaceBaseline=true</code> to make the run the
+     * new baseline of the benchmarks it ran, which never fails. A regex given as argument runs only the benchmarks
+     * matching it, otherwise all of them are run.
+     */
+    public static void main(String... args) throws RunnerException, CommandLineOptionException {
+        // Command line arguments are handed to JMH, so profilers can be enabled, e.g. "-prof gc".
+        final CommandLineOptions commandLine = new CommandLineOptions(args);
+        final ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(commandLine)
                 .resultFormat(ResultFormatType.TEXT)
                 .shouldDoGC(true)
                 .warmupIterations(5)
                 .forks(1)
-                .threads(1)
-                .build();
-        new Runner(opt).run();
+                .threads(1);
+        // JMH merges the includes, so the defaults are added only when no benchmark is picked by the command line.
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include(Main.class.getSimpleName())
+                    .include(LayoutBenchmark.class.getPackage().getName());
+        }
+
+        final String history = System.getProperty("history");
+        final BenchmarkArchive archive = history == null || history.isEmpty() ? null
+                : new BenchmarkArchive(Paths.get(history));
+        if (archive != null) {
+            builder.resultFormat(ResultFormatType.JSON).result(archive.resultFile().toString());
+            if (commandLine.getProfilers().stream()
+                    .noneMatch(profiler -> profiler.getKlass().equals(GCProfiler.class.getName()))) {
+                builder.addProfiler(GCProfiler.class);
+            }
+        }
+        final Collection<RunResult> results = new Runner(builder.build()).run();
+
+        if (archive != null) {
+            final boolean replaceBaseline = Boolean.getBoolean("replaceBaseline");
+            final String version = System.getProperty("version", Main.class.getPackage().getImplementationVersion());
+            final List<RegressionGate.Regression> regressions = archive.record(results,
+                    version != null ? version : "unknown", new RegressionGate(Double.parseDouble(
+                            System.getProperty("threshold", Double.toString(RegressionGate.DEFAULT_THRESHOLD)))),
+                    replaceBaseline);
+            System.out.println("Run " + archive.run() + " archived into " + history + ", " + regressions.size()
+                    + " regression(s)");
+            regressions.forEach(regression -> System.out.println("REGRESSION " + regression));
+            if (!regressions.isEmpty() && !replaceBaseline) {
+                System.exit(1);
+            }
+        }
     }
 
     @Benchmark
@@ -80,83 +126,78 @@ public class Main {
     }
 
     @Benchmark
-    public void readFileJava8V3() {
-        // This test actually does not evaluates the file content, because it returns a stream.
+    public void readFileJava8V3(Blackhole blackhole) {
+        // The stream is lazy, so its lines are consumed, or the file would not be read at all.
         // It's really important to call close() on end of stream, so the file is closed.
-        ProcessJava8V3.readFile(path, LAYOUT_FILE_BASE_NAME).close();
+        try (Stream<String> lines = ProcessJava8V3.readFile(path, LAYOUT_FILE_BASE_NAME)) {
+            lines.forEach(blackhole::consume);
+        }
     }
 
     @Benchmark
-    public void listToMap7V1() {
-        ProcessJava7V1.listToMap(ProcessJava8V2.readFile(path, LAYOUT_FILE_BASE_NAME));
+    public void readFileLatin1(Blackhole blackhole) {
+        blackhole.consume(Latin1LineReader.readFile(path, LAYOUT_FILE_BASE_NAME));
     }
 
     @Benchmark
-    public void listToMap7V2() {
-        ProcessJava7V2.listToMap(ProcessJava8V2.readFile(path, LAYOUT_FILE_BASE_NAME));
+    public void readFileMapped(Blackhole blackhole) {
+        // The mapped file is consumed, so mapping and indexing it can't be removed as dead code.
+        blackhole.consume(MappedFile.readFile(path, LAYOUT_FILE_BASE_NAME));
     }
 
     @Benchmark
-    public void listToMap8V1() {
-        ProcessJava8V1.listToMap(ProcessJava8V2.readFile(path, LAYOUT_FILE_BASE_NAME), String::isEmpty);
+    public void ProcessJava7V1() {
+        new ProcessJava7V1(path).execute();
     }
 
     @Benchmark
-    public void listToMap8V2() {
-        ProcessJava8V2.listToMap(ProcessJava8V2.readFile(path, LAYOUT_FILE_BASE_NAME), String::isEmpty);
+    public void ProcessJava7V2() {
+        new ProcessJava7V2(path).execute();
     }
 
-    //    @Benchmark
-//    public void splitList8V3() {
-    // This test actually does not evaluates the file content, because it returns a stream.
-    // This test is commented because it's producing lots of exceptions during execution, even calling close()
-    // method from Stream.
-//        ProcessJava8V3.splitList(ProcessJava8V3.readFile(path, LAYOUT_FILE_BASE_NAME), String::isEmpty).close();
-//    }
-
     @Benchmark
-    public void listToMap7Edges() {
-        ListToMapJava7Tests.listToMap7Edges(ProcessJava8V2.readFile(path, LAYOUT_FILE_BASE_NAME));
+    public void ProcessJava8V1() {
+        new ProcessJava8V1(path).execute();
     }
 
     @Benchmark
-    public void listToMap8ForEach() {
-        ListToMapJava8Tests.listToMap8ForEach(ProcessJava8V2.readFile(path, LAYOUT_FILE_BASE_NAME), String::isEmpty);
+    public void ProcessJava8V2() {
+        new ProcessJava8V2(path).execute();
     }
 
     @Benchmark
-    public void listToMap8CollectorOptimized() {
-        ListToMapJava8Tests.listToMap8CollectorOptimized(ProcessJava8V2.readFile(path, LAYOUT_FILE_BASE_NAME), String::isEmpty);
+    public void ProcessJava8V2Mapped() {
+        new ProcessJava8V2(path).execute(ReadMode.MAPPED);
     }
 
     @Benchmark
-    public void listToMap8Edges() {
-        ListToMapJava8Tests.listToMap8Edges(ProcessJava8V2.readFile(path, LAYOUT_FILE_BASE_NAME), String::isEmpty);
+    public void ProcessJava8V2Snapshot() {
+        new ProcessJava8V2(path).execute(ReadMode.SNAPSHOT);
     }
 
     @Benchmark
-    public void ProcessJava7V1() {
-        new ProcessJava7V1(path).execute();
+    public void ProcessJava8V2Scheduled() {
+        new ProcessJava8V2(path).executeScheduled(new ListInsertSink(), ReadMode.MAPPED, new TableScheduler());
     }
 
     @Benchmark
-    public void ProcessJava7V2() {
-        new ProcessJava7V2(path).execute();
+    public void ProcessJava8V2Pipelined() {
+        new ProcessJava8V2(path).executePipelined(new ListInsertSink(), new Pipeline());
     }
 
     @Benchmark
-    public void ProcessJava8V1() {
-        new ProcessJava8V1(path).execute();
+    public void ProcessJava8V2Batched() {
+        new ProcessJava8V2(path).execute(new ListInsertSink(), ReadMode.MAPPED, new InsertBatching(500, 1 << 20));
     }
 
     @Benchmark
-    public void ProcessJava8V2() {
-        new ProcessJava8V2(path).execute();
+    public void ProcessJava8V3() {
+        new ProcessJava8V3(path).execute();
     }
 
     @Benchmark
-    public void ProcessJava8V3() {
-        new ProcessJava8V3(path).execute();
+    public void ProcessJava8V3Snapshot() {
+        new ProcessJava8V3(path).execute(new ListInsertSink(), ReadMode.SNAPSHOT);
     }
 
 }
@@ -0,0 +1,56 @@
+package com.test.gmendes.stream.study.pipeline;
+
+import com.test.gmendes.stream.study.layout.TableLayout;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reusable unit of work of the {@link Pipeline}: whole rows of one table, read by the reader stage, and the inserts
+ * encoded from them by a parser. Chunks go around the stages and back to the reader, so their arrays are allocated
+ * once per run.
+ *
+ * @author grmendes
+ */
+final class Chunk {
+
+    long sequence;
+    TableLayout layout;
+    byte[] bytes;
+    ByteBuffer buffer;
+    int length;
+    final StringBuilder output = new StringBuilder();
+    int[] insertEnds = new int[1024];
+    int insertCount;
+
+    Chunk(int size) {
+        this.bytes = new byte[size];
+        this.buffer = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Prepares the chunk to receive rows of a table.
+     */
+    void reset(TableLayout layout) {
+        this.layout = layout;
+        this.length = 0;
+    }
+
+    /**
+     * Doubles the chunk's size, keeping its content, for rows longer than the chunk.
+     */
+    void grow() {
+        bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        buffer = ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Marks the end of an insert, appended into the output.
+     */
+    void endInsert() {
+        if (insertCount == insertEnds.length) {
+            insertEnds = Arrays.copyOf(insertEnds, insertCount * 2);
+        }
+        insertEnds[insertCount++] = output.length();
+    }
+}
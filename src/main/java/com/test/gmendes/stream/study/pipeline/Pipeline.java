@@ -0,0 +1,441 @@
+package com.test.gmendes.stream.study.pipeline;
+
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import com.test.gmendes.stream.study.sink.InsertSink;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Runs tables through three stages connected by {@link RingBuffer}s, so reading, encoding and writing overlap:
+ * <li>One reader thread fills chunks with whole rows of the tables' data files, table after table.</li>
+ * <li>A pool of parser threads encodes each chunk's rows into its output.</li>
+ * <li>One writer thread hands the inserts to the sink, in the order the chunks were read.</li>
+ * <p>
+ * There's a fixed amount of chunks, which go from the reader to the parsers, from the parsers to the writer, and back
+ * to the reader. When the writer or the parsers fall behind, the reader runs out of chunks and waits, so the memory of
+ * a run is bounded by the chunks, no matter how big the tables are. Since the writer puts the chunks back in order,
+ * the output is the same for any amount of parsers.
+ * <p>
+ * Waiting threads yield, and then park for short periods, instead of spinning: the stages may have fewer cores than
+ * threads. Each run reports how long each stage was busy and waiting, see {@link StageUtilization}.
+ *
+ * @author grmendes
+ */
+public class Pipeline {
+
+    public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+    /**
+     * Chunks for each parser, so every parser has one to work on while others are read and written.
+     */
+    public static final int DEFAULT_CHUNKS_PER_PARSER = 4;
+
+    private static final int YIELDS_BEFORE_PARKING = 64;
+    private static final long PARK_NANOS = 50_000;
+
+    private final int parsers;
+    private final int chunkSize;
+    private final int chunkCount;
+
+    /**
+     * Creates a pipeline with one parser for each core left by the reader and the writer, and default chunks.
+     */
+    public Pipeline() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 2));
+    }
+
+    public Pipeline(int parsers) {
+        this(parsers, DEFAULT_CHUNK_SIZE, parsers * DEFAULT_CHUNKS_PER_PARSER + 2);
+    }
+
+    /**
+     * @param parsers    Amount of parser threads.
+     * @param chunkSize  Initial size of each chunk, in bytes. Chunks grow for rows longer than it.
+     * @param chunkCount Amount of chunks, which bounds how far the reader gets ahead of the writer.
+     * @throws IllegalArgumentException if any value is not positive.
+     */
+    public Pipeline(int parsers, int chunkSize, int chunkCount) {
+        if (parsers < 1 || chunkSize < 1 || chunkCount < 1) {
+            throw new IllegalArgumentException(String.format("Invalid pipeline: %d parsers, %d chunks of %d bytes",
+                    parsers, chunkCount, chunkSize));
+        }
+        this.parsers = parsers;
+        this.chunkSize = chunkSize;
+        this.chunkCount = chunkCount;
+    }
+
+    /**
+     * Runs the tables through the pipeline, blocking until all of them are written. Tables whose data file can't be
+     * read are handled as empty, as readFile does. The sink is not closed by this method.
+     *
+     * @param path    Path to the data directory.
+     * @param layouts Layouts of the tables, in the order they're written.
+     * @param encoder Appends the insert of the row into the StringBuilder.
+     * @param sink    Destination of the inserts.
+     * @return Utilization of the reader, parser and writer stages.
+     * @throws RuntimeException if any stage fails. The first failure is thrown, and all stages are stopped.
+     */
+    public List<StageUtilization> run(String path, List<TableLayout> layouts,
+                                      BiConsumer<RowCursor, StringBuilder> encoder, InsertSink sink) {
+        return new Run(path, layouts, encoder, sink).execute();
+    }
+
+    /**
+     * State of one run: the ring buffers, the chunks and the stages' counters.
+     */
+    private final class Run {
+
+        private final String path;
+        private final List<TableLayout> layouts;
+        private final BiConsumer<RowCursor, StringBuilder> encoder;
+        private final InsertSink sink;
+
+        private final RingBuffer<Chunk> free = new RingBuffer<>(chunkCount);
+        private final RingBuffer<Chunk> parse = new RingBuffer<>(chunkCount);
+        private final RingBuffer<Chunk> write = new RingBuffer<>(chunkCount);
+
+        private final Stage reader = new Stage("reader", 1);
+        private final Stage parser = new Stage("parser", parsers);
+        private final Stage writer = new Stage("writer", 1);
+
+        /**
+         * Amount of chunks read, only known when the reader is done. -1 before it.
+         */
+        private volatile long chunksRead = -1;
+        private volatile Throwable failure;
+
+        private Run(String path, List<TableLayout> layouts, BiConsumer<RowCursor, StringBuilder> encoder,
+                    InsertSink sink) {
+            this.path = path;
+            this.layouts = layouts;
+            this.encoder = encoder;
+            this.sink = sink;
+            for (int i = 0; i < chunkCount; i++) {
+                free.offer(new Chunk(chunkSize));
+            }
+        }
+
+        private List<StageUtilization> execute() {
+            final long start = System.nanoTime();
+            final List<Thread> threads = new ArrayList<>(parsers + 2);
+            threads.add(new Thread(guard(this::read), "pipeline-reader"));
+            for (int i = 0; i < parsers; i++) {
+                threads.add(new Thread(guard(this::parse), "pipeline-parser-" + i));
+            }
+            threads.add(new Thread(guard(this::write), "pipeline-writer"));
+            threads.forEach(Thread::start);
+            try {
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            } catch (InterruptedException e) {
+                failure = e;
+                Thread.currentThread().interrupt();
+            }
+            final long wall = System.nanoTime() - start;
+
+            final Throwable thrown = failure;
+            if (thrown instanceof RuntimeException) {
+                throw (RuntimeException) thrown;
+            }
+            if (thrown instanceof Error) {
+                throw (Error) thrown;
+            }
+            if (thrown != null) {
+                throw new RuntimeException("Pipeline failed", thrown);
+            }
+
+            final List<StageUtilization> stages = new ArrayList<>(3);
+            stages.add(reader.utilization(wall));
+            stages.add(parser.utilization(wall));
+            stages.add(writer.utilization(wall));
+            return stages;
+        }
+
+        /**
+         * Keeps the first failure of any stage, which makes all the others stop.
+         */
+        private Runnable guard(Runnable stage) {
+            return () -> {
+                try {
+                    stage.run();
+                } catch (Throwable e) {
+                    synchronized (this) {
+                        if (failure == null) {
+                            failure = e;
+                        }
+                    }
+                }
+            };
+        }
+
+        private void read() {
+            final long start = System.nanoTime();
+            final long[] waited = new long[1];
+            // The partial row at the end of a chunk, which starts the next one. Copied aside, so the reader never
+            // holds more than one chunk, and a single chunk is enough to run.
+            byte[] carry = new byte[0];
+            long sequence = 0;
+            for (TableLayout layout : layouts) {
+                try (FileChannel channel = FileChannel.open(Paths.get(path, layout.name() + TXT_EXTENSION), READ)) {
+                    int carried = 0;
+                    boolean endOfFile = false;
+                    while (!endOfFile) {
+                        final Chunk chunk = take(free, waited, null);
+                        if (chunk == null) {
+                            return;
+                        }
+                        chunk.reset(layout);
+                        while (chunk.bytes.length < carried) {
+                            chunk.grow();
+                        }
+                        System.arraycopy(carry, 0, chunk.bytes, 0, carried);
+                        chunk.length = carried;
+                        carried = 0;
+
+                        while (true) {
+                            if (chunk.length == chunk.bytes.length) {
+                                final int lastBreak = lastBreak(chunk);
+                                if (lastBreak >= 0) {
+                                    carried = chunk.length - lastBreak - 1;
+                                    if (carry.length < carried) {
+                                        carry = new byte[chunk.bytes.length];
+                                    }
+                                    System.arraycopy(chunk.bytes, lastBreak + 1, carry, 0, carried);
+                                    chunk.length = lastBreak + 1;
+                                    break;
+                                }
+                                // A row longer than the chunk.
+                                chunk.grow();
+                            }
+                            chunk.buffer.clear().position(chunk.length);
+                            final int read = channel.read(chunk.buffer);
+                            if (read < 0) {
+                                endOfFile = true;
+                                break;
+                            }
+                            chunk.length += read;
+                        }
+
+                        if (chunk.length > 0) {
+                            chunk.sequence = sequence++;
+                            put(parse, chunk, waited);
+                        } else {
+                            put(free, chunk, waited);
+                        }
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            chunksRead = sequence;
+            reader.add(sequence, System.nanoTime() - start, 0, waited[0]);
+        }
+
+        private int lastBreak(Chunk chunk) {
+            for (int i = chunk.length - 1; i >= 0; i--) {
+                if (chunk.bytes[i] == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void parse() {
+            final long start = System.nanoTime();
+            final long[] starved = new long[1];
+            final long[] blocked = new long[1];
+            long items = 0;
+            Chunk chunk;
+            while ((chunk = take(parse, starved, () -> chunksRead >= 0)) != null) {
+                encode(chunk);
+                put(write, chunk, blocked);
+                items++;
+            }
+            parser.add(items, System.nanoTime() - start, starved[0], blocked[0]);
+        }
+
+        /**
+         * Encodes every row of the chunk. Rows are split the same way as {@link
+         * com.test.gmendes.stream.study.io.MappedFile} does.
+         */
+        private void encode(Chunk chunk) {
+            final RowCursor cursor = new RowCursor(chunk.layout);
+            chunk.output.setLength(0);
+            chunk.insertCount = 0;
+            int rowStart = 0;
+            for (int i = 0; i < chunk.length; i++) {
+                if (chunk.bytes[i] == '\n') {
+                    encodeRow(chunk, cursor, rowStart, i);
+                    rowStart = i + 1;
+                }
+            }
+            if (rowStart < chunk.length) {
+                encodeRow(chunk, cursor, rowStart, chunk.length);
+            }
+        }
+
+        private void encodeRow(Chunk chunk, RowCursor cursor, int start, int end) {
+            if (end > start && chunk.bytes[end - 1] == '\r') {
+                end--;
+            }
+            encoder.accept(cursor.wrap(chunk.buffer, start, end - start), chunk.output);
+            chunk.endInsert();
+        }
+
+        private void write() {
+            final long start = System.nanoTime();
+            final long[] starved = new long[1];
+            final long[] blocked = new long[1];
+            // Chunks are read in sequence, and at most chunkCount of them are out at once, so they fit by sequence.
+            final Chunk[] pending = new Chunk[free.capacity()];
+            final int mask = pending.length - 1;
+            final InsertSlice insert = new InsertSlice();
+            long next = 0;
+            while (true) {
+                final long written = next;
+                final Chunk chunk = take(this.write, starved, () -> chunksRead == written);
+                if (chunk == null) {
+                    break;
+                }
+                pending[(int) chunk.sequence & mask] = chunk;
+                Chunk ready;
+                while ((ready = pending[(int) next & mask]) != null && ready.sequence == next) {
+                    pending[(int) next & mask] = null;
+                    insert.output = ready.output;
+                    int insertStart = 0;
+                    for (int i = 0; i < ready.insertCount; i++) {
+                        insert.start = insertStart;
+                        insert.end = ready.insertEnds[i];
+                        sink.accept(insert);
+                        insertStart = insert.end;
+                    }
+                    put(free, ready, blocked);
+                    next++;
+                }
+            }
+            writer.add(next, System.nanoTime() - start, starved[0], blocked[0]);
+        }
+
+        /**
+         * Takes an element, waiting while the buffer is empty.
+         *
+         * @param done   Tells if no element will come anymore. Null if elements always come.
+         * @param waited Nanos spent waiting, accumulated at index 0.
+         * @return The element, or null if it's done, or if the run failed.
+         */
+        private Chunk take(RingBuffer<Chunk> buffer, long[] waited, BooleanSupplier done) {
+            Chunk chunk = buffer.poll();
+            if (chunk != null) {
+                return chunk;
+            }
+            final long start = System.nanoTime();
+            int attempts = 0;
+            while ((chunk = buffer.poll()) == null && failure == null) {
+                if (done != null && done.getAsBoolean()) {
+                    // Polled once more, so an element added right before it got done is not lost.
+                    chunk = buffer.poll();
+                    break;
+                }
+                idle(attempts++);
+            }
+            waited[0] += System.nanoTime() - start;
+            return chunk;
+        }
+
+        /**
+         * Puts an element, waiting while the buffer is full.
+         *
+         * @param waited Nanos spent waiting, accumulated at index 0.
+         */
+        private void put(RingBuffer<Chunk> buffer, Chunk chunk, long[] waited) {
+            if (buffer.offer(chunk)) {
+                return;
+            }
+            final long start = System.nanoTime();
+            int attempts = 0;
+            while (!buffer.offer(chunk) && failure == null) {
+                idle(attempts++);
+            }
+            waited[0] += System.nanoTime() - start;
+        }
+    }
+
+    private static void idle(int attempts) {
+        if (attempts < YIELDS_BEFORE_PARKING) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    /**
+     * Counters of one stage, added by each of its threads when it ends.
+     */
+    private static final class Stage {
+
+        private final String name;
+        private final int threads;
+        private long items;
+        private long totalNanos;
+        private long starvedNanos;
+        private long blockedNanos;
+
+        private Stage(String name, int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+
+        private synchronized void add(long items, long totalNanos, long starvedNanos, long blockedNanos) {
+            this.items += items;
+            this.totalNanos += totalNanos;
+            this.starvedNanos += starvedNanos;
+            this.blockedNanos += blockedNanos;
+        }
+
+        private synchronized StageUtilization utilization(long wallNanos) {
+            return new StageUtilization(name, threads, items, wallNanos, totalNanos - starvedNanos - blockedNanos,
+                    starvedNanos, blockedNanos);
+        }
+    }
+
+    /**
+     * Reusable view of one insert into a chunk's output, so no String is created for the sink.
+     */
+    private static final class InsertSlice implements CharSequence {
+
+        private StringBuilder output;
+        private int start;
+        private int end;
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return output.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return output.subSequence(start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return output.substring(start, end);
+        }
+    }
+}
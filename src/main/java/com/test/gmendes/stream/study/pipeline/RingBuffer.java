@@ -0,0 +1,97 @@
+package com.test.gmendes.stream.study.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue, safe for many producers and many consumers.
+ * <p>
+ * Each slot has a sequence number telling whose turn it is: the producer of position <code>p</code> waits for the
+ * sequence <code>p</code>, and its consumer for <code>p + 1</code>. Producers and consumers claim positions by a CAS
+ * on their own counter, so they never contend with each other, and nothing is allocated per element.
+ * <p>
+ * Offers and polls never block: they fail when the buffer is full or empty, and the caller decides how to wait. That's
+ * how backpressure is applied between the pipeline stages.
+ *
+ * @param <T> Type of the elements.
+ * @author grmendes
+ */
+final class RingBuffer<T> {
+
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity Minimum amount of elements. Rounded up to a power of two.
+     */
+    RingBuffer(int capacity) {
+        final int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @param element Element to be added.
+     * @return false if the buffer is full.
+     */
+    boolean offer(T element) {
+        long position = tail.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    // Publishes the element: it's visible to whoever reads the new sequence.
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * @return The oldest element, or null if the buffer is empty.
+     */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long position = head.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    final T element = (T) elements[index];
+                    elements[index] = null;
+                    // Frees the slot for the producer of the next lap.
+                    sequences.lazySet(index, position + mask + 1);
+                    return element;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * @return Capacity of the buffer.
+     */
+    int capacity() {
+        return elements.length;
+    }
+}
@@ -0,0 +1,92 @@
+package com.test.gmendes.stream.study.pipeline;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utilization of one stage of a {@link Pipeline} run, summed over all threads of the stage.
+ * <p>
+ * Every nano of a stage's threads is either busy, starved, waiting for input from the previous stage, or blocked,
+ * waiting for room in the next one. The stage with the highest utilization is the bottleneck: the others spend their
+ * time waiting for it.
+ *
+ * @author grmendes
+ */
+public final class StageUtilization {
+
+    private final String name;
+    private final int threads;
+    private final long items;
+    private final long wallNanos;
+    private final long busyNanos;
+    private final long starvedNanos;
+    private final long blockedNanos;
+
+    StageUtilization(String name, int threads, long items, long wallNanos, long busyNanos, long starvedNanos,
+                     long blockedNanos) {
+        this.name = name;
+        this.threads = threads;
+        this.items = items;
+        this.wallNanos = wallNanos;
+        this.busyNanos = busyNanos;
+        this.starvedNanos = starvedNanos;
+        this.blockedNanos = blockedNanos;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    /**
+     * @return Amount of chunks handled by the stage.
+     */
+    public long items() {
+        return items;
+    }
+
+    /**
+     * @return Nanos from the start to the end of the whole run.
+     */
+    public long wallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return Sum of the nanos the stage's threads spent working.
+     */
+    public long busyNanos() {
+        return busyNanos;
+    }
+
+    /**
+     * @return Sum of the nanos the stage's threads spent waiting for the previous stage.
+     */
+    public long starvedNanos() {
+        return starvedNanos;
+    }
+
+    /**
+     * @return Sum of the nanos the stage's threads spent waiting for the next stage.
+     */
+    public long blockedNanos() {
+        return blockedNanos;
+    }
+
+    /**
+     * @return Fraction of the run's wall time the stage's threads were busy, from 0 to 1.
+     */
+    public double utilization() {
+        return wallNanos == 0 ? 0 : (double) busyNanos / ((double) wallNanos * threads);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-7s threads=%-3d chunks=%-6d busy=%5dms starved=%5dms blocked=%5dms utilization=%5.1f%%",
+                name, threads, items, TimeUnit.NANOSECONDS.toMillis(busyNanos),
+                TimeUnit.NANOSECONDS.toMillis(starvedNanos), TimeUnit.NANOSECONDS.toMillis(blockedNanos),
+                utilization() * 100);
+    }
+}
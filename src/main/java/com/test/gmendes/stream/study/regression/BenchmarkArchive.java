@@ -0,0 +1,109 @@
+package com.test.gmendes.stream.study.regression;
+
+import org.openjdk.jmh.results.RunResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Directory archiving the results of the benchmark runs, and checking each run against a baseline.
+ * <p>
+ * The directory keeps:
+ * <ul>
+ * <li><code>runs/RUN_ID.json</code>, the JMH JSON results of each run, as written by JMH itself;</li>
+ * <li><code>history.tsv</code>, a {@link BenchmarkHistory} with the scores of all runs;</li>
+ * <li><code>baseline.tsv</code>, a {@link BenchmarkHistory} with the baseline score of each benchmark.</li>
+ * </ul>
+ * The first run of each benchmark becomes its baseline. Later runs are checked against it by a {@link RegressionGate},
+ * and only replace it when asked to, e.g. after a slowdown is accepted. Only the benchmarks of the run are replaced, so
+ * running some of them keeps the others' baseline.
+ *
+ * @author grmendes
+ */
+public final class BenchmarkArchive {
+
+    public static final String RUNS_DIRECTORY = "runs";
+    public static final String HISTORY_FILE_NAME = "history.tsv";
+    public static final String BASELINE_FILE_NAME = "baseline.tsv";
+
+    private static final DateTimeFormatter RUN_ID = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path directory;
+    private final String run;
+    private final BenchmarkHistory history;
+    private final BenchmarkHistory baseline;
+
+    /**
+     * @param directory Directory of the archive. Created if needed.
+     */
+    public BenchmarkArchive(Path directory) {
+        this.directory = directory;
+        this.run = LocalDateTime.now().format(RUN_ID);
+        this.history = new BenchmarkHistory(directory.resolve(HISTORY_FILE_NAME));
+        this.baseline = new BenchmarkHistory(directory.resolve(BASELINE_FILE_NAME));
+    }
+
+    /**
+     * @return Id of the run being archived, from the time the archive was opened.
+     */
+    public String run() {
+        return run;
+    }
+
+    /**
+     * @return File where JMH must write the JSON results of the run. Its directory is created if needed.
+     * @throws UncheckedIOException if the directory can't be created.
+     */
+    public Path resultFile() {
+        final Path runs = directory.resolve(RUNS_DIRECTORY);
+        try {
+            Files.createDirectories(runs);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return runs.resolve(run + ".json");
+    }
+
+    /**
+     * Appends the results of the run to the history, and checks them against the baseline.
+     *
+     * @param results         Results returned by the JMH Runner.
+     * @param version         Version benchmarked.
+     * @param gate            Gate checking the results.
+     * @param replaceBaseline true to make the scores of this run the baseline of its benchmarks, after checking them.
+     * @return The regressions found. Empty if none, or if there was no baseline yet.
+     * @throws UncheckedIOException if any file can't be read or written.
+     */
+    public List<RegressionGate.Regression> record(Collection<RunResult> results, String version, RegressionGate gate,
+                                                  boolean replaceBaseline) {
+        final List<BenchmarkScore> scores = results.stream().flatMap(result -> BenchmarkScore.of(result).stream())
+                .collect(Collectors.toList());
+        history.append(run, version, scores);
+
+        final List<BenchmarkScore> baselineScores = baseline.latestScores();
+        final List<RegressionGate.Regression> regressions = gate.check(baselineScores, scores);
+        if (replaceBaseline) {
+            baseline.merge(run, version, scores);
+        } else {
+            final Set<String> known = new HashSet<>();
+            for (BenchmarkScore score : baselineScores) {
+                known.add(score.key());
+            }
+            final List<BenchmarkScore> added = scores.stream().filter(score -> !known.contains(score.key()))
+                    .collect(Collectors.toList());
+            if (!added.isEmpty()) {
+                baseline.merge(run, version, added);
+            }
+        }
+        return regressions;
+    }
+}
@@ -0,0 +1,159 @@
+package com.test.gmendes.stream.study.regression;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+/**
+ * Tab separated file keeping the scores of many benchmark runs, one score per line, in the order they were run.
+ * <p>
+ * Each line starts with the id of its run, e.g. <code>20171016-153000</code>, and the version benchmarked, e.g.
+ * <code>1.0-SNAPSHOT</code>, followed by the fields of a {@link BenchmarkScore}. The first line is a header.
+ *
+ * @author grmendes
+ */
+public final class BenchmarkHistory {
+
+    private static final String FIELD_SEPARATOR = "\t";
+
+    private final Path file;
+
+    /**
+     * @param file The history file. Created on the first run appended.
+     */
+    public BenchmarkHistory(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @return true if the history file exists.
+     */
+    public boolean exists() {
+        return Files.isRegularFile(file);
+    }
+
+    /**
+     * Appends the scores of a run to the end of the file.
+     *
+     * @param run     Id of the run.
+     * @param version Version benchmarked.
+     * @param scores  Scores of the run.
+     * @throws UncheckedIOException if the file can't be written.
+     */
+    public void append(String run, String version, List<BenchmarkScore> scores) {
+        final List<String> lines = new ArrayList<>(scores.size() + 1);
+        if (!exists()) {
+            lines.add(String.join(FIELD_SEPARATOR, "run", "version", BenchmarkScore.header()));
+        }
+        for (BenchmarkScore score : scores) {
+            lines.add(String.join(FIELD_SEPARATOR, run, version, score.toString()));
+        }
+        try {
+            Files.write(file, lines, StandardCharsets.UTF_8, CREATE, APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replaces the scores of the same benchmarks, identified by {@link BenchmarkScore#key()}, with the scores of a
+     * run. Scores of other benchmarks are kept, so a run of only some benchmarks doesn't drop the others.
+     *
+     * @param run     Id of the run.
+     * @param version Version benchmarked.
+     * @param scores  Scores of the run.
+     * @throws UncheckedIOException if the file can't be read or written.
+     */
+    public void merge(String run, String version, List<BenchmarkScore> scores) {
+        final Set<String> replaced = new HashSet<>();
+        for (BenchmarkScore score : scores) {
+            replaced.add(score.key());
+        }
+        final List<String> lines = new ArrayList<>();
+        lines.add(String.join(FIELD_SEPARATOR, "run", "version", BenchmarkScore.header()));
+        for (String line : lines()) {
+            if (!replaced.contains(score(line).key())) {
+                lines.add(line);
+            }
+        }
+        for (BenchmarkScore score : scores) {
+            lines.add(String.join(FIELD_SEPARATOR, run, version, score.toString()));
+        }
+        try {
+            Files.write(file, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return Scores of each run, by run id, in the order they were run. Empty if the file doesn't exist.
+     * @throws UncheckedIOException     if the file can't be read.
+     * @throws IllegalArgumentException if any line is not a valid score.
+     */
+    public Map<String, List<BenchmarkScore>> runs() {
+        final Map<String, List<BenchmarkScore>> runs = new LinkedHashMap<>();
+        for (String line : lines()) {
+            runs.computeIfAbsent(line.substring(0, line.indexOf(FIELD_SEPARATOR)), run -> new ArrayList<>())
+                    .add(score(line));
+        }
+        return runs;
+    }
+
+    /**
+     * @return Latest score of each benchmark, from whichever run measured it last, in the order of the file.
+     * @throws UncheckedIOException     if the file can't be read.
+     * @throws IllegalArgumentException if any line is not a valid score.
+     */
+    public List<BenchmarkScore> latestScores() {
+        final Map<String, BenchmarkScore> scores = new LinkedHashMap<>();
+        for (String line : lines()) {
+            final BenchmarkScore score = score(line);
+            scores.remove(score.key());
+            scores.put(score.key(), score);
+        }
+        return new ArrayList<>(scores.values());
+    }
+
+    /**
+     * @return Lines of the file, without the header and the blank lines. Empty if the file doesn't exist.
+     */
+    private List<String> lines() {
+        if (!exists()) {
+            return Collections.emptyList();
+        }
+        final List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final List<String> scores = new ArrayList<>(lines.size());
+        for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+            if (!line.isEmpty()) {
+                scores.add(line);
+            }
+        }
+        return scores;
+    }
+
+    private static BenchmarkScore score(String line) {
+        final String[] fields = line.split(FIELD_SEPARATOR, 3);
+        if (fields.length != 3) {
+            throw new IllegalArgumentException("Invalid history line: " + line);
+        }
+        return BenchmarkScore.parse(fields[2]);
+    }
+}
@@ -0,0 +1,176 @@
+package com.test.gmendes.stream.study.regression;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Score of one benchmark of a run, with its confidence interval, as reported by JMH.
+ * <p>
+ * A benchmark is identified by its name and parameters, e.g. <code>...ScalingBenchmark.processJava8V2(scale=10)</code>.
+ * When the run is profiled with <code>-prof gc</code>, the normalized allocation rate, in bytes per operation, is kept
+ * as a score of its own, identified by the benchmark's name followed by {@link #ALLOCATION_SUFFIX}.
+ *
+ * @author grmendes
+ */
+public final class BenchmarkScore {
+
+    public static final String ALLOCATION_SUFFIX = ":gc.alloc.rate.norm";
+
+    private static final String FIELD_SEPARATOR = "\t";
+    private static final int FIELDS = 7;
+
+    private final String benchmark;
+    private final Mode mode;
+    private final String unit;
+    private final double score;
+    private final double low;
+    private final double high;
+    private final long samples;
+
+    /**
+     * @param benchmark Name and parameters of the benchmark.
+     * @param mode      Mode of the benchmark.
+     * @param unit      Unit of the score, e.g. ms/op.
+     * @param score     The score.
+     * @param low       Lower bound of the score's confidence interval.
+     * @param high      Upper bound of the score's confidence interval.
+     * @param samples   Amount of samples of the score.
+     */
+    public BenchmarkScore(String benchmark, Mode mode, String unit, double score, double low, double high,
+                          long samples) {
+        this.benchmark = benchmark;
+        this.mode = mode;
+        this.unit = unit;
+        this.score = score;
+        // With too few samples JMH has no interval, so the score is its own interval.
+        this.low = Double.isNaN(low) ? score : low;
+        this.high = Double.isNaN(high) ? score : high;
+        this.samples = samples;
+    }
+
+    /**
+     * @param result Result of one benchmark, as returned by the JMH Runner.
+     * @return The benchmark's primary score, followed by its allocation rate if it was profiled by the GC profiler.
+     */
+    public static List<BenchmarkScore> of(RunResult result) {
+        final String benchmark = name(result.getParams());
+        final List<BenchmarkScore> scores = new ArrayList<>(2);
+        scores.add(of(benchmark, result.getParams().getMode(), result.getPrimaryResult()));
+        for (String label : result.getSecondaryResults().keySet()) {
+            // JMH labels the GC profiler's results with a leading middle dot.
+            if (label.endsWith(ALLOCATION_SUFFIX.substring(1))) {
+                scores.add(of(benchmark + ALLOCATION_SUFFIX, result.getParams().getMode(),
+                        result.getSecondaryResults().get(label)));
+            }
+        }
+        return scores;
+    }
+
+    private static BenchmarkScore of(String benchmark, Mode mode, Result<?> result) {
+        final double[] confidence = result.getScoreConfidence();
+        return new BenchmarkScore(benchmark, mode, result.getScoreUnit(), result.getScore(), confidence[0],
+                confidence[1], result.getSampleCount());
+    }
+
+    private static String name(BenchmarkParams params) {
+        final StringBuilder name = new StringBuilder(params.getBenchmark());
+        if (!params.getParamsKeys().isEmpty()) {
+            name.append('(');
+            for (String key : new TreeSet<>(params.getParamsKeys())) {
+                if (name.charAt(name.length() - 1) != '(') {
+                    name.append(',');
+                }
+                name.append(key).append('=').append(params.getParam(key));
+            }
+            name.append(')');
+        }
+        return name.toString();
+    }
+
+    /**
+     * Parses a score written by {@link #toString()}.
+     *
+     * @param line The score's line.
+     * @return The score.
+     * @throws IllegalArgumentException if the line is not a valid score.
+     */
+    public static BenchmarkScore parse(String line) {
+        final String[] fields = line.split(FIELD_SEPARATOR);
+        if (fields.length != FIELDS) {
+            throw new IllegalArgumentException("Invalid benchmark score: " + line);
+        }
+        try {
+            return new BenchmarkScore(fields[0], Mode.deepValueOf(fields[1]), fields[2], Double.parseDouble(fields[3]),
+                    Double.parseDouble(fields[4]), Double.parseDouble(fields[5]), Long.parseLong(fields[6]));
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid benchmark score: " + line, e);
+        }
+    }
+
+    /**
+     * @return Header naming the fields of {@link #toString()}.
+     */
+    public static String header() {
+        return String.join(FIELD_SEPARATOR, "benchmark", "mode", "unit", "score", "low", "high", "samples");
+    }
+
+    /**
+     * @return Name and parameters of the benchmark.
+     */
+    public String benchmark() {
+        return benchmark;
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * @return Name, parameters and mode of the benchmark, which identify its scores across runs.
+     */
+    public String key() {
+        return benchmark + " " + mode.shortLabel();
+    }
+
+    public String unit() {
+        return unit;
+    }
+
+    public double score() {
+        return score;
+    }
+
+    public double low() {
+        return low;
+    }
+
+    public double high() {
+        return high;
+    }
+
+    public long samples() {
+        return samples;
+    }
+
+    /**
+     * @return true if lower scores are better, as for times and allocations, false if higher are, as for throughput.
+     */
+    public boolean lowerIsBetter() {
+        return mode != Mode.Throughput || benchmark.endsWith(ALLOCATION_SUFFIX);
+    }
+
+    /**
+     * @return The score as a tab separated line, with the fields of {@link #header()}.
+     */
+    @Override
+    public String toString() {
+        return String.join(FIELD_SEPARATOR, benchmark, mode.shortLabel(), unit, Double.toString(score),
+                Double.toString(low), Double.toString(high), Long.toString(samples));
+    }
+}
@@ -0,0 +1,102 @@
+package com.test.gmendes.stream.study.regression;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares the scores of a run to the ones of a baseline run, finding the benchmarks which got worse.
+ * <p>
+ * A benchmark regresses only if both conditions hold. First, its confidence interval no longer overlaps the baseline's
+ * one, so the difference is not just noise. Second, its score is worse than the baseline's by more than the threshold,
+ * so the difference matters. Benchmarks not into the baseline, or measured in other units, are not tracked.
+ *
+ * @author grmendes
+ */
+public final class RegressionGate {
+
+    public static final double DEFAULT_THRESHOLD = 0.05;
+
+    private final double threshold;
+
+    public RegressionGate() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param threshold Relative difference tolerated, e.g. 0.05 for 5%.
+     * @throws IllegalArgumentException if the threshold is negative.
+     */
+    public RegressionGate(double threshold) {
+        if (!(threshold >= 0)) {
+            throw new IllegalArgumentException("Invalid threshold: " + threshold);
+        }
+        this.threshold = threshold;
+    }
+
+    /**
+     * @param baseline Scores of the baseline run.
+     * @param current  Scores of the run checked.
+     * @return The regressions found, in the order of the run checked. Empty if none.
+     */
+    public List<Regression> check(List<BenchmarkScore> baseline, List<BenchmarkScore> current) {
+        final Map<String, BenchmarkScore> baselineScores = new HashMap<>();
+        for (BenchmarkScore score : baseline) {
+            baselineScores.put(score.key(), score);
+        }
+        final List<Regression> regressions = new ArrayList<>();
+        for (BenchmarkScore score : current) {
+            final BenchmarkScore base = baselineScores.get(score.key());
+            if (base != null && base.unit().equals(score.unit()) && regresses(base, score)) {
+                regressions.add(new Regression(base, score));
+            }
+        }
+        return regressions;
+    }
+
+    private boolean regresses(BenchmarkScore base, BenchmarkScore score) {
+        if (score.lowerIsBetter()) {
+            return score.low() > base.high() && score.score() > base.score() * (1 + threshold);
+        }
+        return score.high() < base.low() && score.score() < base.score() * (1 - threshold);
+    }
+
+    /**
+     * A benchmark which got worse than its baseline.
+     */
+    public static final class Regression {
+
+        private final BenchmarkScore baseline;
+        private final BenchmarkScore current;
+
+        Regression(BenchmarkScore baseline, BenchmarkScore current) {
+            this.baseline = baseline;
+            this.current = current;
+        }
+
+        public BenchmarkScore baseline() {
+            return baseline;
+        }
+
+        public BenchmarkScore current() {
+            return current;
+        }
+
+        /**
+         * @return Relative difference of the scores, e.g. 0.12 for 12% slower, or 12% less throughput.
+         */
+        public double change() {
+            final double change = current.score() / baseline.score() - 1;
+            return current.lowerIsBetter() ? change : -change;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: %.3f [%.3f, %.3f] %s, baseline %.3f [%.3f, %.3f], %+.1f%%",
+                    current.benchmark(), current.score(), current.low(), current.high(), current.unit(),
+                    baseline.score(), baseline.low(), baseline.high(), change() * 100);
+        }
+    }
+}
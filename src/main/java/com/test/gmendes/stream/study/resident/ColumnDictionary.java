@@ -0,0 +1,90 @@
+package com.test.gmendes.stream.study.resident;
+
+import com.test.gmendes.stream.study.layout.RowCursor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Distinct values of one column, each one identified by a sequential id.
+ * <p>
+ * Each value is kept once, together with its SQL literal, so rows only need to store the value's id and inserts are
+ * written with no encoding at all. Meant for low cardinality columns, like DT_COMPETENCIA or ST_PRINCIPAL, which have a
+ * handful of values repeated by every row.
+ * <p>
+ * Dictionaries are filled by a single thread while a table is loaded, and are read only after {@link #seal()}.
+ *
+ * @author grmendes
+ */
+public final class ColumnDictionary {
+
+    private final int maxSize;
+    private Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private final List<String> literals = new ArrayList<>();
+
+    /**
+     * @param maxSize Greatest amount of distinct values accepted.
+     */
+    public ColumnDictionary(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Finds the id of a row's value, adding the value to the dictionary if it's new.
+     *
+     * @param row    Cursor pointing to the row.
+     * @param column Index of the column, in sorted order.
+     * @return Id of the value, or -1 if it's new and the dictionary is already full.
+     * @throws IllegalStateException if the dictionary was already sealed.
+     */
+    public int add(RowCursor row, int column) {
+        if (ids == null) {
+            throw new IllegalStateException("Dictionary already sealed");
+        }
+        final String value = row.value(column);
+        final Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        if (values.size() == maxSize) {
+            return -1;
+        }
+        ids.put(value, values.size());
+        values.add(value);
+        literals.add(row.appendLiteral(column, new StringBuilder()).toString());
+        return values.size() - 1;
+    }
+
+    /**
+     * Stops accepting new values, releasing the index used to find the ids of the values.
+     */
+    public void seal() {
+        ids = null;
+    }
+
+    /**
+     * @param id Id of the value.
+     * @return The raw value, as into the data file.
+     */
+    public String value(int id) {
+        return values.get(id);
+    }
+
+    /**
+     * @param id Id of the value.
+     * @return The value as a SQL literal, or NULL if it's blank.
+     */
+    public String literal(int id) {
+        return literals.get(id);
+    }
+
+    /**
+     * @return Amount of distinct values.
+     */
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,226 @@
+package com.test.gmendes.stream.study.resident;
+
+import com.test.gmendes.stream.study.io.MappedFile;
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.test.gmendes.stream.study.Constants.SEPARATOR;
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+
+/**
+ * A whole table kept into memory, column by column.
+ * <p>
+ * Low cardinality columns are chosen automatically while the table is loaded: a column is dictionary encoded if it has
+ * up to <code>maxCardinality</code> distinct values, and no more than half as many as rows. Each of its rows then
+ * stores just the id of its value into a byte (up to 256 values) or a char (up to 65536 values), and the value's String
+ * and SQL literal are kept once, by the column's {@link ColumnDictionary}. The other columns keep one String per row.
+ * <p>
+ * Inserts of dictionary encoded columns are written from the precomputed literals. The other columns are encoded from
+ * their Strings by their {@link com.test.gmendes.stream.study.layout.ColumnType}, the same way as done for the data
+ * files.
+ * <p>
+ * Tables are read only after loaded, so one instance can be shared by many threads.
+ *
+ * @author grmendes
+ */
+public final class ResidentTable {
+
+    /**
+     * Greatest cardinality which can be dictionary encoded, since ids are stored as chars.
+     */
+    public static final int MAX_CARDINALITY = 1 << 16;
+
+    /**
+     * Cardinality dictionary encoded by default, which is as many values as ids fit into a byte. The domain codes of
+     * Sigtap are all under it, e.g. CO_FINANCIAMENTO has 6 values and CO_OCUPACAO of rl_procedimento_ocupacao has 207.
+     * Greater cardinalities, up to {@link #MAX_CARDINALITY}, must be asked for explicitly.
+     */
+    public static final int DEFAULT_MAX_CARDINALITY = 1 << 8;
+
+    private static final int BYTE_IDS = 1 << 8;
+
+    private final TableLayout layout;
+    private final int rowCount;
+    private final ColumnDictionary[] dictionaries;
+    /**
+     * Rows of each column: byte[] or char[] of ids for dictionary encoded columns, String[] of values for the others.
+     */
+    private final Object[] columns;
+
+    private ResidentTable(TableLayout layout, int rowCount, ColumnDictionary[] dictionaries, Object[] columns) {
+        this.layout = layout;
+        this.rowCount = rowCount;
+        this.dictionaries = dictionaries;
+        this.columns = columns;
+    }
+
+    /**
+     * Loads a table's data file, dictionary encoding the columns with up to {@link #DEFAULT_MAX_CARDINALITY} distinct
+     * values.
+     *
+     * @param path   Path to the data directory.
+     * @param layout Layout of the table.
+     * @return ResidentTable with all rows of the table.
+     */
+    public static ResidentTable load(String path, TableLayout layout) {
+        return load(MappedFile.readFile(path, layout.name() + TXT_EXTENSION), layout, DEFAULT_MAX_CARDINALITY);
+    }
+
+    /**
+     * Loads a table, by reading each of its rows once.
+     *
+     * @param data           Data file of the table.
+     * @param layout         Layout of the table.
+     * @param maxCardinality Greatest amount of distinct values of a dictionary encoded column, up to
+     *                       {@link #MAX_CARDINALITY}. 0 keeps one String per row for every column.
+     * @return ResidentTable with all rows of the table.
+     * @throws IllegalArgumentException if the cardinality is out of range.
+     */
+    public static ResidentTable load(MappedFile data, TableLayout layout, int maxCardinality) {
+        if (maxCardinality < 0 || maxCardinality > MAX_CARDINALITY) {
+            throw new IllegalArgumentException("Invalid cardinality: " + maxCardinality);
+        }
+        final int rows = data.rowCount();
+        final int columnCount = layout.columnCount();
+        final ColumnDictionary[] dictionaries = new ColumnDictionary[columnCount];
+        final int[][] ids = new int[columnCount][];
+        final String[][] values = new String[columnCount][];
+        for (int column = 0; column < columnCount; column++) {
+            if (maxCardinality > 0) {
+                dictionaries[column] = new ColumnDictionary(maxCardinality);
+                ids[column] = new int[rows];
+            } else {
+                values[column] = new String[rows];
+            }
+        }
+
+        final RowCursor cursor = new RowCursor(layout);
+        for (int row = 0; row < rows; row++) {
+            data.row(row, cursor);
+            for (int column = 0; column < columnCount; column++) {
+                if (dictionaries[column] != null) {
+                    final int id = dictionaries[column].add(cursor, column);
+                    if (id >= 0) {
+                        ids[column][row] = id;
+                        continue;
+                    }
+                    // Too many distinct values: the rows loaded so far get their values back from the dictionary.
+                    values[column] = new String[rows];
+                    for (int previous = 0; previous < row; previous++) {
+                        values[column][previous] = dictionaries[column].value(ids[column][previous]);
+                    }
+                    dictionaries[column] = null;
+                    ids[column] = null;
+                }
+                values[column][row] = cursor.value(column);
+            }
+        }
+
+        final Object[] columns = new Object[columnCount];
+        for (int column = 0; column < columnCount; column++) {
+            if (dictionaries[column] != null && dictionaries[column].size() > rows / 2) {
+                // Mostly distinct values: ids and literals would cost more than what's shared.
+                values[column] = new String[rows];
+                for (int row = 0; row < rows; row++) {
+                    values[column][row] = dictionaries[column].value(ids[column][row]);
+                }
+                dictionaries[column] = null;
+            }
+            if (dictionaries[column] == null) {
+                columns[column] = values[column];
+                continue;
+            }
+            dictionaries[column].seal();
+            if (dictionaries[column].size() <= BYTE_IDS) {
+                final byte[] byteIds = new byte[rows];
+                for (int row = 0; row < rows; row++) {
+                    byteIds[row] = (byte) ids[column][row];
+                }
+                columns[column] = byteIds;
+            } else {
+                final char[] charIds = new char[rows];
+                for (int row = 0; row < rows; row++) {
+                    charIds[row] = (char) ids[column][row];
+                }
+                columns[column] = charIds;
+            }
+        }
+        return new ResidentTable(layout, rows, dictionaries, columns);
+    }
+
+    /**
+     * @return Layout of the table.
+     */
+    public TableLayout layout() {
+        return layout;
+    }
+
+    /**
+     * @return Amount of rows of the table.
+     */
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @param column Index of the column, in sorted order.
+     * @return Dictionary of the column, or null if the column is not dictionary encoded.
+     */
+    public ColumnDictionary dictionary(int column) {
+        return dictionaries[column];
+    }
+
+    /**
+     * @param row    Index of the row.
+     * @param column Index of the column, in sorted order.
+     * @return Raw value of the column, as into the data file. Values of dictionary encoded columns are shared by all
+     * rows with the same value.
+     */
+    public String value(int row, int column) {
+        if (dictionaries[column] == null) {
+            return ((String[]) columns[column])[row];
+        }
+        return dictionaries[column].value(id(row, column));
+    }
+
+    private int id(int row, int column) {
+        final Object ids = columns[column];
+        if (ids instanceof byte[]) {
+            return ((byte[]) ids)[row] & 0xFF;
+        }
+        return ((char[]) ids)[row];
+    }
+
+    /**
+     * Appends the insert of a row.
+     *
+     * @param row     Index of the row.
+     * @param builder StringBuilder to append the insert.
+     * @return The same StringBuilder received.
+     */
+    public StringBuilder appendInsert(int row, StringBuilder builder) {
+        builder.append(layout.insertPrefix());
+        for (int column = 0; column < columns.length; column++) {
+            if (column > 0) {
+                builder.append(SEPARATOR);
+            }
+            if (dictionaries[column] != null) {
+                builder.append(dictionaries[column].literal(id(row, column)));
+            } else {
+                layout.type(column).appendLiteral(((String[]) columns[column])[row], builder);
+            }
+        }
+        return builder.append(");");
+    }
+
+    /**
+     * @return Parallel stream with the inserts of all rows.
+     */
+    public Stream<String> inserts() {
+        return IntStream.range(0, rowCount).parallel()
+                .mapToObj(row -> appendInsert(row, new StringBuilder()).toString());
+    }
+}
@@ -0,0 +1,115 @@
+package com.test.gmendes.stream.study.scan;
+
+import com.test.gmendes.stream.study.layout.RowCursor;
+
+/**
+ * Condition over the raw content of one column, tested straight from the row's chars, with no String creation.
+ * <p>
+ * Values are compared with their trailing whitespaces removed, so a value doesn't need to be padded to the column's
+ * size. Comparisons are done char by char, which for zero padded codes and dates, like DT_COMPETENCIA, is the same as
+ * comparing them as numbers.
+ *
+ * @author grmendes
+ */
+public abstract class ColumnPredicate {
+
+    private final String column;
+
+    private ColumnPredicate(String column) {
+        this.column = column;
+    }
+
+    /**
+     * @param column Name of the column.
+     * @param value  Value expected.
+     * @return Predicate accepting the rows whose column is the value.
+     */
+    public static ColumnPredicate equalTo(String column, String value) {
+        final String expected = trimEnd(value);
+        return new ColumnPredicate(column) {
+            @Override
+            boolean test(RowCursor row, int start, int end) {
+                return compare(row, start, end, expected) == 0;
+            }
+        };
+    }
+
+    /**
+     * @param column Name of the column.
+     * @param prefix Prefix expected.
+     * @return Predicate accepting the rows whose column starts with the prefix.
+     */
+    public static ColumnPredicate prefix(String column, String prefix) {
+        return new ColumnPredicate(column) {
+            @Override
+            boolean test(RowCursor row, int start, int end) {
+                if (end - start < prefix.length()) {
+                    return false;
+                }
+                for (int i = 0; i < prefix.length(); i++) {
+                    if (row.charAt(start + i) != prefix.charAt(i)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @param column Name of the column.
+     * @param from   Lowest value accepted, inclusive, or null for no lower bound.
+     * @param to     Highest value accepted, inclusive, or null for no upper bound.
+     * @return Predicate accepting the rows whose column is into the range.
+     */
+    public static ColumnPredicate range(String column, String from, String to) {
+        final String lowest = from != null ? trimEnd(from) : null;
+        final String highest = to != null ? trimEnd(to) : null;
+        return new ColumnPredicate(column) {
+            @Override
+            boolean test(RowCursor row, int start, int end) {
+                return (lowest == null || compare(row, start, end, lowest) >= 0)
+                        && (highest == null || compare(row, start, end, highest) <= 0);
+            }
+        };
+    }
+
+    /**
+     * @return Name of the column.
+     */
+    public String column() {
+        return column;
+    }
+
+    /**
+     * Tests a row's column.
+     *
+     * @param row   Cursor pointing to the row.
+     * @param start Start of the column into the row.
+     * @param end   End of the column into the row, with no trailing whitespaces.
+     * @return true if the row is accepted.
+     */
+    abstract boolean test(RowCursor row, int start, int end);
+
+    private static String trimEnd(String value) {
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return value.substring(0, end);
+    }
+
+    /**
+     * Compares a column with a value, the same way as {@link String#compareTo(String)} does.
+     */
+    private static int compare(RowCursor row, int start, int end, String value) {
+        final int length = Math.min(end - start, value.length());
+        for (int i = 0; i < length; i++) {
+            final int difference = row.charAt(start + i) - value.charAt(i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return (end - start) - value.length();
+    }
+}
@@ -0,0 +1,116 @@
+package com.test.gmendes.stream.study.scan;
+
+import com.test.gmendes.stream.study.io.LineSpliterator;
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+
+/**
+ * Reads only what a consumer asks for from a table's data file: the rows accepted by all predicates, and from them only
+ * the projected columns.
+ * <p>
+ * The data file is memory mapped and split by a {@link LineSpliterator}. Predicates are tested straight from each
+ * row's bytes, so a rejected row costs just the reading of its predicate columns, and creates nothing. Only the
+ * projected columns of the accepted rows are sliced into Strings.
+ * <p>
+ * Predicates are tested in the order they're given, stopping at the first one rejecting the row, so the most selective
+ * predicate should come first.
+ *
+ * @author grmendes
+ */
+public final class Scan {
+
+    private final String path;
+    private final TableLayout layout;
+    private final List<String> projection;
+    private final int[] projected;
+    private final ColumnPredicate[] predicates;
+    private final int[] predicateColumns;
+
+    /**
+     * @param path       Path to the data directory.
+     * @param layout     Layout of the table.
+     * @param projection Columns to be read from the accepted rows, in the order of the values returned.
+     * @param predicates Conditions every accepted row must meet. Empty to accept all rows.
+     * @throws IllegalArgumentException if any column doesn't exist.
+     */
+    public Scan(String path, TableLayout layout, List<String> projection, List<ColumnPredicate> predicates) {
+        this.path = path;
+        this.layout = layout;
+        this.projection = Collections.unmodifiableList(new ArrayList<>(projection));
+        this.projected = new int[projection.size()];
+        for (int i = 0; i < projected.length; i++) {
+            projected[i] = indexOf(projection.get(i));
+        }
+        this.predicates = predicates.toArray(new ColumnPredicate[0]);
+        this.predicateColumns = new int[this.predicates.length];
+        for (int i = 0; i < predicateColumns.length; i++) {
+            predicateColumns[i] = indexOf(this.predicates[i].column());
+        }
+    }
+
+    private int indexOf(String column) {
+        final int index = layout.indexOf(column);
+        if (index < 0) {
+            throw new IllegalArgumentException(String.format("Unknown column for %s: %s", layout.name(), column));
+        }
+        return index;
+    }
+
+    /**
+     * @return Columns read from the accepted rows.
+     */
+    public List<String> projection() {
+        return projection;
+    }
+
+    /**
+     * Streams the accepted rows, in parallel.
+     *
+     * @return Parallel stream with the projected values of each accepted row, in the projection's order, as into the
+     * data file.
+     */
+    public Stream<String[]> stream() {
+        return LineSpliterator.stream(path, layout.name() + TXT_EXTENSION, layout, true).filter(this::accepts)
+                .map(this::project);
+    }
+
+    /**
+     * Counts the accepted rows, with no column sliced at all.
+     *
+     * @return Amount of accepted rows.
+     */
+    public long count() {
+        return LineSpliterator.stream(path, layout.name() + TXT_EXTENSION, layout, true).filter(this::accepts)
+                .count();
+    }
+
+    private boolean accepts(RowCursor row) {
+        for (int i = 0; i < predicates.length; i++) {
+            final int column = predicateColumns[i];
+            final int start = layout.start(column);
+            int end = Math.min(layout.end(column), row.length());
+            while (end > start && row.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (!predicates[i].test(row, start, Math.max(end, start))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String[] project(RowCursor row) {
+        final String[] values = new String[projected.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = row.value(projected[i]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,39 @@
+package com.test.gmendes.stream.study.schedule;
+
+/**
+ * A table to be processed by the {@link TableScheduler}.
+ * <p>
+ * The table is opened once, by a single thread, and then its rows may be processed by many threads at the same time,
+ * each one with its own range of rows.
+ *
+ * @author grmendes
+ */
+public interface ScheduledTable {
+
+    /**
+     * @return The table name.
+     */
+    String name();
+
+    /**
+     * Estimates the cost of processing the table, before opening it. Only the relative values matter.
+     *
+     * @return Estimated cost of the table.
+     */
+    long estimatedCost();
+
+    /**
+     * Prepares the table for processing, reading whatever is needed.
+     *
+     * @return Amount of rows of the table.
+     */
+    int open();
+
+    /**
+     * Processes a range of rows. Called only after {@link #open()}, possibly by many threads at the same time.
+     *
+     * @param fromRow First row of the range, inclusive.
+     * @param toRow   Last row of the range, exclusive.
+     */
+    void process(int fromRow, int toRow);
+}
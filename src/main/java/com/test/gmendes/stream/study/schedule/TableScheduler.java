@@ -0,0 +1,163 @@
+package com.test.gmendes.stream.study.schedule;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Collections.synchronizedList;
+
+/**
+ * Runs a set of tables in parallel, balancing the work by each table's estimated cost instead of by the position of
+ * the table into a hash map.
+ * <p>
+ * The rules are:
+ * <li>Tables are taken largest first, so the biggest ones never start at the end of the run.</li>
+ * <li>Tables cheaper than the small table cost are run one after another, by a single task.</li>
+ * <li>Tables more expensive than the split cost are split into sub tasks, each one with a range of rows.</li>
+ * <p>
+ * Every run returns the timing of each table, so the balance of the run can be checked.
+ *
+ * @author grmendes
+ */
+public class TableScheduler {
+
+    /**
+     * Default cost below which tables are run sequentially. Costs are usually estimated as output chars, so it's about
+     * a thousand short inserts.
+     */
+    public static final long DEFAULT_SMALL_TABLE_COST = 100_000;
+
+    /**
+     * Default cost for each sub task of a split table.
+     */
+    public static final long DEFAULT_SPLIT_COST = 2_000_000;
+
+    private final ForkJoinPool pool;
+    private final long smallTableCost;
+    private final long splitCost;
+
+    /**
+     * Creates a scheduler running on the common pool, with default costs.
+     */
+    public TableScheduler() {
+        this(DEFAULT_SMALL_TABLE_COST, DEFAULT_SPLIT_COST);
+    }
+
+    /**
+     * Creates a scheduler running on the common pool.
+     *
+     * @param smallTableCost Tables cheaper than this are run sequentially, by the same task.
+     * @param splitCost      Tables are split into one sub task for each time they reach this cost.
+     */
+    public TableScheduler(long smallTableCost, long splitCost) {
+        this(ForkJoinPool.commonPool(), smallTableCost, splitCost);
+    }
+
+    public TableScheduler(ForkJoinPool pool, long smallTableCost, long splitCost) {
+        this.pool = pool;
+        this.smallTableCost = smallTableCost;
+        this.splitCost = Math.max(splitCost, 1);
+    }
+
+    /**
+     * Processes all tables, blocking until all of them are done.
+     *
+     * @param tables Tables to be processed.
+     * @return Timing of each table, in the order they were started.
+     */
+    public List<TableTiming> run(List<? extends ScheduledTable> tables) {
+        final long runStart = System.nanoTime();
+        final List<TableTiming> timings = synchronizedList(new ArrayList<>());
+
+        // Each queue entry is a group of tables run sequentially. Big tables are alone in their group.
+        final PriorityBlockingQueue<TableGroup> queue = new PriorityBlockingQueue<>(Math.max(tables.size(), 1),
+                Comparator.comparingLong(TableGroup::cost).reversed());
+        final TableGroup smallTables = new TableGroup();
+        for (ScheduledTable table : tables) {
+            if (table.estimatedCost() < smallTableCost) {
+                smallTables.add(table);
+            } else {
+                queue.add(new TableGroup().add(table));
+            }
+        }
+        if (!smallTables.tables.isEmpty()) {
+            queue.add(smallTables);
+        }
+
+        // Each worker keeps taking the most expensive group left, until there's nothing else to take.
+        final int workers = Math.min(pool.getParallelism(), queue.size());
+        final List<ForkJoinTask<?>> tasks = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            tasks.add(pool.submit(() -> {
+                TableGroup group;
+                while ((group = queue.poll()) != null) {
+                    for (ScheduledTable table : group.tables) {
+                        timings.add(runTable(table, runStart));
+                    }
+                }
+            }));
+        }
+        tasks.forEach(ForkJoinTask::join);
+
+        final List<TableTiming> result = new ArrayList<>(timings);
+        Collections.sort(result, Comparator.comparingLong(TableTiming::startNanos));
+        return result;
+    }
+
+    /**
+     * Opens and processes one table, splitting it into sub tasks if it's expensive enough.
+     */
+    private TableTiming runTable(ScheduledTable table, long runStart) {
+        final long start = System.nanoTime();
+        final String thread = Thread.currentThread().getName();
+        final int rows = table.open();
+        final int subTasks = (int) Math.max(1, Math.min(Math.min(rows, pool.getParallelism() * 4),
+                table.estimatedCost() / splitCost));
+
+        final AtomicLong busy = new AtomicLong(System.nanoTime() - start);
+        if (subTasks == 1) {
+            final long processStart = System.nanoTime();
+            table.process(0, rows);
+            busy.addAndGet(System.nanoTime() - processStart);
+        } else {
+            final List<ForkJoinTask<?>> ranges = new ArrayList<>(subTasks);
+            for (int i = 0; i < subTasks; i++) {
+                final int from = (int) ((long) rows * i / subTasks);
+                final int to = (int) ((long) rows * (i + 1) / subTasks);
+                ranges.add(ForkJoinTask.adapt(() -> {
+                    final long rangeStart = System.nanoTime();
+                    table.process(from, to);
+                    busy.addAndGet(System.nanoTime() - rangeStart);
+                }));
+            }
+            ForkJoinTask.invokeAll(ranges);
+        }
+
+        return new TableTiming(table.name(), table.estimatedCost(), rows, subTasks, start - runStart,
+                System.nanoTime() - start, busy.get(), thread);
+    }
+
+    /**
+     * Group of tables run one after another by the same worker.
+     */
+    private static final class TableGroup {
+
+        private final List<ScheduledTable> tables = new ArrayList<>();
+        private long cost;
+
+        private TableGroup add(ScheduledTable table) {
+            tables.add(table);
+            cost += table.estimatedCost();
+            return this;
+        }
+
+        private long cost() {
+            return cost;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.test.gmendes.stream.study.schedule;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing information of one table processed by the {@link TableScheduler}.
+ *
+ * @author grmendes
+ */
+public final class TableTiming {
+
+    private final String name;
+    private final long estimatedCost;
+    private final int rows;
+    private final int subTasks;
+    private final long startNanos;
+    private final long wallNanos;
+    private final long busyNanos;
+    private final String thread;
+
+    TableTiming(String name, long estimatedCost, int rows, int subTasks, long startNanos, long wallNanos,
+                long busyNanos, String thread) {
+        this.name = name;
+        this.estimatedCost = estimatedCost;
+        this.rows = rows;
+        this.subTasks = subTasks;
+        this.startNanos = startNanos;
+        this.wallNanos = wallNanos;
+        this.busyNanos = busyNanos;
+        this.thread = thread;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long estimatedCost() {
+        return estimatedCost;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * @return Amount of sub tasks the table's rows were split into. 1 if the table was not split.
+     */
+    public int subTasks() {
+        return subTasks;
+    }
+
+    /**
+     * @return Nanos between the start of the whole run and the start of this table.
+     */
+    public long startNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return Nanos from the start to the end of this table.
+     */
+    public long wallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return Sum of the nanos spent by all threads working on this table. Greater than wall time when split.
+     */
+    public long busyNanos() {
+        return busyNanos;
+    }
+
+    /**
+     * @return Name of the thread which opened the table.
+     */
+    public String thread() {
+        return thread;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-30s cost=%-10d rows=%-7d tasks=%-3d start=%5dms wall=%5dms busy=%5dms %s", name,
+                estimatedCost, rows, subTasks, TimeUnit.NANOSECONDS.toMillis(startNanos),
+                TimeUnit.NANOSECONDS.toMillis(wallNanos), TimeUnit.NANOSECONDS.toMillis(busyNanos), thread);
+    }
+}
@@ -0,0 +1,30 @@
+package com.test.gmendes.stream.study.sink;
+
+import java.util.function.Consumer;
+
+/**
+ * InsertSink that hands each insert to a callback.
+ *
+ * @author grmendes
+ */
+public class CallbackInsertSink implements InsertSink {
+
+    private final Consumer<String> callback;
+
+    /**
+     * @param callback Consumer of the inserts. It must be thread safe.
+     */
+    public CallbackInsertSink(Consumer<String> callback) {
+        this.callback = callback;
+    }
+
+    @Override
+    public void accept(CharSequence insert) {
+        callback.accept(insert.toString());
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release.
+    }
+}
@@ -0,0 +1,116 @@
+package com.test.gmendes.stream.study.sink;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * InsertSink that writes the inserts, one per line, into a channel. The output is encoded in ISO-8859-1, the same
+ * charset as the input files.
+ * <p>
+ * Chars are encoded straight into a fixed size buffer, which is written to the channel every time it gets full. So the
+ * memory used by this sink is bounded by the buffer size, no matter how many inserts it receives.
+ *
+ * @author grmendes
+ */
+public class ChannelInsertSink implements InsertSink {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    public ChannelInsertSink(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ChannelInsertSink(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    public ChannelInsertSink(OutputStream outputStream) {
+        this(Channels.newChannel(outputStream));
+    }
+
+    /**
+     * Creates a sink writing to a file. The file is created if needed, or truncated if it already exists.
+     *
+     * @param file Path to the output file.
+     * @return ChannelInsertSink writing to the file.
+     * @throws UncheckedIOException if the file can't be opened.
+     */
+    public static ChannelInsertSink toFile(Path file) {
+        try {
+            return new ChannelInsertSink(FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes an insert and its line break. The lock is taken once per insert, and its chars are encoded straight into
+     * the buffer's array, a run of them at a time, so no per char call is made.
+     */
+    @Override
+    public synchronized void accept(CharSequence insert) {
+        final byte[] bytes = buffer.array();
+        final int length = insert.length();
+        int i = 0;
+        while (i < length) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            final int run = Math.min(length - i, buffer.remaining());
+            final int offset = buffer.arrayOffset() + buffer.position();
+            for (int j = 0; j < run; j++) {
+                final char c = insert.charAt(i + j);
+                // Chars out of ISO-8859-1 can't come from the input files, but are replaced anyway.
+                bytes[offset + j] = c <= 0xFF ? (byte) c : (byte) '?';
+            }
+            buffer.position(buffer.position() + run);
+            i += run;
+        }
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Writes all buffered bytes into the channel.
+     */
+    private void drain() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            drain();
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
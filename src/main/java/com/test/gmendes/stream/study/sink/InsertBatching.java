@@ -0,0 +1,51 @@
+package com.test.gmendes.stream.study.sink;
+
+/**
+ * Settings for grouping many rows into one multi-row insert, like
+ * <code>INSERT INTO table (columns) VALUES (...),(...),(...);</code>.
+ * <p>
+ * A statement is closed when it reaches the amount of rows or when the next row would make it longer than the
+ * maximum length, whichever comes first. A single row longer than the maximum length still gets its own statement.
+ *
+ * @author grmendes
+ */
+public final class InsertBatching {
+
+    /**
+     * One row per insert, the original output.
+     */
+    public static final InsertBatching SINGLE_ROW = new InsertBatching(1, Integer.MAX_VALUE);
+
+    private final int rowsPerStatement;
+    private final int maxStatementChars;
+
+    /**
+     * @param rowsPerStatement  Maximum amount of rows into one insert.
+     * @param maxStatementChars Maximum length of one insert, in chars. It's the size in bytes only for sinks writing
+     *                          one byte per char, like the ISO-8859-1 ones.
+     * @throws IllegalArgumentException if any value is not positive.
+     */
+    public InsertBatching(int rowsPerStatement, int maxStatementChars) {
+        if (rowsPerStatement < 1 || maxStatementChars < 1) {
+            throw new IllegalArgumentException(String.format("Invalid batching: %d rows, %d chars", rowsPerStatement,
+                    maxStatementChars));
+        }
+        this.rowsPerStatement = rowsPerStatement;
+        this.maxStatementChars = maxStatementChars;
+    }
+
+    public int rowsPerStatement() {
+        return rowsPerStatement;
+    }
+
+    public int maxStatementChars() {
+        return maxStatementChars;
+    }
+
+    /**
+     * @return true if each row gets its own insert.
+     */
+    public boolean isSingleRow() {
+        return rowsPerStatement == 1;
+    }
+}
@@ -0,0 +1,25 @@
+package com.test.gmendes.stream.study.sink;
+
+/**
+ * Destination of the generated SQL inserts. Inserts are handed to the sink as soon as they are produced, so the whole
+ * output never needs to be kept in memory.
+ * <p>
+ * Implementations must be thread safe, because tables and lines are processed by parallel streams.
+ *
+ * @author grmendes
+ */
+public interface InsertSink extends AutoCloseable {
+
+    /**
+     * Receives one SQL insert. The content must be consumed before returning, since the caller may reuse it.
+     *
+     * @param insert The SQL insert.
+     */
+    void accept(CharSequence insert);
+
+    /**
+     * Releases any resource held by the sink, writing everything still buffered.
+     */
+    @Override
+    void close();
+}
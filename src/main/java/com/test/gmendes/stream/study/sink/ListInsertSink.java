@@ -0,0 +1,37 @@
+package com.test.gmendes.stream.study.sink;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.synchronizedList;
+
+/**
+ * InsertSink that keeps all inserts into a List, so memory grows with the amount of data processed. Used where the
+ * inserts must stay in memory, like the benchmarks comparing sinks with the List returned by <code>execute()</code>.
+ * <p>
+ * Inserts are kept in the order they are received, which is not the tables' order when the caller is parallel. The
+ * List returning <code>execute()</code> methods collect their ordered stream instead.
+ *
+ * @author grmendes
+ */
+public class ListInsertSink implements InsertSink {
+
+    private final List<String> inserts = synchronizedList(new ArrayList<>());
+
+    @Override
+    public void accept(CharSequence insert) {
+        inserts.add(insert.toString());
+    }
+
+    /**
+     * @return List of all inserts received.
+     */
+    public List<String> inserts() {
+        return inserts;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release.
+    }
+}
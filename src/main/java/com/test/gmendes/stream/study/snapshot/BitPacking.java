@@ -0,0 +1,77 @@
+package com.test.gmendes.stream.study.snapshot;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packing of unsigned integers using a fixed amount of bits each, least significant bit first.
+ * <p>
+ * Packed arrays are followed by 8 spare bytes, so every value can be read by one little endian long read, with no
+ * bounds checks. That's why values are limited to {@link #MAX_BITS} bits.
+ *
+ * @author grmendes
+ */
+final class BitPacking {
+
+    static final int MAX_BITS = 56;
+    static final int PADDING = 8;
+
+    private BitPacking() {
+        // Private Default Constructor.
+    }
+
+    /**
+     * @param maxValue Greatest value to be packed, not negative.
+     * @return Amount of bits needed to pack the value. 0 if it's 0, in which case nothing is stored at all.
+     */
+    static int bitsFor(long maxValue) {
+        return 64 - Long.numberOfLeadingZeros(maxValue);
+    }
+
+    /**
+     * @param count Amount of values.
+     * @param bits  Bits of each value.
+     * @return Size in bytes of the packed values, including padding.
+     */
+    static long packedSize(long count, int bits) {
+        return (count * bits + 7) / 8 + PADDING;
+    }
+
+    /**
+     * Packs values using the given amount of bits each.
+     *
+     * @param values Values to be packed, all of them fitting into the bits.
+     * @param bits   Bits of each value, up to {@link #MAX_BITS}.
+     * @return Packed values, including padding.
+     */
+    static byte[] pack(long[] values, int bits) {
+        final byte[] packed = new byte[(int) packedSize(values.length, bits)];
+        for (int i = 0; i < values.length; i++) {
+            final long position = (long) i * bits;
+            for (int bit = 0; bit < bits; bit++) {
+                if ((values[i] >>> bit & 1) != 0) {
+                    final long target = position + bit;
+                    packed[(int) (target >>> 3)] |= 1 << (target & 7);
+                }
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Reads a packed value.
+     *
+     * @param buffer Little endian buffer containing the packed values.
+     * @param offset Position of the packed values into the buffer.
+     * @param index  Index of the value.
+     * @param bits   Bits of each value.
+     * @return The value.
+     */
+    static long read(ByteBuffer buffer, int offset, int index, int bits) {
+        if (bits == 0) {
+            return 0;
+        }
+        final long position = (long) index * bits;
+        final long word = buffer.getLong(offset + (int) (position >>> 3));
+        return word >>> (position & 7) & (-1L >>> (64 - bits));
+    }
+}
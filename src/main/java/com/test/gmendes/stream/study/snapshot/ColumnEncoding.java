@@ -0,0 +1,24 @@
+package com.test.gmendes.stream.study.snapshot;
+
+/**
+ * How the values of a column are stored into a snapshot file.
+ *
+ * @author grmendes
+ */
+public enum ColumnEncoding {
+
+    /**
+     * The column's bytes of every row, one after another, exactly as into the text file.
+     */
+    RAW,
+
+    /**
+     * Each distinct value is stored once. Rows store the index of their value, bit packed.
+     */
+    DICTIONARY,
+
+    /**
+     * Zero padded integers stored as the difference to the column's minimum value, bit packed.
+     */
+    PACKED
+}
@@ -0,0 +1,243 @@
+package com.test.gmendes.stream.study.snapshot;
+
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.test.gmendes.stream.study.Constants.SEPARATOR;
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Read only view of a snapshot file written by {@link SnapshotWriter}, backed by a
+ * {@link java.nio.MappedByteBuffer}.
+ * <p>
+ * Rows are rebuilt on request into a per thread buffer, byte by byte identical to the text file's row, and handed as a
+ * {@link RowCursor}. So everything that reads cursors works the same over a snapshot, with no line scanning nor text
+ * decoding. The rebuilt row is overwritten by the next request of the same thread, so it must be consumed right away.
+ * <p>
+ * Reading is done only by absolute operations over the buffer, so one instance can be shared by many threads.
+ *
+ * @author grmendes
+ */
+public final class SnapshotTable {
+
+    private final TableLayout layout;
+    private final ByteBuffer buffer;
+    private final long sourceSize;
+    private final long sourceModified;
+    private final int rowCount;
+    private final ColumnEncoding[] encodings;
+    private final int[] bits;
+    private final long[] base;
+    private final int[] offsets;
+    /**
+     * Values of the dictionary encoded columns, copied to the heap since they're read for every row.
+     */
+    private final byte[][] dictionaries;
+    private final ThreadLocal<ByteBuffer> row;
+
+    private SnapshotTable(String tableName, ByteBuffer mapped) throws IOException {
+        final ByteBuffer header = mapped.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (header.getLong() != SnapshotWriter.MAGIC || header.getInt() != SnapshotWriter.VERSION) {
+            throw new IOException("Not a snapshot file, or written by another version: " + tableName);
+        }
+        sourceSize = header.getLong();
+        sourceModified = header.getLong();
+        rowCount = header.getInt();
+        final int width = header.getInt();
+        final int columnCount = header.getInt();
+
+        final List<String> layoutLines = new ArrayList<>(columnCount);
+        encodings = new ColumnEncoding[columnCount];
+        bits = new int[columnCount];
+        base = new long[columnCount];
+        offsets = new int[columnCount];
+        dictionaries = new byte[columnCount][];
+        final int[] dictionarySizes = new int[columnCount];
+        for (int column = 0; column < columnCount; column++) {
+            final String name = readUTF(header);
+            final String type = readUTF(header);
+            final int start = header.getInt();
+            final int end = header.getInt();
+            final int size = header.getInt();
+            layoutLines.add(String.join(SEPARATOR, name, String.valueOf(size), String.valueOf(start + 1),
+                    String.valueOf(end), type));
+            encodings[column] = ColumnEncoding.values()[header.get()];
+            bits[column] = header.get();
+            base[column] = header.getLong();
+            dictionarySizes[column] = header.getInt();
+            offsets[column] = (int) header.getLong();
+            header.getLong(); // Data length, only needed by tools reading a column alone.
+        }
+        final int dataStart = header.position();
+
+        buffer = mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        layout = TableLayout.compile(tableName, layoutLines);
+        for (int column = 0; column < columnCount; column++) {
+            offsets[column] += dataStart;
+            if (encodings[column] == ColumnEncoding.DICTIONARY) {
+                final int size = layout.end(column) - layout.start(column);
+                dictionaries[column] = new byte[dictionarySizes[column] * size];
+                for (int i = 0; i < dictionaries[column].length; i++) {
+                    dictionaries[column][i] = buffer.get(offsets[column] + i);
+                }
+                // Packed ids come right after the values.
+                offsets[column] += dictionaries[column].length;
+            }
+        }
+        row = ThreadLocal.withInitial(() -> ByteBuffer.allocate(width));
+    }
+
+    /**
+     * Opens a table's snapshot, if it's up to date with the table's data file.
+     *
+     * @param path      Path to the data directory.
+     * @param tableName The table name.
+     * @return SnapshotTable of the table, or null if there's no snapshot or the data file changed since it was written.
+     */
+    public static SnapshotTable open(String path, String tableName) {
+        final Path snapshotFile = SnapshotWriter.snapshotFile(path, tableName);
+        if (!Files.exists(snapshotFile)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotFile, READ)) {
+            // The mapping stays valid after the channel is closed.
+            final SnapshotTable table = new SnapshotTable(tableName, channel.map(READ_ONLY, 0, channel.size()));
+            return table.isUpToDate(Paths.get(path, tableName + TXT_EXTENSION)) ? table : null;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Opens a table's snapshot, writing it first if it's missing, outdated or written for another layout.
+     *
+     * @param path   Path to the data directory.
+     * @param layout Layout of the table.
+     * @return SnapshotTable of the table.
+     * @throws java.io.UncheckedIOException if the snapshot can't be written.
+     * @throws IllegalStateException        if the snapshot can't be read back after written.
+     */
+    public static SnapshotTable openOrWrite(String path, TableLayout layout) {
+        SnapshotTable table = open(path, layout.name());
+        if (table == null || !table.matches(layout)) {
+            SnapshotWriter.writeTable(path, layout);
+            table = open(path, layout.name());
+            if (table == null) {
+                throw new IllegalStateException("Snapshot can't be read after written: " + layout.name());
+            }
+        }
+        return table;
+    }
+
+    private boolean isUpToDate(Path dataFile) {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(dataFile, BasicFileAttributes.class);
+            return attributes.size() == sourceSize && attributes.lastModifiedTime().toMillis() == sourceModified;
+        } catch (IOException e) {
+            return sourceSize == -1;
+        }
+    }
+
+    /**
+     * @param other Layout to be compared.
+     * @return true if both layouts have the same columns, at the same positions and of the same types.
+     */
+    public boolean matches(TableLayout other) {
+        if (other.columnCount() != layout.columnCount() || other.width() != layout.width()) {
+            return false;
+        }
+        for (int column = 0; column < layout.columnCount(); column++) {
+            if (!other.column(column).equals(layout.column(column)) || other.start(column) != layout.start(column)
+                    || other.end(column) != layout.end(column) || other.size(column) != layout.size(column)
+                    || other.type(column) != layout.type(column)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Layout of the table, as stored into the snapshot.
+     */
+    public TableLayout layout() {
+        return layout;
+    }
+
+    /**
+     * @return Amount of rows of the table.
+     */
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @param column Index of the column, in sorted order.
+     * @return How the column is stored.
+     */
+    public ColumnEncoding encoding(int column) {
+        return encodings[column];
+    }
+
+    /**
+     * Rebuilds a row into the calling thread's row buffer and points a cursor to it.
+     *
+     * @param row    Index of the row.
+     * @param cursor Cursor to be moved.
+     * @return The same cursor received.
+     */
+    public RowCursor row(int row, RowCursor cursor) {
+        final ByteBuffer target = this.row.get();
+        final byte[] bytes = target.array();
+        for (int column = 0; column < encodings.length; column++) {
+            final int start = layout.start(column);
+            final int size = layout.end(column) - start;
+            switch (encodings[column]) {
+                case RAW:
+                    final int offset = offsets[column] + row * size;
+                    for (int i = 0; i < size; i++) {
+                        bytes[start + i] = buffer.get(offset + i);
+                    }
+                    break;
+                case DICTIONARY:
+                    final int id = (int) BitPacking.read(buffer, offsets[column], row, bits[column]);
+                    System.arraycopy(dictionaries[column], id * size, bytes, start, size);
+                    break;
+                case PACKED:
+                    long value = base[column] + BitPacking.read(buffer, offsets[column], row, bits[column]);
+                    for (int i = start + size - 1; i >= start; i--) {
+                        bytes[i] = (byte) ('0' + value % 10);
+                        value /= 10;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException(encodings[column].name());
+            }
+        }
+        return cursor.wrap(target, 0, bytes.length);
+    }
+
+    private static String readUTF(ByteBuffer header) throws IOException {
+        final int length = header.getShort() & 0xFFFF;
+        final byte[] bytes = new byte[length + 2];
+        bytes[0] = (byte) (length >>> 8);
+        bytes[1] = (byte) length;
+        header.get(bytes, 2, length);
+        return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+    }
+}
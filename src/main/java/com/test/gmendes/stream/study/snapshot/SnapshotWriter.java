@@ -0,0 +1,279 @@
+package com.test.gmendes.stream.study.snapshot;
+
+import com.test.gmendes.stream.study.collect.SectionCollector;
+import com.test.gmendes.stream.study.io.CacheDirectory;
+import com.test.gmendes.stream.study.io.MappedFile;
+import com.test.gmendes.stream.study.java8.v2.ProcessJava8V2;
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Converts Sigtap text files into columnar snapshot files, which are read back by {@link SnapshotTable}.
+ * <p>
+ * Each table is written into <code>snapshot/TABLE_NAME.snap</code>, inside the {@link CacheDirectory} of the data
+ * directory, so the data directory is never written to. Each column is stored
+ * with the smallest of the encodings in {@link ColumnEncoding}: zero padded integers (e.g. codes and values) are bit
+ * packed, low cardinality columns (e.g. DT_COMPETENCIA) are dictionary encoded, and other columns are kept raw.
+ * <p>
+ * The file layout is:
+ * <li>Header: magic, version, size and modification time of the source text file, row count and row width.</li>
+ * <li>Columns: name, type, start, end, size, encoding, bits, base value, dictionary size, data offset and data
+ * length.</li>
+ * <li>Data of each column, at the offsets written into the header, relative to the header's end.</li>
+ * <p>
+ * Encodings are exact: the rows read from a snapshot have the very same bytes as the text file's rows.
+ *
+ * @author grmendes
+ */
+public final class SnapshotWriter {
+
+    public static final String SNAPSHOT_DIRECTORY = "snapshot";
+    public static final String SNAPSHOT_EXTENSION = ".snap";
+
+    static final long MAGIC = 0x5349475350534E31L; // "SIGSPSN1"
+    static final int VERSION = 1;
+
+    /**
+     * Columns with more distinct values than this are never dictionary encoded.
+     */
+    private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+    /**
+     * Longest column which may be bit packed. Longer integers may not fit into {@link BitPacking#MAX_BITS}.
+     */
+    private static final int MAX_PACKED_DIGITS = 16;
+
+    private SnapshotWriter() {
+        // Private Default Constructor.
+    }
+
+    /**
+     * Converts all tables described by layout.txt.
+     *
+     * @param path Path to the data directory.
+     * @return Paths to the snapshot files written.
+     * @throws UncheckedIOException if a snapshot file can't be written.
+     */
+    public static List<Path> write(String path) {
+        final Map<String, List<String>> layouts = ProcessJava8V2.readFile(path, LAYOUT_FILE_BASE_NAME).stream()
+                .collect(SectionCollector.toSectionMap(String::isEmpty));
+        return layouts.entrySet().parallelStream()
+                .map(entry -> writeTable(path, TableLayout.compile(entry.getKey(), entry.getValue())))
+                .sorted().collect(toList());
+    }
+
+    /**
+     * @param path      Path to the data directory.
+     * @param tableName The table name.
+     * @return Path to the table's snapshot file, into the cache directory of the data directory.
+     */
+    public static Path snapshotFile(String path, String tableName) {
+        return CacheDirectory.of(path).resolve(SNAPSHOT_DIRECTORY).resolve(tableName + SNAPSHOT_EXTENSION);
+    }
+
+    /**
+     * Converts one table. A missing data file is converted as an empty table.
+     *
+     * @param path   Path to the data directory.
+     * @param layout Layout of the table.
+     * @return Path to the snapshot file written.
+     * @throws IllegalArgumentException if any row doesn't have the layout's width.
+     * @throws UncheckedIOException     if the snapshot file can't be written.
+     */
+    public static Path writeTable(String path, TableLayout layout) {
+        final Path dataFile = Paths.get(path, layout.name() + TXT_EXTENSION);
+        final BasicFileAttributes attributes = attributes(dataFile);
+        final MappedFile data = MappedFile.readFile(path, layout.name() + TXT_EXTENSION);
+        final int rows = data.rowCount();
+        final int width = layout.width();
+        for (int row = 0; row < rows; row++) {
+            if (data.rowLength(row) != width) {
+                throw new IllegalArgumentException(String.format("Row %d of %s has %d chars instead of %d", row,
+                        layout.name(), data.rowLength(row), width));
+            }
+        }
+
+        final EncodedColumn[] columns = new EncodedColumn[layout.columnCount()];
+        final RowCursor cursor = new RowCursor(layout);
+        for (int column = 0; column < columns.length; column++) {
+            columns[column] = encode(data, cursor, column);
+        }
+
+        final Path snapshotFile = snapshotFile(path, layout.name());
+        try {
+            Files.createDirectories(snapshotFile.getParent());
+            final Path tempFile = Files.createTempFile(snapshotFile.getParent(), layout.name(), ".tmp");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(tempFile)))) {
+                output.writeLong(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(attributes != null ? attributes.size() : -1);
+                output.writeLong(attributes != null ? attributes.lastModifiedTime().toMillis() : -1);
+                output.writeInt(rows);
+                output.writeInt(width);
+                output.writeInt(columns.length);
+
+                // Offsets are relative to the end of the header.
+                long offset = 0;
+                for (int column = 0; column < columns.length; column++) {
+                    final EncodedColumn encoded = columns[column];
+                    output.writeUTF(layout.column(column));
+                    output.writeUTF(layout.type(column).name());
+                    output.writeInt(layout.start(column));
+                    output.writeInt(layout.end(column));
+                    output.writeInt(layout.size(column));
+                    output.writeByte(encoded.encoding.ordinal());
+                    output.writeByte(encoded.bits);
+                    output.writeLong(encoded.base);
+                    output.writeInt(encoded.dictionarySize);
+                    output.writeLong(offset);
+                    output.writeLong(encoded.data.length);
+                    offset += encoded.data.length;
+                }
+                for (EncodedColumn encoded : columns) {
+                    output.write(encoded.data);
+                }
+            }
+            Files.move(tempFile, snapshotFile, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return snapshotFile;
+    }
+
+    /**
+     * Chooses the smallest encoding for a column and encodes it.
+     */
+    private static EncodedColumn encode(MappedFile data, RowCursor cursor, int column) {
+        final int rows = data.rowCount();
+        final TableLayout layout = cursor.layout();
+        final int start = layout.start(column);
+        final int size = layout.end(column) - start;
+
+        // Packing is possible if every value is a zero padded integer, with no blanks.
+        boolean packable = size > 0 && size <= MAX_PACKED_DIGITS;
+        final long[] numbers = packable ? new long[rows] : null;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        // Dictionary is possible while there are not too many distinct values.
+        Map<String, Integer> dictionary = new HashMap<>();
+        final int[] ids = new int[rows];
+
+        for (int row = 0; row < rows; row++) {
+            data.row(row, cursor);
+            if (packable) {
+                long number = 0;
+                for (int i = start; i < start + size && packable; i++) {
+                    final char c = cursor.charAt(i);
+                    packable = c >= '0' && c <= '9';
+                    number = number * 10 + (c - '0');
+                }
+                if (packable) {
+                    numbers[row] = number;
+                    min = Math.min(min, number);
+                    max = Math.max(max, number);
+                }
+            }
+            if (dictionary != null) {
+                final String value = cursor.value(column);
+                Integer id = dictionary.get(value);
+                if (id == null) {
+                    if (dictionary.size() == MAX_DICTIONARY_SIZE) {
+                        dictionary = null;
+                        continue;
+                    }
+                    id = dictionary.size();
+                    dictionary.put(value, id);
+                }
+                ids[row] = id;
+            }
+        }
+
+        final long rawSize = (long) rows * size;
+        final int packedBits = packable && rows > 0 ? BitPacking.bitsFor(max - min) : Integer.MAX_VALUE;
+        final long packedSize = packedBits <= BitPacking.MAX_BITS ? BitPacking.packedSize(rows, packedBits)
+                : Long.MAX_VALUE;
+        final int idBits = dictionary != null ? BitPacking.bitsFor(Math.max(dictionary.size() - 1, 0)) : 0;
+        final long dictionarySize = dictionary != null ? (long) dictionary.size() * size
+                + BitPacking.packedSize(rows, idBits) : Long.MAX_VALUE;
+
+        if (packedSize <= dictionarySize && packedSize < rawSize) {
+            for (int row = 0; row < rows; row++) {
+                numbers[row] -= min;
+            }
+            return new EncodedColumn(ColumnEncoding.PACKED, packedBits, min, 0, BitPacking.pack(numbers, packedBits));
+        }
+        if (dictionarySize < rawSize) {
+            final byte[] values = new byte[dictionary.size() * size];
+            for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+                for (int i = 0; i < size; i++) {
+                    values[entry.getValue() * size + i] = (byte) entry.getKey().charAt(i);
+                }
+            }
+            final long[] packedIds = new long[rows];
+            for (int row = 0; row < rows; row++) {
+                packedIds[row] = ids[row];
+            }
+            final byte[] packed = BitPacking.pack(packedIds, idBits);
+            final byte[] encoded = new byte[values.length + packed.length];
+            System.arraycopy(values, 0, encoded, 0, values.length);
+            System.arraycopy(packed, 0, encoded, values.length, packed.length);
+            return new EncodedColumn(ColumnEncoding.DICTIONARY, idBits, 0, dictionary.size(), encoded);
+        }
+
+        final byte[] raw = new byte[(int) rawSize];
+        for (int row = 0; row < rows; row++) {
+            data.row(row, cursor);
+            for (int i = 0; i < size; i++) {
+                raw[row * size + i] = (byte) cursor.charAt(start + i);
+            }
+        }
+        return new EncodedColumn(ColumnEncoding.RAW, 0, 0, 0, raw);
+    }
+
+    private static BasicFileAttributes attributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * A column ready to be written.
+     */
+    private static final class EncodedColumn {
+
+        private final ColumnEncoding encoding;
+        private final int bits;
+        private final long base;
+        private final int dictionarySize;
+        private final byte[] data;
+
+        private EncodedColumn(ColumnEncoding encoding, int bits, long base, int dictionarySize, byte[] data) {
+            this.encoding = encoding;
+            this.bits = bits;
+            this.base = base;
+            this.dictionarySize = dictionarySize;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.test.gmendes.stream.study.store;
+
+import com.test.gmendes.stream.study.layout.RowCursor;
+
+/**
+ * Reusable CharSequence over a column of a cursor's row, with the trailing whitespaces removed. Used to look a row's
+ * value up into an {@link OffHeapTable} with no String creation, e.g. a foreign key of a rl_ table.
+ * <p>
+ * The key reads the cursor's chars on demand, so it's only valid while the cursor stays on the same row. Keys are not
+ * thread safe, like cursors.
+ *
+ * @author grmendes
+ */
+public final class ColumnKey implements CharSequence {
+
+    private RowCursor row;
+    private int start;
+    private int length;
+
+    /**
+     * Points the key to a column of the cursor's current row.
+     *
+     * @param row    Cursor pointing to the row.
+     * @param column Index of the column, in sorted order.
+     * @return This key.
+     */
+    public ColumnKey of(RowCursor row, int column) {
+        this.row = row;
+        this.start = row.layout().start(column);
+        int end = Math.min(row.layout().end(column), row.length());
+        while (end > start && row.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        this.length = Math.max(end - start, 0);
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return row.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(charAt(i));
+        }
+        return builder.toString();
+    }
+}
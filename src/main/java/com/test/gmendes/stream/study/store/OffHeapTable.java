@@ -0,0 +1,255 @@
+package com.test.gmendes.stream.study.store;
+
+import com.test.gmendes.stream.study.io.MappedFile;
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A whole table copied into direct memory, indexed by its primary key.
+ * <p>
+ * Rows are stored one after another, all with the layout's width and with no line terminators, so row N starts at
+ * <code>N * width</code>. The index is an open addressing hash table with linear probing, also in direct memory, whose
+ * slots hold the row and the hash of each key, so keys are only compared when their hashes are the same. Neither the
+ * rows nor the index are on the Java heap, so resident tables don't add up to GC pauses.
+ * <p>
+ * A key is the key columns' bytes, one column after another in the key's order, with the trailing whitespaces removed.
+ * For a single key column, it's just the column's value, e.g. <code>0201010038</code> for CO_PROCEDIMENTO. Keys are
+ * hashed and compared straight from the stored bytes, and lookups fill a cursor supplied by the caller, so a lookup
+ * allocates nothing.
+ * <p>
+ * Tables are read only after loaded, so one instance can be shared by many threads, each one with its own cursor.
+ *
+ * @author grmendes
+ */
+public final class OffHeapTable {
+
+    /**
+     * Slot of the index with no row.
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * 2^32 divided by the golden ratio. Multiplying by it spreads the hashes of similar keys, like the codes of tb_cid,
+     * which would otherwise fill runs of consecutive slots.
+     */
+    private static final int FIBONACCI = 0x9E3779B9;
+
+    private final TableLayout layout;
+    private final int[] keyColumns;
+    private final int rowCount;
+    private final int width;
+    private final ByteBuffer rows;
+    private final IntBuffer index;
+    private final int mask;
+    private final int shift;
+
+    private OffHeapTable(TableLayout layout, int[] keyColumns, int rowCount, ByteBuffer rows) {
+        this.layout = layout;
+        this.keyColumns = keyColumns;
+        this.rowCount = rowCount;
+        this.width = layout.width();
+        this.rows = rows;
+
+        // At most half of the slots are used, so probing sequences stay short.
+        final int slots = Math.max(Integer.highestOneBit(Math.max(rowCount, 1)) << 2, 16);
+        this.mask = slots - 1;
+        this.shift = Integer.SIZE - Integer.numberOfTrailingZeros(slots);
+        this.index = ByteBuffer.allocateDirect(slots * 2 * Integer.BYTES).order(ByteOrder.nativeOrder())
+                .asIntBuffer();
+        for (int slot = 0; slot < slots; slot++) {
+            index.put(slot * 2, EMPTY);
+        }
+    }
+
+    /**
+     * Loads a table, copying all its rows into direct memory and indexing them.
+     *
+     * @param data       Data file of the table.
+     * @param layout     Layout of the table.
+     * @param keyColumns Names of the primary key's columns, in the key's order.
+     * @return OffHeapTable with all rows of the table.
+     * @throws IllegalArgumentException if a key column doesn't exist, if any row doesn't have the layout's width or if
+     *                                  any key is duplicated.
+     */
+    public static OffHeapTable load(MappedFile data, TableLayout layout, String... keyColumns) {
+        if (keyColumns.length == 0) {
+            throw new IllegalArgumentException("No key columns for " + layout.name());
+        }
+        final int[] keyIndexes = new int[keyColumns.length];
+        for (int i = 0; i < keyColumns.length; i++) {
+            keyIndexes[i] = layout.indexOf(keyColumns[i]);
+            if (keyIndexes[i] < 0) {
+                throw new IllegalArgumentException(String.format("Unknown key column for %s: %s", layout.name(),
+                        keyColumns[i]));
+            }
+        }
+
+        final int rowCount = data.rowCount();
+        final int width = layout.width();
+        final ByteBuffer rows = ByteBuffer.allocateDirect(Math.max(rowCount * width, 1));
+        for (int row = 0; row < rowCount; row++) {
+            if (data.rowLength(row) != width) {
+                throw new IllegalArgumentException(String.format("Row %d of %s has %d chars instead of %d", row,
+                        layout.name(), data.rowLength(row), width));
+            }
+            data.copyRow(row, rows);
+        }
+
+        final OffHeapTable table = new OffHeapTable(layout, keyIndexes, rowCount, rows);
+        for (int row = 0; row < rowCount; row++) {
+            table.addToIndex(row);
+        }
+        return table;
+    }
+
+    private void addToIndex(int row) {
+        final int offset = row * width;
+        final int keyEnd = keyEnd(offset);
+        final int hash = hash(offset, keyEnd);
+        int slot = slot(hash);
+        for (int existing = index.get(slot * 2); existing != EMPTY; existing = index.get(slot * 2)) {
+            if (index.get(slot * 2 + 1) == hash && sameKey(existing * width, offset, keyEnd)) {
+                throw new IllegalArgumentException(String.format("Rows %d and %d of %s have the same key", existing,
+                        row, layout.name()));
+            }
+            slot = (slot + 1) & mask;
+        }
+        index.put(slot * 2, row);
+        index.put(slot * 2 + 1, hash);
+    }
+
+    /**
+     * @return Layout of the table.
+     */
+    public TableLayout layout() {
+        return layout;
+    }
+
+    /**
+     * @return Amount of rows of the table.
+     */
+    public int rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return Bytes of direct memory used by the rows and the index.
+     */
+    public long offHeapBytes() {
+        return (long) rows.capacity() + (long) index.capacity() * Integer.BYTES;
+    }
+
+    /**
+     * Points a cursor to a row of the table. No bytes are copied.
+     *
+     * @param row    Index of the row.
+     * @param cursor Cursor to be moved.
+     * @return The same cursor received.
+     */
+    public RowCursor row(int row, RowCursor cursor) {
+        return cursor.wrap(rows, row * width, width);
+    }
+
+    /**
+     * Finds the row with a key.
+     *
+     * @param key The key, with no trailing whitespaces.
+     * @return Index of the row, or -1 if there's no row with the key.
+     */
+    public int find(CharSequence key) {
+        int hash = 1;
+        for (int i = 0; i < key.length(); i++) {
+            hash = 31 * hash + key.charAt(i);
+        }
+        int slot = slot(hash);
+        for (int row = index.get(slot * 2); row != EMPTY; row = index.get(slot * 2)) {
+            if (index.get(slot * 2 + 1) == hash && sameKey(row * width, key)) {
+                return row;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    /**
+     * Points a cursor to the row with a key.
+     *
+     * @param key    The key, with no trailing whitespaces.
+     * @param cursor Cursor to be moved.
+     * @return The same cursor received, or null if there's no row with the key, in which case the cursor is unchanged.
+     */
+    public RowCursor lookup(CharSequence key, RowCursor cursor) {
+        final int row = find(key);
+        return row != EMPTY ? row(row, cursor) : null;
+    }
+
+    /**
+     * @return Length of the key of the row starting at the offset, ignoring its trailing whitespaces.
+     */
+    private int keyEnd(int offset) {
+        int length = 0;
+        int keyEnd = 0;
+        for (int keyColumn : keyColumns) {
+            for (int i = layout.start(keyColumn); i < layout.end(keyColumn); i++) {
+                length++;
+                if ((rows.get(offset + i) & 0xFF) > ' ') {
+                    keyEnd = length;
+                }
+            }
+        }
+        return keyEnd;
+    }
+
+    /**
+     * Hashes a row's key with the same function applied by {@link #find(CharSequence)} to the chars of a key.
+     */
+    private int hash(int offset, int keyEnd) {
+        int hash = 1;
+        int length = 0;
+        for (int keyColumn : keyColumns) {
+            for (int i = layout.start(keyColumn); i < layout.end(keyColumn) && length < keyEnd; i++, length++) {
+                hash = 31 * hash + (rows.get(offset + i) & 0xFF);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return First slot to be probed for a hash, taken from the hash's bits mixed by the multiplication.
+     */
+    private int slot(int hash) {
+        return (hash * FIBONACCI) >>> shift;
+    }
+
+    private boolean sameKey(int offset, int otherOffset, int keyEnd) {
+        if (keyEnd(offset) != keyEnd) {
+            return false;
+        }
+        int length = 0;
+        for (int keyColumn : keyColumns) {
+            for (int i = layout.start(keyColumn); i < layout.end(keyColumn) && length < keyEnd; i++, length++) {
+                if (rows.get(offset + i) != rows.get(otherOffset + i)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean sameKey(int offset, CharSequence key) {
+        int length = 0;
+        for (int keyColumn : keyColumns) {
+            for (int i = layout.start(keyColumn); i < layout.end(keyColumn); i++, length++) {
+                final int c = rows.get(offset + i) & 0xFF;
+                if (length < key.length() ? c != key.charAt(length) : c > ' ') {
+                    return false;
+                }
+            }
+        }
+        return length >= key.length();
+    }
+}
@@ -0,0 +1,110 @@
+package com.test.gmendes.stream.study.store;
+
+import com.test.gmendes.stream.study.collect.SectionCollector;
+import com.test.gmendes.stream.study.io.MappedFile;
+import com.test.gmendes.stream.study.java8.v2.ProcessJava8V2;
+import com.test.gmendes.stream.study.layout.TableLayout;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
+import static com.test.gmendes.stream.study.Constants.SEPARATOR;
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+
+/**
+ * Keeps the tables of a Sigtap release into direct memory, for primary key lookups.
+ * <p>
+ * Tables are loaded on their first request, using their definition from layout.txt, and kept until the store is
+ * discarded. Each table is loaded once, even if requested by many threads at the same time.
+ * <p>
+ * Sigtap layouts don't declare keys, but each tb_ table is identified by the code named after it, e.g. CO_PROCEDIMENTO
+ * for tb_procedimento and CO_CID for tb_cid. That's the key used by {@link #table(String)}. Tables identified by more
+ * than one code, like tb_sub_grupo, need their key columns informed.
+ *
+ * @author grmendes
+ */
+public final class TableStore {
+
+    public static final String TABLE_PREFIX = "tb_";
+    public static final String KEY_COLUMN_PREFIX = "CO_";
+
+    private final String path;
+    private final Map<String, OffHeapTable> tables = new ConcurrentHashMap<>();
+    private volatile Map<String, List<String>> layouts;
+
+    /**
+     * @param path Path to the data directory.
+     */
+    public TableStore(String path) {
+        this.path = path;
+    }
+
+    /**
+     * @param tableName The table name, starting with tb_.
+     * @return Name of the code column named after the table, e.g. CO_CID for tb_cid.
+     * @throws IllegalArgumentException if the table name doesn't start with tb_.
+     */
+    public static String primaryKey(String tableName) {
+        if (!tableName.startsWith(TABLE_PREFIX)) {
+            throw new IllegalArgumentException("Not a tb_ table: " + tableName);
+        }
+        return KEY_COLUMN_PREFIX + tableName.substring(TABLE_PREFIX.length()).toUpperCase();
+    }
+
+    /**
+     * Gets a table keyed by the code named after it, see {@link #primaryKey(String)}.
+     *
+     * @param tableName The table name, starting with tb_.
+     * @return OffHeapTable with all rows of the table.
+     * @throws IllegalArgumentException if the table is not into layout.txt, or if it can't be keyed by the code.
+     */
+    public OffHeapTable table(String tableName) {
+        return table(tableName, primaryKey(tableName));
+    }
+
+    /**
+     * Gets a table keyed by the given columns. The same table may be kept once for each different key.
+     *
+     * @param tableName  The table name.
+     * @param keyColumns Names of the primary key's columns, in the key's order.
+     * @return OffHeapTable with all rows of the table.
+     * @throws IllegalArgumentException if the table is not into layout.txt, or if it can't be keyed by the columns.
+     */
+    public OffHeapTable table(String tableName, String... keyColumns) {
+        return tables.computeIfAbsent(tableName + SEPARATOR + String.join(SEPARATOR, keyColumns),
+                storeKey -> OffHeapTable.load(MappedFile.readFile(path, tableName + TXT_EXTENSION), layout(tableName),
+                        keyColumns));
+    }
+
+    /**
+     * @param tableName The table name.
+     * @return Layout of the table, as defined by layout.txt.
+     * @throws IllegalArgumentException if the table is not into layout.txt.
+     */
+    public TableLayout layout(String tableName) {
+        final List<String> layoutLines = layouts().get(tableName);
+        if (layoutLines == null) {
+            throw new IllegalArgumentException("Table not found into " + LAYOUT_FILE_BASE_NAME + ": " + tableName);
+        }
+        return TableLayout.compile(tableName, layoutLines);
+    }
+
+    private Map<String, List<String>> layouts() {
+        Map<String, List<String>> result = layouts;
+        if (result == null) {
+            result = ProcessJava8V2.readFile(path, LAYOUT_FILE_BASE_NAME).stream()
+                    .collect(SectionCollector.toSectionMap(String::isEmpty));
+            layouts = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return Bytes of direct memory used by all tables loaded so far.
+     */
+    public long offHeapBytes() {
+        return tables.values().stream().mapToLong(OffHeapTable::offHeapBytes).sum();
+    }
+}
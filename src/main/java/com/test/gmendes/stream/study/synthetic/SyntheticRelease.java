@@ -0,0 +1,403 @@
+package com.test.gmendes.stream.study.synthetic;
+
+import com.test.gmendes.stream.study.collect.SectionCollector;
+import com.test.gmendes.stream.study.io.MappedFile;
+import com.test.gmendes.stream.study.java8.v2.ProcessJava8V2;
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import com.test.gmendes.stream.study.store.TableStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Generates a larger Sigtap release from a real one, for benchmarking how the versions scale with the data.
+ * <p>
+ * Columns are profiled from the real data files first. A column grows with the release if, in any table, it has
+ * distinct values for at least half of the rows and is at least {@link #MIN_GROWN_WIDTH} chars wide: codes like
+ * CO_PROCEDIMENTO and CO_CID, and names like NO_PROCEDIMENTO. All other columns, like DT_COMPETENCIA or TP_SEXO, keep
+ * their handful of values.
+ * <p>
+ * A table identified by a growing code is written <code>scale</code> times: once as it is, and then once for each
+ * replica, whose growing columns have their letters and digits shifted within their own range. Growing codes are
+ * replaced through a dictionary of each replica, so a code gets the same new code in every table, and relations keep
+ * pointing to existing rows. A code column named after another code, like CO_PROCEDIMENTO_ORIGEM, references it and
+ * shares its dictionary, see {@link #referencedCode(String)}. Other growing columns, like names, are shifted by an
+ * amount chosen for the column, the position into it and the replica. Widths, blanks, value lengths and the values of
+ * the other columns are kept as into the real files, as well as the key cardinalities relative to the row counts. A tb_
+ * table grows if its own code grows, see {@link TableStore#primaryKey(String)}, and any other table if any of its
+ * codes, or of the codes they reference, grows. The other ones, like tb_grupo, are domain tables, written once and as
+ * they are.
+ * <p>
+ * New codes never repeat a code already taken, unless the code's shape runs out of values. E.g. tb_cid already uses
+ * about half of the 26000 codes made of a letter and three digits, so beyond scale 2 some CO_CID repeat.
+ *
+ * @author grmendes
+ */
+public final class SyntheticRelease {
+
+    /**
+     * Narrowest column grown. Narrower ones have too few possible values to grow.
+     */
+    public static final int MIN_GROWN_WIDTH = 4;
+    public static final long DEFAULT_SEED = 2017L;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_CODE_ATTEMPTS = 64;
+    private static final int DIGITS = 10;
+    private static final int LETTERS = 26;
+
+    private final String path;
+    private final SortedSet<String> tables = new TreeSet<>();
+    private final Map<String, TableLayout> layouts = new TreeMap<>();
+    private final Set<String> grownColumns = new TreeSet<>();
+    /**
+     * Code referenced by each code column named after another one, e.g. CO_PROCEDIMENTO_ORIGEM to CO_PROCEDIMENTO.
+     */
+    private final Map<String, String> references = new TreeMap<>();
+    /**
+     * Distinct values of each growing code, from all tables, including the columns referencing it.
+     */
+    private final Map<String, Set<String>> codeValues = new TreeMap<>();
+
+    /**
+     * Profiles the columns of all tables of a release.
+     *
+     * @param path Path to the data directory of the real release.
+     */
+    public SyntheticRelease(String path) {
+        this.path = path;
+        final Map<String, List<String>> layoutLines = ProcessJava8V2.readFile(path, LAYOUT_FILE_BASE_NAME).stream()
+                .collect(SectionCollector.toSectionMap(String::isEmpty));
+        layoutLines.forEach((table, lines) -> {
+            tables.add(table);
+            if (Files.isRegularFile(Paths.get(path, table + TXT_EXTENSION))) {
+                layouts.put(table, TableLayout.compile(table, lines));
+            }
+        });
+        findReferences();
+        layouts.values().forEach(this::profile);
+        codeValues.keySet().retainAll(grownColumns);
+    }
+
+    /**
+     * Finds the code columns referencing the code of a tb_ table, by their names: the code followed by a suffix, like
+     * CO_PROCEDIMENTO_PRINCIPAL. Columns of tb_ tables are codes of their own, like CO_PROCEDIMENTO_SIA_SIH of
+     * tb_sia_sih, so they never reference another one. The longest code matching is taken.
+     */
+    private void findReferences() {
+        final Set<String> primaryKeys = new TreeSet<>();
+        final Set<String> ownCodes = new HashSet<>();
+        for (TableLayout layout : layouts.values()) {
+            if (layout.name().startsWith(TableStore.TABLE_PREFIX)) {
+                ownCodes.addAll(layout.columns());
+                if (layout.indexOf(TableStore.primaryKey(layout.name())) >= 0) {
+                    primaryKeys.add(TableStore.primaryKey(layout.name()));
+                }
+            }
+        }
+        for (TableLayout layout : layouts.values()) {
+            for (String column : layout.columns()) {
+                if (!column.startsWith(TableStore.KEY_COLUMN_PREFIX) || ownCodes.contains(column)) {
+                    continue;
+                }
+                for (String primaryKey : primaryKeys) {
+                    if (column.startsWith(primaryKey + "_")
+                            && primaryKey.length() > references.getOrDefault(column, "").length()) {
+                        references.put(column, primaryKey);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param column Name of a column.
+     * @return Name of the code referenced by the column, or the column's own name if it doesn't reference another one.
+     */
+    public String referencedCode(String column) {
+        return references.getOrDefault(column, column);
+    }
+
+    private void profile(TableLayout layout) {
+        final MappedFile data = MappedFile.readFile(path, layout.name() + TXT_EXTENSION);
+        final RowCursor cursor = new RowCursor(layout);
+        for (int column = 0; column < layout.columnCount(); column++) {
+            final String name = layout.column(column);
+            final boolean code = name.startsWith(TableStore.KEY_COLUMN_PREFIX);
+            final String grown = referencedCode(name);
+            if (layout.size(column) < MIN_GROWN_WIDTH || (!code && grownColumns.contains(grown))) {
+                continue;
+            }
+            final Set<String> distinct = new HashSet<>();
+            for (int row = 0; row < data.rowCount(); row++) {
+                distinct.add(data.row(row, cursor).value(column));
+            }
+            if (code) {
+                codeValues.computeIfAbsent(grown, key -> new HashSet<>()).addAll(distinct);
+            }
+            if (data.rowCount() > 0 && distinct.size() * 2 >= data.rowCount()) {
+                grownColumns.add(grown);
+            }
+        }
+    }
+
+    /**
+     * @return Names of the columns growing with the release, sorted. Columns referencing a code are not listed, they
+     * grow with the code they reference.
+     */
+    public Set<String> grownColumns() {
+        return Collections.unmodifiableSet(grownColumns);
+    }
+
+    /**
+     * @param table The table name.
+     * @return true if the table is written once for each replica, false if it's written once.
+     */
+    public boolean grows(String table) {
+        final TableLayout layout = layouts.get(table);
+        if (layout == null) {
+            return false;
+        }
+        if (table.startsWith(TableStore.TABLE_PREFIX) && layout.indexOf(TableStore.primaryKey(table)) >= 0) {
+            return grownColumns.contains(TableStore.primaryKey(table));
+        }
+        return layout.columns().stream()
+                .anyMatch(column -> column.startsWith(TableStore.KEY_COLUMN_PREFIX)
+                        && grownColumns.contains(referencedCode(column)));
+    }
+
+    /**
+     * Writes a release with the default seed.
+     *
+     * @see #write(Path, int, long)
+     */
+    public long write(Path outputDirectory, int scale) {
+        return write(outputDirectory, scale, DEFAULT_SEED);
+    }
+
+    /**
+     * Writes a release, with its data files and the layout files needed to process it. The same seed and scale
+     * always write the same files. Scale 1 writes a copy of the real release. Tables with no data file into the real
+     * release have only their layout file written.
+     *
+     * @param outputDirectory Directory of the release. Created if needed.
+     * @param scale           Amount of replicas of the growing tables, the real rows included.
+     * @param seed            Seed of the shifts of the replicas.
+     * @return Amount of rows written, of all tables.
+     * @throws IllegalArgumentException if the scale is not positive.
+     * @throws UncheckedIOException     if any file can't be written.
+     */
+    public long write(Path outputDirectory, int scale, long seed) {
+        if (scale < 1) {
+            throw new IllegalArgumentException("Invalid scale: " + scale);
+        }
+        try {
+            Files.createDirectories(outputDirectory);
+            Files.copy(Paths.get(path, LAYOUT_FILE_BASE_NAME), outputDirectory.resolve(LAYOUT_FILE_BASE_NAME),
+                    REPLACE_EXISTING);
+            for (String table : tables) {
+                final String layoutFile = table + "_" + LAYOUT_FILE_BASE_NAME;
+                if (Files.isRegularFile(Paths.get(path, layoutFile))) {
+                    Files.copy(Paths.get(path, layoutFile), outputDirectory.resolve(layoutFile), REPLACE_EXISTING);
+                }
+            }
+            final Map<String, CodeDictionary> codes = new HashMap<>();
+            codeValues.forEach((column, values) -> codes.put(column, new CodeDictionary(column, values, scale, seed)));
+            long rows = 0;
+            for (TableLayout layout : layouts.values()) {
+                rows += writeTable(layout, outputDirectory.resolve(layout.name() + TXT_EXTENSION),
+                        grows(layout.name()) ? scale : 1, seed, codes);
+            }
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long writeTable(TableLayout layout, Path file, int replicas, long seed, Map<String, CodeDictionary> codes)
+            throws IOException {
+        final MappedFile data = MappedFile.readFile(path, layout.name() + TXT_EXTENSION);
+        final CodeDictionary[] columnCodes = new CodeDictionary[layout.columnCount()];
+        for (int column = 0; column < columnCodes.length; column++) {
+            columnCodes[column] = codes.get(referencedCode(layout.column(column)));
+        }
+        final RowCursor cursor = new RowCursor(layout);
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            for (int replica = 0; replica < replicas; replica++) {
+                final int[][] shifts = shifts(layout, replica, seed);
+                for (int row = 0; row < data.rowCount(); row++) {
+                    final int length = data.rowLength(row);
+                    if (buffer.remaining() < length + 1) {
+                        flush(buffer, channel);
+                        if (buffer.capacity() < length + 1) {
+                            throw new IllegalStateException(String.format("Row %d of %s is too long: %d chars", row,
+                                    layout.name(), length));
+                        }
+                    }
+                    final int rowStart = buffer.position();
+                    data.copyRow(row, buffer);
+                    data.row(row, cursor);
+                    for (int column = 0; column < shifts.length; column++) {
+                        final int start = layout.start(column);
+                        final int end = Math.min(layout.end(column), length);
+                        if (replica > 0 && columnCodes[column] != null && start < end) {
+                            final String value = cursor.subSequence(start, end).toString();
+                            columnCodes[column].replace(value, replica, buffer, rowStart + start);
+                        } else if (shifts[column] != null) {
+                            shift(buffer, rowStart, length, start, layout.end(column), shifts[column]);
+                        }
+                    }
+                    buffer.put((byte) '\n');
+                }
+            }
+            flush(buffer, channel);
+        }
+        return (long) data.rowCount() * replicas;
+    }
+
+    /**
+     * @return Shifts of each position of each growing column, or null for the columns not shifted by the replica.
+     * Growing codes have shifts as well, used only for values missing from their dictionary.
+     */
+    private int[][] shifts(TableLayout layout, int replica, long seed) {
+        final int[][] shifts = new int[layout.columnCount()][];
+        if (replica == 0) {
+            return shifts;
+        }
+        for (int column = 0; column < shifts.length; column++) {
+            final String grown = referencedCode(layout.column(column));
+            if (grownColumns.contains(grown)) {
+                // Seeded by the column's name, not by its table, so the same value is shifted the same everywhere.
+                final Random random = random(grown, replica, seed);
+                shifts[column] = new int[layout.size(column)];
+                for (int i = 0; i < shifts[column].length; i++) {
+                    shifts[column][i] = random.nextInt(Integer.MAX_VALUE);
+                }
+            }
+        }
+        return shifts;
+    }
+
+    private static Random random(String column, int replica, long seed) {
+        return new Random((seed * 31 + column.hashCode()) * 31 + replica);
+    }
+
+    private static void shift(ByteBuffer buffer, int rowStart, int rowLength, int from, int to, int[] shifts) {
+        final int end = Math.min(to, rowLength);
+        for (int i = from; i < end; i++) {
+            buffer.put(rowStart + i, (byte) shift(buffer.get(rowStart + i) & 0xFF, shifts[i - from]));
+        }
+    }
+
+    /**
+     * Shifts a letter or digit within its own range. Shifts are never a whole turn, so a shifted char always differs
+     * from the real one. Other chars, like blanks, are kept.
+     */
+    private static int shift(int c, int shift) {
+        if (c >= '0' && c <= '9') {
+            return '0' + (c - '0' + 1 + shift % (DIGITS - 1)) % DIGITS;
+        } else if (c >= 'A' && c <= 'Z') {
+            return 'A' + (c - 'A' + 1 + shift % (LETTERS - 1)) % LETTERS;
+        } else if (c >= 'a' && c <= 'z') {
+            return 'a' + (c - 'a' + 1 + shift % (LETTERS - 1)) % LETTERS;
+        }
+        return c;
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * New values of a growing code for each replica. Each real value gets a random shift of its own, shifted again
+     * while the result is already taken, by a real value or by another replica.
+     */
+    private static final class CodeDictionary {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final int width;
+        /**
+         * Values of each replica but the first one, each one at <code>id * width</code>.
+         */
+        private final byte[][] replicas;
+
+        CodeDictionary(String column, Set<String> values, int scale, long seed) {
+            final List<String> sorted = new ArrayList<>(new TreeSet<>(values));
+            int maxLength = 0;
+            for (String value : sorted) {
+                ids.put(value, ids.size());
+                maxLength = Math.max(maxLength, value.length());
+            }
+            width = maxLength;
+            replicas = new byte[scale - 1][];
+            final Set<String> taken = new HashSet<>(sorted);
+            final char[] candidate = new char[width];
+            for (int replica = 1; replica < scale; replica++) {
+                final Random random = random(column, replica, seed);
+                final byte[] replaced = new byte[sorted.size() * width];
+                for (int id = 0; id < sorted.size(); id++) {
+                    final String value = sorted.get(id);
+                    if (value.trim().isEmpty()) {
+                        continue; // Blank stays blank, and so NULL.
+                    }
+                    for (int attempt = 0; attempt < MAX_CODE_ATTEMPTS; attempt++) {
+                        for (int i = 0; i < value.length(); i++) {
+                            candidate[i] = (char) shift(value.charAt(i), random.nextInt(Integer.MAX_VALUE));
+                        }
+                        if (taken.add(new String(candidate, 0, value.length()))) {
+                            break;
+                        }
+                    }
+                    for (int i = 0; i < value.length(); i++) {
+                        replaced[id * width + i] = (byte) candidate[i];
+                    }
+                }
+                replicas[replica - 1] = replaced;
+            }
+        }
+
+        /**
+         * Puts a code's new value for a replica into a buffer, with the same length. Values missing from the
+         * dictionary are kept.
+         */
+        void replace(String value, int replica, ByteBuffer buffer, int index) {
+            final Integer id = ids.get(value);
+            if (id == null || value.trim().isEmpty()) {
+                return;
+            }
+            final byte[] replaced = replicas[replica - 1];
+            for (int i = 0; i < value.length(); i++) {
+                buffer.put(index + i, replaced[id * width + i]);
+            }
+        }
+    }
+}
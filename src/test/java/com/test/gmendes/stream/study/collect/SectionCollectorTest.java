@@ -0,0 +1,126 @@
+package com.test.gmendes.stream.study.collect;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the section collectors against a plain sequential split, on sequential and parallel streams, and on every
+ * possible chunk boundary.
+ *
+ * @author grmendes
+ */
+public class SectionCollectorTest {
+
+    /**
+     * Leading, trailing and consecutive separators, a section with a single element and a duplicated key.
+     */
+    private static final List<String> LINES = Arrays.asList(
+            "", "", "tb_a", "1", "2", "", "", "", "tb_b", "3", "", "tb_c", "", "tb_a", "4", "5", "6", "", "");
+
+    private static final Collector<String, ?, List<List<String>>> SECTIONS = SectionCollector.toSections(
+            String::isEmpty);
+
+    @Test
+    public void splitsLikeASequentialPass() {
+        final List<List<String>> expected = Arrays.asList(Arrays.asList("tb_a", "1", "2"), Arrays.asList("tb_b", "3"),
+                Collections.singletonList("tb_c"), Arrays.asList("tb_a", "4", "5", "6"));
+        assertEquals(expected, split(LINES));
+        assertEquals(expected, LINES.stream().collect(SECTIONS));
+        assertEquals(expected, LINES.parallelStream().collect(SECTIONS));
+    }
+
+    @Test
+    public void splitsParallelStreamsOfManySections() {
+        // Large enough to be split into many chunks, ending at any element of a section.
+        final List<String> lines = IntStream.range(0, 20_000)
+                .mapToObj(i -> i % 7 == 0 || i % 13 == 0 ? "" : Integer.toString(i))
+                .collect(toList());
+        assertEquals(split(lines), lines.parallelStream().collect(SECTIONS));
+    }
+
+    @Test
+    public void combinesChunksEndingAnywhere() {
+        final List<List<String>> expected = split(LINES);
+        for (int first = 0; first <= LINES.size(); first++) {
+            for (int second = first; second <= LINES.size(); second++) {
+                final List<String> left = LINES.subList(0, first);
+                final List<String> middle = LINES.subList(first, second);
+                final List<String> right = LINES.subList(second, LINES.size());
+                final String chunks = left + " " + middle + " " + right;
+                assertEquals(chunks, expected, collect(SECTIONS, left, middle, right, true));
+                assertEquals(chunks, expected, collect(SECTIONS, left, middle, right, false));
+            }
+        }
+    }
+
+    @Test
+    public void keysTheSectionsByTheirFirstElement() {
+        final List<String> lines = LINES.subList(0, 13);
+        final Map<String, List<String>> sections = lines.parallelStream()
+                .collect(SectionCollector.toSectionMap(String::isEmpty));
+        assertEquals(3, sections.size());
+        assertEquals(Arrays.asList("1", "2"), sections.get("tb_a"));
+        assertEquals(Collections.singletonList("3"), sections.get("tb_b"));
+        assertEquals(Collections.emptyList(), sections.get("tb_c"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsDuplicatedKeys() {
+        LINES.stream().collect(SectionCollector.toSectionMap(String::isEmpty));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsDuplicatedKeysOnParallelStreams() {
+        LINES.parallelStream().collect(SectionCollector.toSectionMap(String::isEmpty));
+    }
+
+    /**
+     * Reference split: a single sequential pass, starting a new section at each separator.
+     */
+    private static List<List<String>> split(List<String> lines) {
+        final List<List<String>> sections = new ArrayList<>();
+        List<String> section = new ArrayList<>();
+        for (String line : lines) {
+            if (!line.isEmpty()) {
+                section.add(line);
+            } else if (!section.isEmpty()) {
+                sections.add(section);
+                section = new ArrayList<>();
+            }
+        }
+        if (!section.isEmpty()) {
+            sections.add(section);
+        }
+        return sections;
+    }
+
+    /**
+     * Accumulates three chunks apart, as a parallel stream does, and combines them in either order of association.
+     */
+    private static <A, R> R collect(Collector<String, A, R> collector, List<String> left, List<String> middle,
+                                    List<String> right, boolean leftFirst) {
+        final A first = accumulate(collector, left);
+        final A second = accumulate(collector, middle);
+        final A third = accumulate(collector, right);
+        final A combined = leftFirst
+                ? collector.combiner().apply(collector.combiner().apply(first, second), third)
+                : collector.combiner().apply(first, collector.combiner().apply(second, third));
+        return collector.finisher().apply(combined);
+    }
+
+    private static <A, R> A accumulate(Collector<String, A, R> collector, List<String> chunk) {
+        final A container = collector.supplier().get();
+        chunk.forEach(element -> collector.accumulator().accept(container, element));
+        return container;
+    }
+}
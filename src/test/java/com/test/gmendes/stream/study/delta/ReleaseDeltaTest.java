@@ -0,0 +1,143 @@
+package com.test.gmendes.stream.study.delta;
+
+import com.test.gmendes.stream.study.sink.CallbackInsertSink;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
+import static com.test.gmendes.stream.study.Constants.LAYOUT_HEADER;
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares two small releases of a procedure, its financing and its CIDs, where a procedure changed its financing.
+ *
+ * @author grmendes
+ */
+public class ReleaseDeltaTest {
+
+    private static final List<String> FINANCIAMENTO = Arrays.asList(
+            "CO_FINANCIAMENTO,2,1,2,VARCHAR2",
+            "NO_FINANCIAMENTO,10,3,12,VARCHAR2");
+    private static final List<String> PROCEDIMENTO = Arrays.asList(
+            "CO_PROCEDIMENTO,4,1,4,VARCHAR2",
+            "NO_PROCEDIMENTO,10,5,14,VARCHAR2",
+            "CO_FINANCIAMENTO,2,15,16,VARCHAR2",
+            "DT_COMPETENCIA,6,17,22,CHAR");
+    private static final List<String> PROCEDIMENTO_CID = Arrays.asList(
+            "CO_PROCEDIMENTO,4,1,4,VARCHAR2",
+            "CO_CID,4,5,8,VARCHAR2",
+            "DT_COMPETENCIA,6,9,14,CHAR");
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void updatesAMasterRowWhoseForeignCodeChanged() throws IOException {
+        final String oldPath = oldRelease();
+        final String newPath = release("new", PROCEDIMENTO,
+                Arrays.asList("01A         ", "02B         ", "03C         "),
+                Arrays.asList("0001P1        02201702", "0002P2        01201702", "0004P4        03201702"),
+                Arrays.asList("0001A000201702", "0002B000201702", "0004D000201702"));
+
+        final List<String> statements = new ArrayList<>();
+        final Map<String, TableDelta> deltas = execute(oldPath, newPath, statements);
+
+        assertEquals(Arrays.asList(
+                "DELETE FROM rl_procedimento_cid WHERE CO_CID='C000' AND CO_PROCEDIMENTO='0003';",
+                "DELETE FROM tb_procedimento WHERE CO_PROCEDIMENTO='0003';",
+                "INSERT INTO tb_financiamento (CO_FINANCIAMENTO,NO_FINANCIAMENTO) VALUES ('03','C');"),
+                statements.subList(0, 3));
+        final List<String> procedimento = new ArrayList<>(statements.subList(3, 5));
+        Collections.sort(procedimento);
+        assertEquals(Arrays.asList(
+                "INSERT INTO tb_procedimento (CO_FINANCIAMENTO,CO_PROCEDIMENTO,DT_COMPETENCIA,NO_PROCEDIMENTO) "
+                        + "VALUES ('03','0004','201702','P4');",
+                "UPDATE tb_procedimento SET CO_FINANCIAMENTO='02',DT_COMPETENCIA='201702',NO_PROCEDIMENTO='P1' "
+                        + "WHERE CO_PROCEDIMENTO='0001';"),
+                procedimento);
+        assertEquals(Collections.singletonList(
+                "INSERT INTO rl_procedimento_cid (CO_CID,CO_PROCEDIMENTO,DT_COMPETENCIA) "
+                        + "VALUES ('D000','0004','201702');"),
+                statements.subList(5, statements.size()));
+
+        final TableDelta delta = deltas.get("tb_procedimento");
+        assertEquals(1, delta.inserts());
+        assertEquals(1, delta.updates());
+        assertEquals(1, delta.deletes());
+        assertEquals(1, deltas.get("rl_procedimento_cid").deletes());
+        assertEquals(1, deltas.get("rl_procedimento_cid").inserts());
+    }
+
+    @Test
+    public void updatesTheRowsOfATableWhoseColumnsChanged() throws IOException {
+        final String oldPath = oldRelease();
+        final List<String> procedimento = new ArrayList<>(PROCEDIMENTO);
+        procedimento.add("TP_SEXO,1,23,23,VARCHAR2");
+        final String newPath = release("new", procedimento,
+                Arrays.asList("01A         ", "02B         "),
+                Arrays.asList("0001P1        01201701M", "0002P2        01201701F", "0003P3        01201701I"),
+                Arrays.asList("0001A000201701", "0002B000201701", "0003C000201701"));
+
+        final List<String> statements = new ArrayList<>();
+        final TableDelta delta = execute(oldPath, newPath, statements).get("tb_procedimento");
+
+        assertTrue(delta.reloaded());
+        assertEquals(3, delta.updates());
+        assertEquals(0, delta.deletes() + delta.inserts());
+        assertEquals(3, statements.size());
+        for (String statement : statements) {
+            assertTrue(statement, statement.startsWith("UPDATE tb_procedimento SET "));
+        }
+        assertFalse(statements.contains("DELETE FROM tb_procedimento;"));
+    }
+
+    private String oldRelease() throws IOException {
+        return release("old", PROCEDIMENTO,
+                Arrays.asList("01A         ", "02B         "),
+                Arrays.asList("0001P1        01201701", "0002P2        01201701", "0003P3        01201701"),
+                Arrays.asList("0001A000201701", "0002B000201701", "0003C000201701"));
+    }
+
+    private static Map<String, TableDelta> execute(String oldPath, String newPath, List<String> statements) {
+        return new ReleaseDelta(oldPath, newPath).execute(new CallbackInsertSink(statements::add)).stream()
+                .collect(toMap(TableDelta::name, Function.identity()));
+    }
+
+    private String release(String name, List<String> procedimentoLayout, List<String> financiamento,
+                           List<String> procedimento, List<String> procedimentoCid) throws IOException {
+        final Path directory = folder.newFolder(name).toPath();
+        final List<String> layout = new ArrayList<>();
+        section(layout, "tb_financiamento", FINANCIAMENTO);
+        section(layout, "tb_procedimento", procedimentoLayout);
+        section(layout, "rl_procedimento_cid", PROCEDIMENTO_CID);
+        Files.write(directory.resolve(LAYOUT_FILE_BASE_NAME), layout, StandardCharsets.ISO_8859_1);
+        Files.write(directory.resolve("tb_financiamento" + TXT_EXTENSION), financiamento, StandardCharsets.ISO_8859_1);
+        Files.write(directory.resolve("tb_procedimento" + TXT_EXTENSION), procedimento, StandardCharsets.ISO_8859_1);
+        Files.write(directory.resolve("rl_procedimento_cid" + TXT_EXTENSION), procedimentoCid,
+                StandardCharsets.ISO_8859_1);
+        return directory.toString();
+    }
+
+    private static void section(List<String> layout, String table, List<String> columns) {
+        layout.add(table);
+        layout.add(LAYOUT_HEADER);
+        layout.addAll(columns);
+        layout.add("");
+    }
+}
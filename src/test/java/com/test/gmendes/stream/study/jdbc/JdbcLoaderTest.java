@@ -0,0 +1,175 @@
+package com.test.gmendes.stream.study.jdbc;
+
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Loads small tables into an in-memory H2 database, in Oracle mode, and reads them back.
+ *
+ * @author grmendes
+ */
+public class JdbcLoaderTest {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    /**
+     * Columns are sorted by name: CO_CODIGO, DT_COMPETENCIA, NO_NOME, QT_PONTOS.
+     */
+    private static final TableLayout LAYOUT = TableLayout.compile("tb_teste", Arrays.asList(
+            "Coluna,Tamanho,Inicio,Fim,Tipo",
+            "CO_CODIGO,4,1,4,VARCHAR2",
+            "NO_NOME,10,5,14,VARCHAR2",
+            "QT_PONTOS,6,15,20,NUMBER",
+            "DT_COMPETENCIA,6,21,26,CHAR"));
+
+    private ConnectionFactory connections;
+    private Connection keepAlive;
+
+    @Before
+    public void setUp() throws SQLException {
+        final String url = "jdbc:h2:mem:loader" + DATABASES.incrementAndGet() + ";MODE=Oracle";
+        connections = () -> DriverManager.getConnection(url);
+        // The in-memory database lives while any connection is open.
+        keepAlive = connections.open();
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        keepAlive.close();
+    }
+
+    @Test
+    public void loadsAllRowsWithBatchesAndCommitsNotDividingTheRowCount() {
+        final List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            lines.add(line(String.format("%04d", i), "NOME " + i, String.format("%06d", i), "201710"));
+        }
+        final JdbcLoader loader = new JdbcLoader(connections, 4, 7);
+        loader.createTable(LAYOUT);
+
+        assertEquals(23, loader.load(LAYOUT, lines.size(), rows(lines)));
+        assertEquals(23, count());
+        assertEquals(Arrays.asList("0000", "NOME 0", "0", "201710"), select("0000"));
+        assertEquals(Arrays.asList("0022", "NOME 22", "22", "201710"), select("0022"));
+    }
+
+    @Test
+    public void bindsValuesWithTheTypesOfTheirColumns() {
+        final List<String> lines = Arrays.asList(
+                line("A1", "NOME", "000042", "2017  "),
+                line("B2", "", "", ""),
+                line("C3", "  NOME  ", "   7", " 1"));
+        final JdbcLoader loader = new JdbcLoader(connections, 2, 2);
+        loader.createTable(LAYOUT);
+        loader.load(LAYOUT, lines.size(), rows(lines));
+
+        // VARCHAR2 is trimmed, NUMBER drops its leading zeros and CHAR keeps its padding.
+        assertEquals(Arrays.asList("A1", "NOME", "42", "2017  "), select("A1"));
+        // Blank values are NULL, whatever their type.
+        assertEquals(Arrays.asList("B2", null, null, null), select("B2"));
+        // Only trailing whitespaces are trimmed from VARCHAR2.
+        assertEquals(Arrays.asList("C3", "  NOME", "7", " 1    "), select("C3"));
+    }
+
+    @Test
+    public void rollsBackToTheLastCommitOnFailure() {
+        final List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            lines.add(line(String.format("%04d", i), "NOME", i == 7 ? "12X4" : "1", "201710"));
+        }
+        // Commits every 5 rows, rounded up to whole batches of 3: the first commit is after 6 rows.
+        final JdbcLoader loader = new JdbcLoader(connections, 3, 5);
+        loader.createTable(LAYOUT);
+        try {
+            loader.load(LAYOUT, lines.size(), rows(lines));
+            fail("Invalid number loaded");
+        } catch (RuntimeException e) {
+            assertEquals("Table can't be loaded: tb_teste", e.getMessage());
+        }
+        assertEquals(6, count());
+        assertNull(select("0006"));
+    }
+
+    @Test
+    public void rollsBackWhenARowCantBeRead() {
+        final List<String> lines = Arrays.asList(line("A1", "NOME", "1", "201710"), line("B2", "NOME", "2", "201710"));
+        final JdbcLoader loader = new JdbcLoader(connections, 1, 10);
+        loader.createTable(LAYOUT);
+        try {
+            loader.load(LAYOUT, lines.size() + 1, rows(lines));
+            fail("Missing row loaded");
+        } catch (IndexOutOfBoundsException e) {
+            // Rows already sent but not committed are discarded.
+        }
+        assertEquals(0, count());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyBatches() {
+        new JdbcLoader(connections, 0, 1);
+    }
+
+    @Test
+    public void buildsStatementsInTheLayoutOrder() {
+        assertEquals("INSERT INTO tb_teste (CO_CODIGO,DT_COMPETENCIA,NO_NOME,QT_PONTOS) VALUES (?,?,?,?)",
+                JdbcLoader.insertStatement(LAYOUT));
+        assertEquals("CREATE TABLE tb_teste (CO_CODIGO VARCHAR2(4),DT_COMPETENCIA CHAR(6),NO_NOME VARCHAR2(10),"
+                + "QT_PONTOS NUMBER(6))", JdbcLoader.createStatement(LAYOUT));
+    }
+
+    /**
+     * @return Fixed width line with the values of CO_CODIGO, NO_NOME, QT_PONTOS and DT_COMPETENCIA, in file order.
+     */
+    private static String line(String code, String name, String points, String competence) {
+        return String.format("%-4s%-10s%-6s%-6s", code, name, points, competence);
+    }
+
+    private static IntFunction<RowCursor> rows(List<String> lines) {
+        final RowCursor cursor = new RowCursor(LAYOUT);
+        return row -> cursor.wrap(lines.get(row));
+    }
+
+    private int count() {
+        try (Statement statement = keepAlive.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM tb_teste")) {
+            result.next();
+            return result.getInt(1);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return Values of the row with the code, as Strings, in the order of {@link #line}. Null if there's no such row.
+     */
+    private List<String> select(String code) {
+        try (Statement statement = keepAlive.createStatement();
+             ResultSet result = statement.executeQuery("SELECT CO_CODIGO, NO_NOME, QT_PONTOS, DT_COMPETENCIA "
+                     + "FROM tb_teste WHERE CO_CODIGO = '" + code + "'")) {
+            if (!result.next()) {
+                return null;
+            }
+            return Arrays.asList(result.getString(1), result.getString(2), result.getString(3), result.getString(4));
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.test.gmendes.stream.study.synthetic;
+
+import com.test.gmendes.stream.study.collect.SectionCollector;
+import com.test.gmendes.stream.study.io.MappedFile;
+import com.test.gmendes.stream.study.java8.v2.ProcessJava8V2;
+import com.test.gmendes.stream.study.layout.RowCursor;
+import com.test.gmendes.stream.study.layout.TableLayout;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static com.test.gmendes.stream.study.Constants.LAYOUT_FILE_BASE_NAME;
+import static com.test.gmendes.stream.study.Constants.TXT_EXTENSION;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Writes the bundled Sigtap release at scale 2 and checks the tables grow and their relations still hold.
+ *
+ * @author grmendes
+ */
+public class SyntheticReleaseTest {
+
+    private static final String REAL = Paths.get("src", "main", "resources", "Sigtap").toString();
+    private static final int SCALE = 2;
+
+    @ClassRule
+    public static final TemporaryFolder FOLDER = new TemporaryFolder();
+
+    private static SyntheticRelease release;
+    private static String synthetic;
+
+    @BeforeClass
+    public static void writeRelease() throws IOException {
+        release = new SyntheticRelease(REAL);
+        final Path output = FOLDER.newFolder("sigtap").toPath();
+        release.write(output, SCALE);
+        synthetic = output.toString();
+    }
+
+    @Test
+    public void referencingColumnsShareTheDictionaryOfTheirCode() {
+        assertEquals("CO_PROCEDIMENTO", release.referencedCode("CO_PROCEDIMENTO_ORIGEM"));
+        assertEquals("CO_PROCEDIMENTO", release.referencedCode("CO_PROCEDIMENTO_PRINCIPAL"));
+        assertEquals("CO_PROCEDIMENTO", release.referencedCode("CO_PROCEDIMENTO_COMPATIVEL"));
+        assertEquals("CO_PROCEDIMENTO", release.referencedCode("CO_PROCEDIMENTO_RESTRICAO"));
+        // Code of tb_sia_sih, only named after CO_PROCEDIMENTO.
+        assertEquals("CO_PROCEDIMENTO_SIA_SIH", release.referencedCode("CO_PROCEDIMENTO_SIA_SIH"));
+    }
+
+    @Test
+    public void growingTablesAreWrittenOncePerReplica() throws IOException {
+        for (String table : new String[]{"tb_procedimento", "rl_procedimento_origem", "rl_procedimento_compativel",
+                "rl_procedimento_cid"}) {
+            assertTrue(table, release.grows(table));
+            assertEquals(table, SCALE * size(REAL, table), size(synthetic, table));
+        }
+        assertEquals(size(REAL, "tb_grupo"), size(synthetic, "tb_grupo"));
+    }
+
+    @Test
+    public void referencesToProceduresPointToExistingRows() {
+        final Map<String, TableLayout> layouts = layouts();
+        final Set<String> real = values(REAL, layouts.get("tb_procedimento"), "CO_PROCEDIMENTO");
+        final Set<String> procedures = values(synthetic, layouts.get("tb_procedimento"), "CO_PROCEDIMENTO");
+        assertEquals(SCALE * real.size(), procedures.size());
+
+        for (TableLayout layout : layouts.values()) {
+            if (!Files.isRegularFile(Paths.get(REAL, layout.name() + TXT_EXTENSION))) {
+                continue;
+            }
+            for (String column : layout.columns()) {
+                if (!"CO_PROCEDIMENTO".equals(release.referencedCode(column))) {
+                    continue;
+                }
+                // Rows of the real release referencing missing procedures, if any, are missing in every replica.
+                final Set<String> realMissing = values(REAL, layout, column);
+                realMissing.removeAll(real);
+                final Set<String> missing = values(synthetic, layout, column);
+                missing.removeAll(procedures);
+                assertTrue(layout.name() + "." + column + ": " + missing, missing.size() <= SCALE * realMissing.size());
+            }
+        }
+    }
+
+    private static long size(String path, String table) throws IOException {
+        return Files.size(Paths.get(path, table + TXT_EXTENSION));
+    }
+
+    private static Map<String, TableLayout> layouts() {
+        final Map<String, List<String>> lines = ProcessJava8V2.readFile(REAL, LAYOUT_FILE_BASE_NAME).stream()
+                .collect(SectionCollector.toSectionMap(String::isEmpty));
+        final Map<String, TableLayout> layouts = new TreeMap<>();
+        lines.forEach((table, tableLines) -> layouts.put(table, TableLayout.compile(table, tableLines)));
+        return layouts;
+    }
+
+    private static Set<String> values(String path, TableLayout layout, String column) {
+        final MappedFile data = MappedFile.readFile(path, layout.name() + TXT_EXTENSION);
+        final RowCursor cursor = new RowCursor(layout);
+        final int index = layout.indexOf(column);
+        final Set<String> values = new HashSet<>();
+        for (int row = 0; row < data.rowCount(); row++) {
+            if (!data.row(row, cursor).isNull(index)) {
+                values.add(cursor.value(index));
+            }
+        }
+        return values;
+    }
+}